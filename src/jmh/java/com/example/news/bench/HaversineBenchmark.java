@@ -0,0 +1,37 @@
+package com.example.news.bench;
+
+import com.example.news.index.GeoUtils;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HaversineBenchmark {
+
+  private static final int POINTS = 1024;
+
+  private final double[] lat = new double[POINTS];
+  private final double[] lon = new double[POINTS];
+  private int i;
+
+  @Setup
+  public void setUp() {
+    Random rnd = new Random(7);
+    for (int k = 0; k < POINTS; k++) {
+      lat[k] = rnd.nextDouble() * 180 - 90;
+      lon[k] = rnd.nextDouble() * 360 - 180;
+    }
+  }
+
+  @Benchmark
+  public double haversineKm() {
+    int a = i++ & (POINTS - 1);
+    int b = (a + 1) & (POINTS - 1);
+    return GeoUtils.haversineKm(lat[a], lon[a], lat[b], lon[b]);
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.news.bench;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Retained heap per article, measured with JOL over a {@link SyntheticCorpus}: an id-to-bean map of
+ * {@code NewsArticle}s, which is what the article cache used to hold and the search and geo indexes
+ * referenced, against the encoded records the cache now holds, and the id-only indexes on top.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q -Pjmh dependency:build-classpath \
+ *     -Dmdep.outputFile=/dev/stdout)" com.example.news.bench.HeapFootprint 100000
+ * </pre>
+ */
+public class HeapFootprint {
+
+  public static void main(String[] args) {
+    // Lets JOL read the fields of records, which the indexes use for their entries.
+    System.setProperty("jol.magicFieldOffset", "true");
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    List<NewsArticle> corpus = SyntheticCorpus.generate(n, 42);
+
+    ArticleCache cache = new ArticleCache(true, 0);
+    cache.beginLoad();
+    cache.load(corpus);
+    SearchIndex search = new SearchIndex();
+    GeoIndex geo = new GeoIndex();
+    ColumnarStore columns = new ColumnarStore();
+    NearDuplicateIndex duplicates = new NearDuplicateIndex(4);
+    for (NewsArticle a : corpus) {
+      search.index(a);
+      geo.index(a);
+      columns.index(a);
+      duplicates.index(a);
+    }
+
+    Map<String, NewsArticle> beans = new ConcurrentHashMap<>();
+    for (NewsArticle a : corpus) beans.put(a.getId(), a);
+    long beanBytes = GraphLayout.parseInstance(beans).totalSize();
+    long records = GraphLayout.parseInstance(cache).totalSize();
+    // The indexes share their id strings with the cache; count those once, with the cache.
+    long indexes = GraphLayout.parseInstance(cache, search, geo, columns, duplicates).totalSize();
+
+    System.out.printf("%,d articles%n", n);
+    System.out.printf("  NewsArticle beans     %,8d bytes/article%n", beanBytes / n);
+    System.out.printf("  article cache records %,8d bytes/article%n", records / n);
+    System.out.printf("  indexes on top        %,8d bytes/article%n", (indexes - records) / n);
+  }
+}
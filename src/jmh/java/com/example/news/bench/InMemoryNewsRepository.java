@@ -0,0 +1,151 @@
+package com.example.news.bench;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+/**
+ * {@link NewsRepository} backed by a map instead of DynamoDB. Scans copy the whole corpus into a
+ * fresh list, like the real scan does, and category/source lookups fall back to scan + filter +
+ * sort so the benchmark measures the in-process cost of those paths.
+ */
+public class InMemoryNewsRepository extends NewsRepository {
+
+  private final Map<String, NewsArticle> articles = new ConcurrentHashMap<>();
+  private final SearchIndex searchIndex;
+  private final GeoIndex geoIndex;
+  private final ColumnarStore columns;
+  private final NearDuplicateIndex duplicates;
+
+  public InMemoryNewsRepository() {
+    this(new SearchIndex(), new GeoIndex(), new ColumnarStore(), new NearDuplicateIndex(4));
+  }
+
+  private InMemoryNewsRepository(
+      SearchIndex searchIndex,
+      GeoIndex geoIndex,
+      ColumnarStore columns,
+      NearDuplicateIndex duplicates) {
+    super(
+        unusedClient(),
+        searchIndex,
+        geoIndex,
+        columns,
+        duplicates,
+        ArticleCache.disabled(),
+        NewsMetrics.noop(),
+        1);
+    this.searchIndex = searchIndex;
+    this.geoIndex = geoIndex;
+    this.columns = columns;
+    this.duplicates = duplicates;
+  }
+
+  @Override
+  public void save(NewsArticle article) {
+    articles.put(article.getId(), article);
+    searchIndex.index(article);
+    geoIndex.index(article);
+    columns.index(article);
+    duplicates.index(article);
+  }
+
+  @Override
+  public void saveAll(List<NewsArticle> batch) {
+    batch.forEach(this::save);
+  }
+
+  @Override
+  public Optional<NewsArticle> findById(String id) {
+    return Optional.ofNullable(articles.get(id));
+  }
+
+  @Override
+  public List<NewsArticle> scanAll() {
+    return new ArrayList<>(articles.values());
+  }
+
+  @Override
+  public Stream<NewsArticle> streamAll(String... attributes) {
+    return articles.values().stream();
+  }
+
+  @Override
+  public List<NewsArticle> findAllById(List<String> ids) {
+    return ids.stream().map(articles::get).filter(Objects::nonNull).collect(Collectors.toList());
+  }
+
+  @Override
+  public List<NewsArticle> queryBySource(String source, int limit) {
+    return newest(
+        scanWithFilter(
+            a -> a.getSourceName() != null && a.getSourceName().equalsIgnoreCase(source)),
+        limit);
+  }
+
+  @Override
+  public List<NewsArticle> queryByCategory(String category, int limit) {
+    return newest(
+        scanWithFilter(
+            a ->
+                a.getCategory() != null
+                    && a.getCategory().stream().anyMatch(c -> c.equalsIgnoreCase(category))),
+        limit);
+  }
+
+  @Override
+  public void rebuildIndexes() {
+    searchIndex.clear();
+    geoIndex.clear();
+    columns.clear();
+    duplicates.clear();
+    articles
+        .values()
+        .forEach(
+            a -> {
+              searchIndex.index(a);
+              geoIndex.index(a);
+              columns.index(a);
+              duplicates.index(a);
+            });
+  }
+
+  public int size() {
+    return articles.size();
+  }
+
+  private static List<NewsArticle> newest(List<NewsArticle> list, int limit) {
+    return list.stream()
+        .sorted(
+            Comparator.comparing(
+                NewsArticle::getPublicationEpoch, Comparator.nullsLast(Comparator.reverseOrder())))
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  private static DynamoDbEnhancedClient unusedClient() {
+    DynamoDbClient client =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    return DynamoDbEnhancedClient.builder().dynamoDbClient(client).build();
+  }
+}
@@ -0,0 +1,135 @@
+package com.example.news.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator comparing the two {@code news.execution.mode}s: {@code
+ * concurrency} clients each send the next request as soon as the previous one returns, cycling
+ * through the given paths, first against an instance running in blocking mode and then against one
+ * running in async mode. Each concurrency level is reported for both modes side by side, with
+ * throughput and latency percentiles.
+ *
+ * <pre>
+ * java -cp target/test-classes com.example.news.bench.LoadTest 64,256,1024 20 \
+ *     http://localhost:8080 http://localhost:8081 \
+ *     "/api/news/v1/category?category=general&amp;limit=5"
+ * </pre>
+ */
+public class LoadTest {
+
+  private static final String[] MODES = {"blocking", "async"};
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 5) {
+      System.out.println(
+          "usage: LoadTest <concurrency[,concurrency...]> <seconds> <blocking-base-url>"
+              + " <async-base-url> <path> [path...]");
+      return;
+    }
+    int[] levels = Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray();
+    long seconds = Long.parseLong(args[1]);
+    String[] bases = {args[2], args[3]};
+    List<String> paths = Arrays.asList(args).subList(4, args.length);
+
+    HttpClient client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newFixedThreadPool(4))
+            .build();
+    List<List<URI>> targets = new ArrayList<>();
+    for (String base : bases) {
+      List<URI> urls = new ArrayList<>();
+      for (String path : paths) urls.add(URI.create(base.replaceAll("/+$", "") + path));
+      targets.add(urls);
+      // Short warm-up so JIT and connection setup do not count against the run.
+      run(client, urls, 16, TimeUnit.SECONDS.toNanos(5));
+    }
+
+    System.out.printf(
+        "%11s %-8s %9s %7s %10s %9s %9s %9s %9s%n",
+        "concurrency",
+        "mode",
+        "requests",
+        "errors",
+        "req/s",
+        "p50 ms",
+        "p95 ms",
+        "p99 ms",
+        "max ms");
+    for (int concurrency : levels) {
+      for (int m = 0; m < MODES.length; m++) {
+        Result r = run(client, targets.get(m), concurrency, TimeUnit.SECONDS.toNanos(seconds));
+        long[] lat = r.latenciesMicros();
+        Arrays.sort(lat);
+        System.out.printf(
+            "%11d %-8s %9d %7d %10.1f %9.1f %9.1f %9.1f %9.1f%n",
+            concurrency,
+            MODES[m],
+            lat.length,
+            r.errors(),
+            lat.length / (double) seconds,
+            percentile(lat, 0.50) / 1000.0,
+            percentile(lat, 0.95) / 1000.0,
+            percentile(lat, 0.99) / 1000.0,
+            lat.length == 0 ? 0.0 : lat[lat.length - 1] / 1000.0);
+      }
+    }
+    System.exit(0);
+  }
+
+  private record Result(long[] latenciesMicros, long errors) {}
+
+  private static Result run(HttpClient client, List<URI> urls, int concurrency, long durationNanos)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + durationNanos;
+    ConcurrentLinkedQueue<long[]> perClient = new ConcurrentLinkedQueue<>();
+    AtomicLong errors = new AtomicLong();
+    ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+    for (int c = 0; c < concurrency; c++) {
+      int offset = c;
+      clients.execute(
+          () -> {
+            long[] samples = new long[1024];
+            int n = 0;
+            for (int i = offset; System.nanoTime() < deadline; i++) {
+              HttpRequest request =
+                  HttpRequest.newBuilder(urls.get(i % urls.size()))
+                      .timeout(Duration.ofSeconds(30))
+                      .build();
+              long start = System.nanoTime();
+              try {
+                HttpResponse<Void> response =
+                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                  errors.incrementAndGet();
+                  continue;
+                }
+              } catch (Exception e) {
+                errors.incrementAndGet();
+                continue;
+              }
+              if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+              samples[n++] = (System.nanoTime() - start) / 1000;
+            }
+            perClient.add(Arrays.copyOf(samples, n));
+          });
+    }
+    clients.shutdown();
+    clients.awaitTermination(durationNanos + TimeUnit.SECONDS.toNanos(60), TimeUnit.NANOSECONDS);
+    long[] all = perClient.stream().flatMapToLong(Arrays::stream).toArray();
+    return new Result(all, errors.get());
+  }
+
+  private static double percentile(long[] sorted, double p) {
+    if (sorted.length == 0) return 0;
+    return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+  }
+}
@@ -0,0 +1,113 @@
+package com.example.news.bench;
+
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.NewsService;
+import com.example.news.service.QueryPlanner;
+import com.example.news.service.QueryResultCache;
+import com.example.news.service.SummarizationPipeline;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * End-to-end cost of each {@link NewsService} query method over a synthetic corpus held in {@link
+ * InMemoryNewsRepository}. Articles already carry summaries, so no LLM work is queued.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms1g", "-Xmx8g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NewsServiceBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int corpusSize;
+
+  @Param({"5"})
+  public int limit;
+
+  private NewsService service;
+  private SummarizationPipeline pipeline;
+  private int cursor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    InMemoryNewsRepository repository = new InMemoryNewsRepository();
+    List<NewsArticle> corpus = SyntheticCorpus.generate(corpusSize, 42);
+    repository.saveAll(corpus);
+
+    LLMService llm =
+        new LLMService(
+            "http://127.0.0.1:1",
+            "",
+            "bench",
+            120,
+            new LlmResponseCache(1 << 20, 60, "", 0),
+            LlmScheduler.unlimited(),
+            NewsMetrics.noop());
+    pipeline = new SummarizationPipeline(llm, repository, 1, 16, 0);
+    service =
+        new NewsService(
+            repository, pipeline, QueryResultCache.disabled(), NewsMetrics.noop(), true);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pipeline.shutdown();
+  }
+
+  private int next(int bound) {
+    cursor = (cursor + 1) % bound;
+    return cursor;
+  }
+
+  @Benchmark
+  public List<ScoredArticle> byCategory() {
+    return service.fetchNewsArticlesByCategory(
+        SyntheticCorpus.CATEGORIES.get(next(SyntheticCorpus.CATEGORIES.size())), limit);
+  }
+
+  @Benchmark
+  public List<ScoredArticle> bySource() {
+    return service.fetchNewsArticlesBySource(SyntheticCorpus.source(next(50)), limit);
+  }
+
+  @Benchmark
+  public List<ScoredArticle> byScore() {
+    return service.fetchNewsArticlesByScore(0.8, limit);
+  }
+
+  @Benchmark
+  public List<ScoredArticle> search() {
+    return service.searchNewsArticles(
+        SyntheticCorpus.QUERY_TERMS.get(next(SyntheticCorpus.QUERY_TERMS.size())), limit);
+  }
+
+  @Benchmark
+  public List<ScoredArticle> nearby() {
+    return service.fetchNewsArticlesRelevantNearby(21.75, 80.56, 50, limit);
+  }
+
+  @Benchmark
+  public List<ScoredArticle> composite() {
+    return service.fetchNewsArticlesMatching(
+        new QueryPlanner.Criteria(
+            SyntheticCorpus.CATEGORIES.get(next(SyntheticCorpus.CATEGORIES.size())),
+            null,
+            0.5,
+            SyntheticCorpus.QUERY_TERMS.get(next(SyntheticCorpus.QUERY_TERMS.size())),
+            21.75,
+            80.56,
+            500.0),
+        0,
+        limit);
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.news.bench;
+
+import com.example.news.model.NewsArticle;
+import java.util.*;
+
+/** Deterministic synthetic articles shaped like the sample feed. */
+public final class SyntheticCorpus {
+
+  public static final List<String> CATEGORIES =
+      List.of(
+          "general",
+          "world",
+          "national",
+          "business",
+          "sports",
+          "technology",
+          "entertainment",
+          "science",
+          "health",
+          "politics",
+          "education",
+          "environment");
+
+  public static final List<String> QUERY_TERMS =
+      List.of("election", "market", "cricket", "climate", "court");
+
+  private static final int VOCABULARY = 5_000;
+  private static final int SOURCES = 50;
+  private static final long START_EPOCH = 1_740_000_000_000L;
+  private static final long THIRTY_DAYS_MS = 30L * 24 * 3600 * 1000;
+
+  private SyntheticCorpus() {}
+
+  public static String source(int i) {
+    return "Source " + i;
+  }
+
+  public static List<NewsArticle> generate(int size, long seed) {
+    Random rnd = new Random(seed);
+    List<NewsArticle> out = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      List<String> cats = new ArrayList<>(2);
+      cats.add(CATEGORIES.get(skewed(rnd, CATEGORIES.size())));
+      if (rnd.nextInt(4) == 0) cats.add(CATEGORIES.get(rnd.nextInt(CATEGORIES.size())));
+      boolean located = rnd.nextInt(5) != 0;
+      out.add(
+          NewsArticle.builder()
+              .id(new UUID(seed, i).toString())
+              .title(words(rnd, 8))
+              .description(words(rnd, 24))
+              .url("https://example.com/" + i)
+              .publicationEpoch(START_EPOCH + (long) (rnd.nextDouble() * THIRTY_DAYS_MS))
+              .sourceName(source(skewed(rnd, SOURCES)))
+              .category(cats)
+              .relevanceScore(rnd.nextDouble())
+              .latitude(located ? 8 + rnd.nextDouble() * 27 : null)
+              .longitude(located ? 68 + rnd.nextDouble() * 29 : null)
+              .llmSummary("synthetic summary")
+              .build());
+    }
+    return out;
+  }
+
+  private static String words(Random rnd, int n) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      if (i > 0) sb.append(' ');
+      int w = skewed(rnd, VOCABULARY);
+      sb.append(w < QUERY_TERMS.size() * 40 ? QUERY_TERMS.get(w % QUERY_TERMS.size()) : "w" + w);
+    }
+    return sb.toString();
+  }
+
+  /** Roughly Zipfian pick in [0, n): low indexes are much more common. */
+  private static int skewed(Random rnd, int n) {
+    return (int) Math.min(n - 1, Math.floor(Math.pow(n + 1, rnd.nextDouble())) - 1);
+  }
+}
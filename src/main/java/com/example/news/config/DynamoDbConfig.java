@@ -1,13 +1,26 @@
 package com.example.news.config;
 
+import com.example.news.metrics.NewsMetrics;
 import java.net.URI;
+import java.util.concurrent.Semaphore;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 @Configuration
@@ -19,10 +32,18 @@ public class DynamoDbConfig {
   @Value("${aws.dynamodb.endpoint:http://localhost:8000}")
   private String dynamoEndpoint;
 
+  @Value("${aws.dynamodb.maxConcurrency:48}")
+  private int maxConcurrency;
+
   @Bean
-  public DynamoDbClient dynamoDbClient() {
+  public DynamoDbClient dynamoDbClient(NewsMetrics metrics) {
     return DynamoDbClient.builder()
         .endpointOverride(URI.create(dynamoEndpoint))
+        .overrideConfiguration(
+            ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(new ConcurrencyLimitInterceptor(maxConcurrency))
+                .addExecutionInterceptor(new ResponseBytesInterceptor(metrics))
+                .build())
         .region(Region.of(region))
         .credentialsProvider(
             StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
@@ -33,4 +54,105 @@ public class DynamoDbConfig {
   public DynamoDbEnhancedClient dynamoDbEnhancedClient(DynamoDbClient dynamoDbClient) {
     return DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
   }
+
+  /**
+   * The non-blocking client behind {@code news.execution.mode: async}. Netty's connection pool
+   * holds at most {@code aws.dynamodb.maxConcurrency} requests in flight and queues the rest
+   * without parking a thread, so {@link ConcurrencyLimitInterceptor} is not used here.
+   */
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(name = "news.execution.mode", havingValue = "async")
+  public DynamoDbAsyncClient dynamoDbAsyncClient(NewsMetrics metrics) {
+    return DynamoDbAsyncClient.builder()
+        .endpointOverride(URI.create(dynamoEndpoint))
+        .httpClientBuilder(
+            NettyNioAsyncHttpClient.builder().maxConcurrency(Math.max(1, maxConcurrency)))
+        .overrideConfiguration(
+            ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(new ResponseBytesInterceptor(metrics))
+                .build())
+        .region(Region.of(region))
+        .credentialsProvider(
+            StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+        .build();
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "news.execution.mode", havingValue = "async")
+  public DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient(
+      DynamoDbAsyncClient dynamoDbAsyncClient) {
+    return DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(dynamoDbAsyncClient).build();
+  }
+
+  /**
+   * Caps in-flight DynamoDB calls below the HTTP connection pool size (50 by default). Tomcat's
+   * worker pool is larger than that, and hundreds of callers queueing inside the connection pool
+   * stalled the app under load; waiting here instead is a plain fair-semaphore park.
+   */
+  static class ConcurrencyLimitInterceptor implements ExecutionInterceptor {
+    private static final ExecutionAttribute<Boolean> PERMIT =
+        new ExecutionAttribute<>("news.dynamodb.permit");
+
+    private final Semaphore permits;
+
+    ConcurrencyLimitInterceptor(int maxConcurrency) {
+      this.permits = new Semaphore(Math.max(1, maxConcurrency), true);
+    }
+
+    @Override
+    public void beforeExecution(
+        Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw AbortedException.create("Interrupted waiting for a DynamoDB call slot", e);
+      }
+      executionAttributes.putAttribute(PERMIT, Boolean.TRUE);
+    }
+
+    @Override
+    public void afterExecution(
+        Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+      release(executionAttributes);
+    }
+
+    @Override
+    public void onExecutionFailure(
+        Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+      release(executionAttributes);
+    }
+
+    private void release(ExecutionAttributes executionAttributes) {
+      if (Boolean.TRUE.equals(executionAttributes.getAttribute(PERMIT))) {
+        executionAttributes.putAttribute(PERMIT, Boolean.FALSE);
+        permits.release();
+      }
+    }
+  }
+
+  /** Records the size of every DynamoDB response body, tagged by API operation. */
+  static class ResponseBytesInterceptor implements ExecutionInterceptor {
+    private final NewsMetrics metrics;
+
+    ResponseBytesInterceptor(NewsMetrics metrics) {
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void afterTransmission(
+        Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+      String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+      context
+          .httpResponse()
+          .firstMatchingHeader("Content-Length")
+          .ifPresent(
+              len ->
+                  metrics.record(
+                      "dynamodb.response.bytes",
+                      Long.parseLong(len),
+                      "operation",
+                      operation == null ? "unknown" : operation));
+    }
+  }
 }
@@ -0,0 +1,149 @@
+package com.example.news.controller;
+
+import com.example.news.model.ScoredArticle;
+import com.example.news.service.NewsService;
+import com.example.news.service.QueryPlanner;
+import com.example.news.service.QueryRouter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * The paged article reads under {@code news.execution.mode: blocking} (the default): each request
+ * holds a Tomcat worker thread until its DynamoDB and LLM calls return. {@link
+ * AsyncArticleQueryController} serves the same endpoints without that.
+ */
+@RestController
+@RequestMapping("/api/news")
+@ConditionalOnProperty(
+    name = "news.execution.mode",
+    havingValue = "blocking",
+    matchIfMissing = true)
+public class ArticleQueryController {
+
+  private final NewsService newsService;
+  private final QueryRouter queryRouter;
+
+  public ArticleQueryController(NewsService newsService, QueryRouter queryRouter) {
+    this.newsService = newsService;
+    this.queryRouter = queryRouter;
+  }
+
+  @GetMapping("/v1/category")
+  public ResponseEntity<?> byCategory(
+      @RequestParam String category,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return page(newsService.fetchNewsArticlesByCategory(category, offset, limit), offset);
+  }
+
+  @GetMapping("/v1/source")
+  public ResponseEntity<?> bySource(
+      @RequestParam String source,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return page(newsService.fetchNewsArticlesBySource(source, offset, limit), offset);
+  }
+
+  @GetMapping("/v1/score")
+  public ResponseEntity<?> byScore(
+      @RequestParam double minScore,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return page(newsService.fetchNewsArticlesByScore(minScore, offset, limit), offset);
+  }
+
+  @GetMapping("/v1/search")
+  public ResponseEntity<?> search(
+      @RequestParam String query,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return page(newsService.searchNewsArticles(query, offset, limit), offset);
+  }
+
+  @GetMapping("/v1/nearby")
+  public ResponseEntity<?> nearby(
+      @RequestParam double lat,
+      @RequestParam double lon,
+      @RequestParam(defaultValue = "10") double radiusKm,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return page(
+        newsService.fetchNewsArticlesRelevantNearby(lat, lon, radiusKm, offset, limit), offset);
+  }
+
+  @GetMapping("/v1/filter")
+  public ResponseEntity<?> filter(
+      @RequestParam(required = false) String category,
+      @RequestParam(required = false) String source,
+      @RequestParam(required = false) Double minScore,
+      @RequestParam(required = false) String query,
+      @RequestParam(required = false) Double lat,
+      @RequestParam(required = false) Double lon,
+      @RequestParam(defaultValue = "10") double radiusKm,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    QueryPlanner.Criteria criteria =
+        new QueryPlanner.Criteria(
+            category, source, minScore, query, lat, lon, lat == null ? null : radiusKm);
+    String error = filterError(criteria, lat, lon);
+    if (error != null) return ResponseEntity.badRequest().body(Map.of("error", error));
+    List<ScoredArticle> r = newsService.fetchNewsArticlesMatching(criteria, offset, limit);
+    return ResponseEntity.ok(filterBody(r, offset, newsService.planMatching(criteria)));
+  }
+
+  @GetMapping("/v1/query")
+  public ResponseEntity<?> query(
+      @RequestParam String q,
+      @RequestParam(required = false) Double lat,
+      @RequestParam(required = false) Double lon,
+      @RequestParam(required = false) Double radiusKm,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return ResponseEntity.ok(
+        queryBody(queryRouter.route(q, lat, lon, radiusKm, offset, limit), offset));
+  }
+
+  static ResponseEntity<?> page(List<ScoredArticle> r, int offset) {
+    return ResponseEntity.ok(Map.of("articles", r, "count", r.size(), "offset", offset));
+  }
+
+  /** Why {@code /v1/filter} cannot run {@code criteria}, or null when it can. */
+  static String filterError(QueryPlanner.Criteria criteria, Double lat, Double lon) {
+    if ((lat == null) != (lon == null)) return "lat and lon go together";
+    if (criteria.filters().isEmpty()) {
+      return "give at least one of category, source, minScore, query, lat/lon";
+    }
+    return null;
+  }
+
+  static Map<String, Object> filterBody(List<ScoredArticle> r, int offset, QueryPlanner.Plan plan) {
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("articles", r);
+    body.put("count", r.size());
+    body.put("offset", offset);
+    body.put("plan", plan.steps());
+    return body;
+  }
+
+  static Map<String, Object> queryBody(QueryRouter.RoutedQuery r, int offset) {
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("articles", r.articles());
+    body.put("count", r.articles().size());
+    body.put("offset", offset);
+    body.put("intent", r.intent());
+    body.put("entity", r.entity());
+    body.put("path", r.path());
+    return body;
+  }
+}
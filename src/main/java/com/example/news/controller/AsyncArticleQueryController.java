@@ -0,0 +1,128 @@
+package com.example.news.controller;
+
+import com.example.news.service.ExecutionMode;
+import com.example.news.service.NewsService;
+import com.example.news.service.QueryPlanner;
+import com.example.news.service.QueryRouter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * {@link ArticleQueryController}'s endpoints under {@code news.execution.mode: async}. Handlers
+ * return as soon as their DynamoDB and LLM calls are sent; Spring MVC frees the Tomcat thread and
+ * writes the response when the future completes, so concurrent requests are not capped by the
+ * worker pool.
+ */
+@RestController
+@RequestMapping("/api/news")
+@ConditionalOnProperty(name = "news.execution.mode", havingValue = "async")
+public class AsyncArticleQueryController {
+
+  private final NewsService newsService;
+  private final QueryRouter queryRouter;
+
+  public AsyncArticleQueryController(NewsService newsService, QueryRouter queryRouter) {
+    this.newsService = newsService;
+    this.queryRouter = queryRouter;
+  }
+
+  @GetMapping("/v1/category")
+  public CompletableFuture<ResponseEntity<?>> byCategory(
+      @RequestParam String category,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return newsService
+        .fetchNewsArticlesByCategory(category, offset, limit, ExecutionMode.ASYNC)
+        .thenApply(r -> ArticleQueryController.page(r, offset));
+  }
+
+  @GetMapping("/v1/source")
+  public CompletableFuture<ResponseEntity<?>> bySource(
+      @RequestParam String source,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return newsService
+        .fetchNewsArticlesBySource(source, offset, limit, ExecutionMode.ASYNC)
+        .thenApply(r -> ArticleQueryController.page(r, offset));
+  }
+
+  @GetMapping("/v1/score")
+  public CompletableFuture<ResponseEntity<?>> byScore(
+      @RequestParam double minScore,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return newsService
+        .fetchNewsArticlesByScore(minScore, offset, limit, ExecutionMode.ASYNC)
+        .thenApply(r -> ArticleQueryController.page(r, offset));
+  }
+
+  @GetMapping("/v1/search")
+  public CompletableFuture<ResponseEntity<?>> search(
+      @RequestParam String query,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return newsService
+        .searchNewsArticles(query, offset, limit, ExecutionMode.ASYNC)
+        .thenApply(r -> ArticleQueryController.page(r, offset));
+  }
+
+  @GetMapping("/v1/nearby")
+  public CompletableFuture<ResponseEntity<?>> nearby(
+      @RequestParam double lat,
+      @RequestParam double lon,
+      @RequestParam(defaultValue = "10") double radiusKm,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return newsService
+        .fetchNewsArticlesRelevantNearby(lat, lon, radiusKm, offset, limit, ExecutionMode.ASYNC)
+        .thenApply(r -> ArticleQueryController.page(r, offset));
+  }
+
+  @GetMapping("/v1/filter")
+  public CompletableFuture<ResponseEntity<?>> filter(
+      @RequestParam(required = false) String category,
+      @RequestParam(required = false) String source,
+      @RequestParam(required = false) Double minScore,
+      @RequestParam(required = false) String query,
+      @RequestParam(required = false) Double lat,
+      @RequestParam(required = false) Double lon,
+      @RequestParam(defaultValue = "10") double radiusKm,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    QueryPlanner.Criteria criteria =
+        new QueryPlanner.Criteria(
+            category, source, minScore, query, lat, lon, lat == null ? null : radiusKm);
+    String error = ArticleQueryController.filterError(criteria, lat, lon);
+    if (error != null) {
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(Map.of("error", error)));
+    }
+    QueryPlanner.Plan plan = newsService.planMatching(criteria);
+    return newsService
+        .fetchNewsArticlesMatching(criteria, offset, limit, ExecutionMode.ASYNC)
+        .thenApply(r -> ResponseEntity.ok(ArticleQueryController.filterBody(r, offset, plan)));
+  }
+
+  @GetMapping("/v1/query")
+  public CompletableFuture<ResponseEntity<?>> query(
+      @RequestParam String q,
+      @RequestParam(required = false) Double lat,
+      @RequestParam(required = false) Double lon,
+      @RequestParam(required = false) Double radiusKm,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "5") int limit) {
+    NewsController.checkPage(offset, limit);
+    return queryRouter
+        .route(q, lat, lon, radiusKm, offset, limit, ExecutionMode.ASYNC)
+        .thenApply(r -> ResponseEntity.ok(ArticleQueryController.queryBody(r, offset)));
+  }
+}
@@ -1,57 +1,134 @@
 package com.example.news.controller;
 
-import com.example.news.model.NewsArticle;
-import com.example.news.service.NewsService;
-import java.util.List;
+import com.example.news.service.ArticleStream;
+import com.example.news.service.QueryPlanner;
+import com.example.news.service.SummaryBackfill;
+import com.example.news.service.TrendTracker;
+import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+/**
+ * Endpoints that work the same in every {@code news.execution.mode}: trends, streams and the
+ * summary backfill. The paged article reads are in {@link ArticleQueryController} or {@link
+ * AsyncArticleQueryController}, whichever the mode selects.
+ */
 @RestController
 @RequestMapping("/api/news")
 public class NewsController {
 
-  private final NewsService newsService;
+  /**
+   * Largest page, and deepest offset, a request may ask for. Ranking keeps offset + limit items per
+   * request, so both are bounded; deeper pages should narrow the filters instead.
+   */
+  private static final int MAX_LIMIT = 100;
 
-  public NewsController(NewsService newsService) {
-    this.newsService = newsService;
+  private static final int MAX_OFFSET = 10_000;
+
+  private final TrendTracker trendTracker;
+  private final SummaryBackfill summaryBackfill;
+  private final ArticleStream articleStream;
+
+  public NewsController(
+      TrendTracker trendTracker, SummaryBackfill summaryBackfill, ArticleStream articleStream) {
+    this.trendTracker = trendTracker;
+    this.summaryBackfill = summaryBackfill;
+    this.articleStream = articleStream;
   }
 
-  @GetMapping("/v1/category")
-  public ResponseEntity<?> byCategory(
-      @RequestParam String category, @RequestParam(defaultValue = "5") int limit) {
-    List<NewsArticle> r = newsService.fetchNewsArticlesByCategory(category, limit);
-    return ResponseEntity.ok(Map.of("articles", r, "count", r.size()));
+  @GetMapping("/v1/trending")
+  public ResponseEntity<?> trending(
+      @RequestParam(defaultValue = TrendTracker.HOUR) String window,
+      @RequestParam(required = false) Long asOf,
+      @RequestParam(defaultValue = "10") int limit) {
+    checkPage(0, limit);
+    if (!TrendTracker.HOUR.equals(window) && !TrendTracker.DAY.equals(window)) {
+      return ResponseEntity.badRequest()
+          .body(Map.of("error", "window must be " + TrendTracker.HOUR + " or " + TrendTracker.DAY));
+    }
+    long end = asOf == null ? System.currentTimeMillis() : asOf;
+    return ResponseEntity.ok(trendTracker.trending(window, end, limit));
   }
 
-  @GetMapping("/v1/source")
-  public ResponseEntity<?> bySource(
-      @RequestParam String source, @RequestParam(defaultValue = "5") int limit) {
-    List<NewsArticle> r = newsService.fetchNewsArticlesBySource(source, limit);
-    return ResponseEntity.ok(Map.of("articles", r, "count", r.size()));
+  /**
+   * Server-sent events: the first {@code limit} ranked matches of the same filters as {@code
+   * /v1/filter} as {@code result} events, a {@code live} event, then every new matching article as
+   * an {@code article} event until the client disconnects. Without filters only new articles are
+   * sent, all of them. See {@link ArticleStream}.
+   */
+  @GetMapping("/v1/stream")
+  public ResponseEntity<SseEmitter> stream(
+      @RequestParam(required = false) String category,
+      @RequestParam(required = false) String source,
+      @RequestParam(required = false) Double minScore,
+      @RequestParam(required = false) String query,
+      @RequestParam(required = false) Double lat,
+      @RequestParam(required = false) Double lon,
+      @RequestParam(defaultValue = "10") double radiusKm,
+      @RequestParam(defaultValue = "100") int limit) {
+    checkPage(0, limit);
+    if ((lat == null) != (lon == null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lat and lon go together");
+    }
+    QueryPlanner.Criteria criteria =
+        new QueryPlanner.Criteria(
+            category, source, minScore, query, lat, lon, lat == null ? null : radiusKm);
+    SseEmitter emitter = new SseEmitter(0L);
+    Optional<ArticleStream.Subscription> subscription =
+        articleStream.subscribe(criteria, limit, new SseSink(emitter));
+    if (subscription.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many open streams");
+    }
+    emitter.onCompletion(subscription.get()::close);
+    emitter.onTimeout(subscription.get()::close);
+    emitter.onError(e -> subscription.get().close());
+    return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
   }
 
-  @GetMapping("/v1/score")
-  public ResponseEntity<?> byScore(
-      @RequestParam double minScore, @RequestParam(defaultValue = "5") int limit) {
-    List<NewsArticle> r = newsService.fetchNewsArticlesByScore(minScore, limit);
-    return ResponseEntity.ok(Map.of("articles", r, "count", r.size()));
+  /** Starts summarizing up to {@code limit} unsummarized stories (all when 0) in the background. */
+  @PostMapping("/v1/summaries/backfill")
+  public ResponseEntity<?> startBackfill(@RequestParam(defaultValue = "0") int limit) {
+    boolean started = summaryBackfill.start(limit);
+    return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+        .body(summaryBackfill.report());
   }
 
-  @GetMapping("/v1/search")
-  public ResponseEntity<?> search(
-      @RequestParam String query, @RequestParam(defaultValue = "5") int limit) {
-    List<NewsArticle> r = newsService.searchNewsArticles(query, limit);
-    return ResponseEntity.ok(Map.of("articles", r, "count", r.size()));
+  @GetMapping("/v1/summaries/backfill")
+  public ResponseEntity<?> backfillReport() {
+    return ResponseEntity.ok(summaryBackfill.report());
   }
 
-  @GetMapping("/v1/nearby")
-  public ResponseEntity<?> nearby(
-      @RequestParam double lat,
-      @RequestParam double lon,
-      @RequestParam(defaultValue = "10") double radiusKm,
-      @RequestParam(defaultValue = "5") int limit) {
-    List<NewsArticle> r = newsService.fetchNewsArticlesRelevantNearby(lat, lon, radiusKm, limit);
-    return ResponseEntity.ok(Map.of("articles", r, "count", r.size()));
+  static void checkPage(int offset, int limit) {
+    if (offset < 0 || offset > MAX_OFFSET) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "offset must be between 0 and " + MAX_OFFSET);
+    }
+    if (limit < 0 || limit > MAX_LIMIT) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "limit must be between 0 and " + MAX_LIMIT);
+    }
+  }
+
+  private record SseSink(SseEmitter emitter) implements ArticleStream.Sink {
+    @Override
+    public void send(String event, Object data) throws IOException {
+      emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void comment(String text) throws IOException {
+      emitter.send(SseEmitter.event().comment(text));
+    }
+
+    @Override
+    public void close() {
+      emitter.complete();
+    }
   }
 }
@@ -0,0 +1,20 @@
+package com.example.news.controller;
+
+import java.util.Map;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Rejected requests to this package's endpoints, in the same shape as their other errors. */
+@RestControllerAdvice(basePackageClasses = RejectedRequestHandler.class)
+public class RejectedRequestHandler {
+
+  @ExceptionHandler(ResponseStatusException.class)
+  public ResponseEntity<Map<String, String>> rejected(ResponseStatusException e) {
+    return ResponseEntity.status(e.getStatusCode())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(Map.of("error", String.valueOf(e.getReason())));
+  }
+}
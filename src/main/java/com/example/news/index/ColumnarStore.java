@@ -0,0 +1,362 @@
+package com.example.news.index;
+
+import com.example.news.model.NewsArticle;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntToDoubleFunction;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-optimized columns over the corpus for the filter-and-rank query paths. Each article is a
+ * row: epochs in a {@code long[]}, relevance scores in a {@code double[]} (NaN when absent), the
+ * source as an int id into a dictionary, and categories as one {@link BitSet} of rows per category,
+ * with each row remembering its own sets so re-indexing it touches only those. Selections scan
+ * primitive arrays and return only the ids of the top rows; callers materialize the full articles
+ * for that page alone.
+ *
+ * <p>Sources and categories are matched case-insensitively. Rows of removed articles are reused.
+ * Row counts per category and per source and a histogram of scores are kept up to date so {@link
+ * #estimate} can bound a filter's matches without scanning.
+ */
+@Component
+public class ColumnarStore {
+
+  private static final long NO_EPOCH = Long.MIN_VALUE;
+  private static final int NO_SOURCE = -1;
+  private static final int SCORE_BINS = 100;
+
+  private final Map<String, Integer> rowById = new HashMap<>();
+  private final Map<String, Integer> sourceIds = new HashMap<>();
+  private final Map<String, BitSet> categoryRows = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Deque<Integer> freeRows = new ArrayDeque<>();
+
+  /** Rows per score bin of width {@code 1 / SCORE_BINS}; scores of 1 and above share the last. */
+  private final int[] scoreBins = new int[SCORE_BINS + 1];
+
+  private String[] ids = new String[1024];
+  private long[] epochs = new long[1024];
+  private double[] scores = new double[1024];
+  private int[] sources = new int[1024];
+  private BitSet[][] rowCategories = new BitSet[1024][];
+  private int[] sourceCounts = new int[64];
+  private int rows;
+
+  /** A selected row: the article id and the value it was ranked by. */
+  public record Hit(String id, double key) {}
+
+  /** The top rows of a selection, best first, and how many rows matched the filter overall. */
+  public record Selection(List<Hit> hits, int matched) {}
+
+  /** Column predicates for {@link #estimate} and {@link #filter}; null fields match every row. */
+  public record Filter(String category, String source, Double minScore) {
+    public static Filter category(String category) {
+      return new Filter(category, null, null);
+    }
+
+    public static Filter source(String source) {
+      return new Filter(null, source, null);
+    }
+
+    public static Filter minScore(double minScore) {
+      return new Filter(null, null, minScore);
+    }
+  }
+
+  public void index(NewsArticle article) {
+    if (article == null || article.getId() == null) return;
+    lock.writeLock().lock();
+    try {
+      Integer existing = rowById.get(article.getId());
+      int row;
+      if (existing != null) {
+        row = existing;
+        clearCategoriesLocked(row);
+        uncountLocked(row);
+      } else {
+        row = freeRows.isEmpty() ? rows++ : freeRows.pop();
+        ensureCapacity(row + 1);
+        rowById.put(article.getId(), row);
+      }
+      ids[row] = article.getId();
+      epochs[row] =
+          article.getPublicationEpoch() == null ? NO_EPOCH : article.getPublicationEpoch();
+      scores[row] = article.getRelevanceScore() == null ? Double.NaN : article.getRelevanceScore();
+      sources[row] =
+          article.getSourceName() == null
+              ? NO_SOURCE
+              : sourceIds.computeIfAbsent(key(article.getSourceName()), k -> sourceIds.size());
+      countLocked(row);
+      if (article.getCategory() != null) {
+        Set<BitSet> member = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String c : article.getCategory()) {
+          if (c == null) continue;
+          BitSet rowsInCategory = categoryRows.computeIfAbsent(key(c), k -> new BitSet());
+          rowsInCategory.set(row);
+          member.add(rowsInCategory);
+        }
+        rowCategories[row] = member.toArray(new BitSet[0]);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String id) {
+    lock.writeLock().lock();
+    try {
+      Integer row = rowById.remove(id);
+      if (row == null) return;
+      clearCategoriesLocked(row);
+      uncountLocked(row);
+      ids[row] = null;
+      epochs[row] = NO_EPOCH;
+      scores[row] = Double.NaN;
+      sources[row] = NO_SOURCE;
+      freeRows.push(row);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      rowById.clear();
+      sourceIds.clear();
+      categoryRows.clear();
+      freeRows.clear();
+      Arrays.fill(scoreBins, 0);
+      Arrays.fill(sourceCounts, 0);
+      Arrays.fill(ids, 0, rows, null);
+      Arrays.fill(rowCategories, 0, rows, null);
+      rows = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean contains(String id) {
+    lock.readLock().lock();
+    try {
+      return rowById.containsKey(id);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return rowById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Rows with a relevance score of at least {@code minScore}, highest score first. */
+  public Selection topByScore(double minScore, int k) {
+    TopK<String> top = new TopK<>(k);
+    int matched = 0;
+    lock.readLock().lock();
+    try {
+      double[] s = scores;
+      for (int row = 0, n = rows; row < n; row++) {
+        // NaN (no score, or a free row) never passes the comparison.
+        if (s[row] >= minScore) {
+          matched++;
+          top.offer(s[row], ids[row]);
+        }
+      }
+      return new Selection(hits(top, row -> s[row]), matched);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Newest rows in {@code category}; rows without a publication epoch are skipped. */
+  public Selection newestInCategory(String category, int k) {
+    TopK<String> top = new TopK<>(k);
+    int matched = 0;
+    lock.readLock().lock();
+    try {
+      BitSet members = category == null ? null : categoryRows.get(key(category));
+      long[] e = epochs;
+      if (members != null) {
+        for (int row = members.nextSetBit(0); row >= 0; row = members.nextSetBit(row + 1)) {
+          if (e[row] == NO_EPOCH) continue;
+          matched++;
+          top.offer(e[row], ids[row]);
+        }
+      }
+      return new Selection(hits(top, row -> e[row]), matched);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Newest rows from {@code source}; rows without a publication epoch are skipped. */
+  public Selection newestFromSource(String source, int k) {
+    TopK<String> top = new TopK<>(k);
+    int matched = 0;
+    lock.readLock().lock();
+    try {
+      Integer sourceId = source == null ? null : sourceIds.get(key(source));
+      long[] e = epochs;
+      if (sourceId != null) {
+        int wanted = sourceId;
+        int[] src = sources;
+        for (int row = 0, n = rows; row < n; row++) {
+          if (src[row] != wanted || e[row] == NO_EPOCH) continue;
+          matched++;
+          top.offer(e[row], ids[row]);
+        }
+      }
+      return new Selection(hits(top, row -> e[row]), matched);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Upper bound on the rows matching {@code filter}, from the per-category and per-source counts
+   * and the score histogram: the smallest bound among the fields that are set. Exact for a category
+   * or a source alone; a score bound may include the rest of {@code minScore}'s bin.
+   */
+  public int estimate(Filter filter) {
+    lock.readLock().lock();
+    try {
+      int bound = rowById.size();
+      if (filter.category() != null) {
+        BitSet members = categoryRows.get(key(filter.category()));
+        bound = Math.min(bound, members == null ? 0 : members.cardinality());
+      }
+      if (filter.source() != null) {
+        Integer sourceId = sourceIds.get(key(filter.source()));
+        bound = Math.min(bound, sourceId == null ? 0 : sourceCounts[sourceId]);
+      }
+      if (filter.minScore() != null) {
+        int atLeast = 0;
+        for (int bin = scoreBin(filter.minScore()); bin <= SCORE_BINS; bin++) {
+          atLeast += scoreBins[bin];
+        }
+        bound = Math.min(bound, atLeast);
+      }
+      return bound;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Ids of the rows matching {@code filter}, unordered. With {@code within}, only those ids are
+   * checked; otherwise the category bitset is walked when a category is set, else every row.
+   */
+  public List<String> filter(Filter filter, Set<String> within) {
+    List<String> out = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      BitSet members = null;
+      if (filter.category() != null) {
+        members = categoryRows.get(key(filter.category()));
+        if (members == null) return out;
+      }
+      int wanted = NO_SOURCE;
+      if (filter.source() != null) {
+        Integer sourceId = sourceIds.get(key(filter.source()));
+        if (sourceId == null) return out;
+        wanted = sourceId;
+      }
+      double minScore = filter.minScore() == null ? Double.NaN : filter.minScore();
+      if (within != null) {
+        for (String id : within) {
+          Integer row = rowById.get(id);
+          if (row != null && matchesLocked(row, members, wanted, minScore)) out.add(id);
+        }
+      } else if (members != null) {
+        for (int row = members.nextSetBit(0); row >= 0; row = members.nextSetBit(row + 1)) {
+          if (matchesLocked(row, null, wanted, minScore)) out.add(ids[row]);
+        }
+      } else {
+        for (int row = 0, n = rows; row < n; row++) {
+          if (ids[row] != null && matchesLocked(row, null, wanted, minScore)) out.add(ids[row]);
+        }
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Relevance score for each id, in order; NaN for ids without one or not indexed. */
+  public double[] scores(List<String> idList) {
+    double[] out = new double[idList.size()];
+    lock.readLock().lock();
+    try {
+      for (int i = 0; i < out.length; i++) {
+        Integer row = rowById.get(idList.get(i));
+        out[i] = row == null ? Double.NaN : scores[row];
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Category membership (when {@code members} is given), source id and score checks for a row. */
+  private boolean matchesLocked(int row, BitSet members, int wanted, double minScore) {
+    if (members != null && !members.get(row)) return false;
+    if (wanted != NO_SOURCE && sources[row] != wanted) return false;
+    return Double.isNaN(minScore) || scores[row] >= minScore;
+  }
+
+  private void countLocked(int row) {
+    if (!Double.isNaN(scores[row])) scoreBins[scoreBin(scores[row])]++;
+    int source = sources[row];
+    if (source == NO_SOURCE) return;
+    if (source >= sourceCounts.length) {
+      sourceCounts = Arrays.copyOf(sourceCounts, Math.max(source + 1, sourceCounts.length * 2));
+    }
+    sourceCounts[source]++;
+  }
+
+  private void uncountLocked(int row) {
+    if (!Double.isNaN(scores[row])) scoreBins[scoreBin(scores[row])]--;
+    if (sources[row] != NO_SOURCE) sourceCounts[sources[row]]--;
+  }
+
+  private static int scoreBin(double score) {
+    if (!(score > 0)) return 0;
+    return (int) Math.min(SCORE_BINS, Math.floor(score * SCORE_BINS));
+  }
+
+  /** The selected ids, best first, with their key column read back. Caller holds the lock. */
+  private List<Hit> hits(TopK<String> top, IntToDoubleFunction keyOf) {
+    List<String> selected = top.toSortedList();
+    List<Hit> out = new ArrayList<>(selected.size());
+    for (String id : selected) out.add(new Hit(id, keyOf.applyAsDouble(rowById.get(id))));
+    return out;
+  }
+
+  private void clearCategoriesLocked(int row) {
+    BitSet[] member = rowCategories[row];
+    if (member == null) return;
+    for (BitSet rowsInCategory : member) rowsInCategory.clear(row);
+    rowCategories[row] = null;
+  }
+
+  private void ensureCapacity(int needed) {
+    if (needed <= ids.length) return;
+    int capacity = Math.max(needed, ids.length * 2);
+    ids = Arrays.copyOf(ids, capacity);
+    epochs = Arrays.copyOf(epochs, capacity);
+    scores = Arrays.copyOf(scores, capacity);
+    sources = Arrays.copyOf(sources, capacity);
+    rowCategories = Arrays.copyOf(rowCategories, capacity);
+  }
+
+  private static String key(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
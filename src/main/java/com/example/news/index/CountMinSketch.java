@@ -0,0 +1,68 @@
+package com.example.news.index;
+
+import java.util.*;
+
+/**
+ * Count-min sketch over string keys: {@code depth} rows of {@code width} counters, each key hashed
+ * to one counter per row. Estimates never undercount while every update is non-negative overall;
+ * overcounting is bounded by about {@code 2/width} of the total added, with probability falling off
+ * as {@code 2^-depth}. Memory is fixed at {@code width * depth} ints regardless of how many
+ * distinct keys are seen.
+ *
+ * <p>Not thread-safe; callers synchronize.
+ */
+public final class CountMinSketch {
+
+  private final int width;
+  private final int depth;
+  private final int[] counts;
+
+  public CountMinSketch(int width, int depth) {
+    if (width < 1 || depth < 1) throw new IllegalArgumentException("width and depth must be >= 1");
+    this.width = width;
+    this.depth = depth;
+    this.counts = new int[width * depth];
+  }
+
+  /** Adds {@code n} (which may be negative, to retract an earlier add) to {@code key}. */
+  public void add(String key, int n) {
+    int h = key.hashCode();
+    for (int row = 0; row < depth; row++) counts[row * width + slot(h, row)] += n;
+  }
+
+  public long estimate(String key) {
+    return estimate(List.of(this), key);
+  }
+
+  /**
+   * Estimate for {@code key} summed over several sketches of the same shape, as if they had been
+   * merged: counters are added per row before taking the minimum, which is tighter than summing
+   * each sketch's own estimate.
+   */
+  public static long estimate(Collection<CountMinSketch> sketches, String key) {
+    if (sketches.isEmpty()) return 0;
+    CountMinSketch first = sketches.iterator().next();
+    int h = key.hashCode();
+    long min = Long.MAX_VALUE;
+    for (int row = 0; row < first.depth; row++) {
+      int cell = row * first.width + first.slot(h, row);
+      long sum = 0;
+      for (CountMinSketch s : sketches) sum += s.counts[cell];
+      min = Math.min(min, sum);
+    }
+    return Math.max(0, min);
+  }
+
+  public void clear() {
+    Arrays.fill(counts, 0);
+  }
+
+  private int slot(int hash, int row) {
+    // One 64-bit mix per row, seeded by the row number, gives independent-enough positions.
+    long z = hash + (row + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z ^= z >>> 31;
+    return (int) Long.remainderUnsigned(z, width);
+  }
+}
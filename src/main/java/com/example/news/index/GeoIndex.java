@@ -0,0 +1,202 @@
+package com.example.news.index;
+
+import com.example.news.model.NewsArticle;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.stereotype.Component;
+
+/**
+ * Grid index over article coordinates using fixed one-degree cells (equivalent to a coarse
+ * geohash). Radius queries only visit cells overlapping the query's bounding box, reject points
+ * outside the box before computing the exact haversine distance, and keep the nearest {@code limit}
+ * hits in a bounded {@link TopK} heap.
+ */
+@Component
+public class GeoIndex {
+
+  private static final int LAT_CELLS = 180;
+  private static final int LON_CELLS = 360;
+
+  private final Map<Integer, Map<String, Point>> cells = new HashMap<>();
+  private final Map<String, Point> points = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** An article id, its coordinates and its distance from the query point. */
+  public record Hit(String id, double lat, double lon, double distanceKm) {}
+
+  private record Point(String id, double lat, double lon, int cell) {}
+
+  public void index(NewsArticle article) {
+    if (article == null || article.getId() == null) return;
+    lock.writeLock().lock();
+    try {
+      removeLocked(article.getId());
+      if (article.getLatitude() == null || article.getLongitude() == null) return;
+      double lat = article.getLatitude();
+      double lon = GeoUtils.normalizeLon(article.getLongitude());
+      Point p = new Point(article.getId(), lat, lon, cellOf(lat, lon));
+      points.put(article.getId(), p);
+      cells.computeIfAbsent(p.cell(), k -> new HashMap<>()).put(article.getId(), p);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      cells.clear();
+      points.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return points.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns up to {@code limit} articles within {@code radiusKm}, nearest first. */
+  public List<Hit> nearby(double lat, double lon, double radiusKm, int limit) {
+    if (limit <= 0 || radiusKm < 0) return List.of();
+    GeoUtils.BoundingBox box = GeoUtils.BoundingBox.around(lat, lon, radiusKm);
+    TopK<Hit> nearest = new TopK<>(limit);
+
+    lock.readLock().lock();
+    try {
+      List<Integer> candidates = cellsFor(box);
+      if (candidates.size() > cells.size()) candidates = new ArrayList<>(cells.keySet());
+      for (Integer cell : candidates) {
+        Map<String, Point> bucket = cells.get(cell);
+        if (bucket == null) continue;
+        for (Point p : bucket.values()) {
+          if (!box.contains(p.lat(), p.lon())) continue;
+          double d = GeoUtils.haversineKm(lat, lon, p.lat(), p.lon());
+          if (d > radiusKm) continue;
+          nearest.offer(-d, new Hit(p.id(), p.lat(), p.lon(), d));
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    return nearest.toSortedList();
+  }
+
+  /**
+   * Upper bound on the matches of {@link #nearby}: the points in the cells the query's bounding box
+   * overlaps.
+   */
+  public int estimate(double lat, double lon, double radiusKm) {
+    if (radiusKm < 0) return 0;
+    GeoUtils.BoundingBox box = GeoUtils.BoundingBox.around(lat, lon, radiusKm);
+    lock.readLock().lock();
+    try {
+      List<Integer> candidates = cellsFor(box);
+      if (candidates.size() > cells.size()) return points.size();
+      int bound = 0;
+      for (Integer cell : candidates) {
+        Map<String, Point> bucket = cells.get(cell);
+        if (bucket != null) bound += bucket.size();
+      }
+      return bound;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Distance in km to every article within {@code radiusKm}, unordered and unbounded. With {@code
+   * within}, only those ids are checked; otherwise the cells overlapping the query box are.
+   */
+  public Map<String, Double> distances(
+      double lat, double lon, double radiusKm, Set<String> within) {
+    Map<String, Double> out = new HashMap<>();
+    if (radiusKm < 0) return out;
+    GeoUtils.BoundingBox box = GeoUtils.BoundingBox.around(lat, lon, radiusKm);
+    lock.readLock().lock();
+    try {
+      Collection<Point> candidates;
+      if (within != null) {
+        candidates = new ArrayList<>(within.size());
+        for (String id : within) {
+          Point p = points.get(id);
+          if (p != null) candidates.add(p);
+        }
+      } else {
+        candidates = new ArrayList<>();
+        List<Integer> cellIds = cellsFor(box);
+        if (cellIds.size() > cells.size()) cellIds = new ArrayList<>(cells.keySet());
+        for (Integer cell : cellIds) {
+          Map<String, Point> bucket = cells.get(cell);
+          if (bucket != null) candidates.addAll(bucket.values());
+        }
+      }
+      for (Point p : candidates) {
+        if (!box.contains(p.lat(), p.lon())) continue;
+        double d = GeoUtils.haversineKm(lat, lon, p.lat(), p.lon());
+        if (d <= radiusKm) out.put(p.id(), d);
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static int cellOf(double lat, double lon) {
+    return latCell(lat) * LON_CELLS + lonCell(lon);
+  }
+
+  private static int latCell(double lat) {
+    return Math.min(LAT_CELLS - 1, Math.max(0, (int) Math.floor(lat + 90)));
+  }
+
+  private static int lonCell(double lon) {
+    return Math.min(LON_CELLS - 1, Math.max(0, (int) Math.floor(GeoUtils.normalizeLon(lon) + 180)));
+  }
+
+  private static List<Integer> cellsFor(GeoUtils.BoundingBox box) {
+    int fromLat = latCell(box.minLat());
+    int toLat = latCell(box.maxLat());
+    List<int[]> lonRanges = new ArrayList<>();
+    if (box.allLongitudes()) {
+      lonRanges.add(new int[] {0, LON_CELLS - 1});
+    } else if (box.minLon() <= box.maxLon()) {
+      lonRanges.add(new int[] {lonCell(box.minLon()), lonCell(box.maxLon())});
+    } else {
+      lonRanges.add(new int[] {lonCell(box.minLon()), LON_CELLS - 1});
+      lonRanges.add(new int[] {0, lonCell(box.maxLon())});
+    }
+    List<Integer> out = new ArrayList<>();
+    for (int la = fromLat; la <= toLat; la++) {
+      for (int[] r : lonRanges) {
+        for (int lo = r[0]; lo <= r[1]; lo++) out.add(la * LON_CELLS + lo);
+      }
+    }
+    return out;
+  }
+
+  private void removeLocked(String id) {
+    Point old = points.remove(id);
+    if (old == null) return;
+    Map<String, Point> bucket = cells.get(old.cell());
+    if (bucket == null) return;
+    bucket.remove(id);
+    if (bucket.isEmpty()) cells.remove(old.cell());
+  }
+}
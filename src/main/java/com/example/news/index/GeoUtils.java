@@ -0,0 +1,56 @@
+package com.example.news.index;
+
+public final class GeoUtils {
+
+  public static final double EARTH_RADIUS_KM = 6371;
+
+  private GeoUtils() {}
+
+  public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2)
+                * Math.sin(dLon / 2);
+    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    return EARTH_RADIUS_KM * c;
+  }
+
+  /** Maps any longitude into [-180, 180). */
+  public static double normalizeLon(double lon) {
+    double l = (lon + 180) % 360;
+    if (l < 0) l += 360;
+    return l - 180;
+  }
+
+  /**
+   * Lat/lon box that contains every point within {@code radiusKm} of the center. Longitudes may
+   * wrap across the antimeridian, in which case {@code minLon > maxLon}.
+   */
+  public record BoundingBox(
+      double minLat, double maxLat, double minLon, double maxLon, boolean allLongitudes) {
+
+    public static BoundingBox around(double lat, double lon, double radiusKm) {
+      double angular = radiusKm / EARTH_RADIUS_KM;
+      double dLat = Math.toDegrees(angular);
+      double minLat = lat - dLat;
+      double maxLat = lat + dLat;
+      if (minLat <= -90 || maxLat >= 90 || angular >= Math.PI / 2) {
+        return new BoundingBox(Math.max(minLat, -90), Math.min(maxLat, 90), -180, 180, true);
+      }
+      double dLon = Math.toDegrees(Math.asin(Math.sin(angular) / Math.cos(Math.toRadians(lat))));
+      return new BoundingBox(
+          minLat, maxLat, normalizeLon(lon - dLon), normalizeLon(lon + dLon), false);
+    }
+
+    public boolean contains(double lat, double lon) {
+      if (lat < minLat || lat > maxLat) return false;
+      if (allLongitudes) return true;
+      double l = normalizeLon(lon);
+      return minLon <= maxLon ? l >= minLon && l <= maxLon : l >= minLon || l <= maxLon;
+    }
+  }
+}
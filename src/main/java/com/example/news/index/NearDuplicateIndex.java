@@ -0,0 +1,216 @@
+package com.example.news.index;
+
+import com.example.news.model.NewsArticle;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Clusters near-duplicate articles (the same story syndicated by several sources) by a 64-bit
+ * SimHash of the words of their title and description, title words counting {@value #TITLE_WEIGHT}
+ * times. Two articles are duplicates when their fingerprints differ in at most {@code
+ * news.dedup.maxDistance} bits; each cluster is named by the id of the first article seen in it,
+ * its canonical article.
+ *
+ * <p>Lookups use LSH banding: the fingerprint is cut into {@value #BANDS} bands of 12-13 bits and
+ * each band value keys a bucket of rows. Fingerprints within {@code BANDS - 1} bits of each other
+ * share at least one band exactly, so only those buckets are compared. Per article the index keeps
+ * a {@code long} fingerprint, a canonical id reference, an id map entry and one int per band: about
+ * 100 bytes, or 100 MB per million articles.
+ */
+@Component
+public class NearDuplicateIndex {
+
+  private static final int BANDS = 5;
+  private static final int BAND_BITS = 13;
+  private static final int TITLE_WEIGHT = 3;
+
+  private final int maxDistance;
+  private final Map<String, Integer> rowById = new HashMap<>();
+  private final Deque<Integer> freeRows = new ArrayDeque<>();
+  private final int[][][] buckets = new int[BANDS][1 << BAND_BITS][];
+  private final int[][] bucketSizes = new int[BANDS][1 << BAND_BITS];
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private long[] fingerprints = new long[1024];
+  private String[] canonicalIds = new String[1024];
+  private int rows;
+
+  public NearDuplicateIndex(@Value("${news.dedup.maxDistance:4}") int maxDistance) {
+    // Banding only guarantees a shared band up to BANDS - 1 differing bits.
+    this.maxDistance = Math.max(0, Math.min(BANDS - 1, maxDistance));
+  }
+
+  /**
+   * Adds or refreshes {@code article} and returns the id of its cluster's canonical article (its
+   * own id when it starts a cluster). A {@link NewsArticle#getCanonicalId() canonicalId} already on
+   * the article is kept; otherwise the nearest indexed fingerprint within range decides.
+   */
+  public String index(NewsArticle article) {
+    if (article == null || article.getId() == null) return null;
+    String id = article.getId();
+    long fp = simHash(article.getTitle(), article.getDescription());
+    lock.writeLock().lock();
+    try {
+      Integer existing = rowById.get(id);
+      if (existing != null) {
+        if (fingerprints[existing] == fp) return canonicalIds[existing];
+        removeLocked(id);
+      }
+      String canonical = article.getCanonicalId();
+      if (canonical == null) canonical = fp == 0 ? id : nearestLocked(fp, id);
+      int row = freeRows.isEmpty() ? rows++ : freeRows.pop();
+      ensureCapacity(row + 1);
+      rowById.put(id, row);
+      fingerprints[row] = fp;
+      canonicalIds[row] = canonical;
+      // Empty text says nothing about similarity; such articles stay out of the buckets.
+      if (fp != 0) for (int b = 0; b < BANDS; b++) addToBucket(b, band(fp, b), row);
+      return canonical;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Cluster id for {@code id}: its canonical article's id, or {@code id} itself if unknown. */
+  public String canonicalId(String id) {
+    lock.readLock().lock();
+    try {
+      Integer row = rowById.get(id);
+      return row == null ? id : canonicalIds[row];
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void remove(String id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      rowById.clear();
+      freeRows.clear();
+      for (int b = 0; b < BANDS; b++) {
+        Arrays.fill(buckets[b], null);
+        Arrays.fill(bucketSizes[b], 0);
+      }
+      Arrays.fill(canonicalIds, 0, rows, null);
+      rows = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return rowById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * 64-bit SimHash over the lower-cased words of a title and description. Returns 0 when there are
+   * no words.
+   */
+  public static long simHash(String title, String description) {
+    int[] weights = new int[64];
+    List<String> titleWords = SearchIndex.tokenize(title);
+    List<String> descriptionWords = SearchIndex.tokenize(description);
+    if (titleWords.isEmpty() && descriptionWords.isEmpty()) return 0;
+    // Unigrams only: on text this short, word pairs turn a one-word edit into many changed
+    // features and push syndicated copies apart.
+    for (String w : titleWords) add(weights, hash64(w), TITLE_WEIGHT);
+    for (String w : descriptionWords) add(weights, hash64(w), 1);
+    long fp = 0;
+    for (int bit = 0; bit < 64; bit++) if (weights[bit] > 0) fp |= 1L << bit;
+    return fp == 0 ? 1 : fp;
+  }
+
+  private String nearestLocked(long fp, String id) {
+    String best = id;
+    int bestDistance = maxDistance + 1;
+    for (int b = 0; b < BANDS; b++) {
+      int value = band(fp, b);
+      int[] bucket = buckets[b][value];
+      for (int i = 0, n = bucketSizes[b][value]; i < n; i++) {
+        int row = bucket[i];
+        int d = Long.bitCount(fingerprints[row] ^ fp);
+        if (d < bestDistance) {
+          bestDistance = d;
+          best = canonicalIds[row];
+        }
+      }
+    }
+    return best;
+  }
+
+  private void removeLocked(String id) {
+    Integer row = rowById.remove(id);
+    if (row == null) return;
+    long fp = fingerprints[row];
+    if (fp != 0) for (int b = 0; b < BANDS; b++) removeFromBucket(b, band(fp, b), row);
+    canonicalIds[row] = null;
+    fingerprints[row] = 0;
+    freeRows.push(row);
+  }
+
+  private void addToBucket(int band, int value, int row) {
+    int[] bucket = buckets[band][value];
+    int size = bucketSizes[band][value];
+    if (bucket == null) bucket = buckets[band][value] = new int[2];
+    else if (size == bucket.length) bucket = buckets[band][value] = Arrays.copyOf(bucket, size * 2);
+    bucket[size] = row;
+    bucketSizes[band][value] = size + 1;
+  }
+
+  private void removeFromBucket(int band, int value, int row) {
+    int[] bucket = buckets[band][value];
+    int size = bucketSizes[band][value];
+    for (int i = 0; i < size; i++) {
+      if (bucket[i] == row) {
+        bucket[i] = bucket[size - 1];
+        bucketSizes[band][value] = size - 1;
+        return;
+      }
+    }
+  }
+
+  private void ensureCapacity(int needed) {
+    if (needed <= fingerprints.length) return;
+    int capacity = Math.max(needed, fingerprints.length * 2);
+    fingerprints = Arrays.copyOf(fingerprints, capacity);
+    canonicalIds = Arrays.copyOf(canonicalIds, capacity);
+  }
+
+  /** Bits {@code [13 * band, 13 * band + 13)}; the last band gets the remaining 12. */
+  private static int band(long fp, int band) {
+    return (int) ((fp >>> (band * BAND_BITS)) & ((1 << BAND_BITS) - 1));
+  }
+
+  private static void add(int[] weights, long h, int weight) {
+    for (int bit = 0; bit < 64; bit++) weights[bit] += ((h >>> bit) & 1) != 0 ? weight : -weight;
+  }
+
+  /** FNV-1a over the UTF-16 chars, then a 64-bit finalizer to spread the bits. */
+  private static long hash64(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+    h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return h ^ (h >>> 33);
+  }
+}
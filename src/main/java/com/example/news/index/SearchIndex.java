@@ -0,0 +1,217 @@
+package com.example.news.index;
+
+import com.example.news.model.NewsArticle;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory inverted index over article title and description.
+ *
+ * <p>Queries are tokenized the same way as documents and every query term must match (in either
+ * field). Matches are scored with BM25 per field, weighted 0.7 title / 0.3 description, and
+ * normalized to [0, 1] against the best hit so callers can blend the value with other signals.
+ */
+@Component
+public class SearchIndex {
+
+  private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final double TITLE_WEIGHT = 0.7;
+  private static final double DESCRIPTION_WEIGHT = 0.3;
+
+  private final Map<String, Map<String, Posting>> postings = new HashMap<>();
+  private final Map<String, Doc> docs = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private long totalTitleLength;
+  private long totalDescriptionLength;
+
+  public record Hit(String id, double score) {}
+
+  private static final class Posting {
+    int titleTf;
+    int descriptionTf;
+  }
+
+  /** Lengths for BM25 and the distinct terms, to find the postings again on removal. */
+  private record Doc(int titleLength, int descriptionLength, String[] terms) {}
+
+  public static List<String> tokenize(String text) {
+    if (text == null || text.isBlank()) return List.of();
+    List<String> out = new ArrayList<>();
+    for (String t : TOKEN_SPLIT.split(text.toLowerCase(Locale.ROOT))) {
+      if (!t.isEmpty()) out.add(t);
+    }
+    return out;
+  }
+
+  public void index(NewsArticle article) {
+    if (article == null || article.getId() == null) return;
+    List<String> titleTokens = tokenize(article.getTitle());
+    List<String> descriptionTokens = tokenize(article.getDescription());
+    Set<String> terms = new HashSet<>(titleTokens);
+    terms.addAll(descriptionTokens);
+
+    lock.writeLock().lock();
+    try {
+      removeLocked(article.getId());
+      for (String t : titleTokens) posting(t, article.getId()).titleTf++;
+      for (String t : descriptionTokens) posting(t, article.getId()).descriptionTf++;
+      docs.put(
+          article.getId(),
+          new Doc(titleTokens.size(), descriptionTokens.size(), terms.toArray(new String[0])));
+      totalTitleLength += titleTokens.size();
+      totalDescriptionLength += descriptionTokens.size();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      docs.clear();
+      totalTitleLength = 0;
+      totalDescriptionLength = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return docs.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns every article containing all query terms, unordered, with a normalized score. */
+  public List<Hit> search(String query) {
+    return search(query, null);
+  }
+
+  /**
+   * Like {@link #search(String)} but only over the ids in {@code within} (all articles when null).
+   * Scores are normalized against the best hit among those ids. The intersection is driven from
+   * whichever is smaller, {@code within} or the rarest term's postings.
+   */
+  public List<Hit> search(String query, Set<String> within) {
+    List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+    if (terms.isEmpty()) return List.of();
+
+    lock.readLock().lock();
+    try {
+      if (docs.isEmpty()) return List.of();
+      List<Map<String, Posting>> lists = new ArrayList<>(terms.size());
+      for (String t : terms) {
+        Map<String, Posting> p = postings.get(t);
+        if (p == null) return List.of();
+        lists.add(p);
+      }
+      // Drive the intersection from the rarest term.
+      Map<String, Posting> driver = Collections.min(lists, Comparator.comparingInt(Map::size));
+
+      int n = docs.size();
+      double avgTitle = Math.max(1.0, (double) totalTitleLength / n);
+      double avgDescription = Math.max(1.0, (double) totalDescriptionLength / n);
+      double[] idf = new double[lists.size()];
+      for (int i = 0; i < lists.size(); i++) {
+        int df = lists.get(i).size();
+        idf[i] = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+      }
+
+      Collection<String> candidates = driver.keySet();
+      if (within != null && within.size() < candidates.size()) candidates = within;
+
+      List<String> ids = new ArrayList<>();
+      List<Double> raw = new ArrayList<>();
+      double max = 0;
+      outer:
+      for (String id : candidates) {
+        if (within != null && candidates != within && !within.contains(id)) continue;
+        Doc doc = docs.get(id);
+        if (doc == null) continue;
+        double score = 0;
+        for (int i = 0; i < lists.size(); i++) {
+          Posting p = lists.get(i).get(id);
+          if (p == null) continue outer;
+          score +=
+              idf[i]
+                  * (TITLE_WEIGHT * bm25(p.titleTf, doc.titleLength(), avgTitle)
+                      + DESCRIPTION_WEIGHT
+                          * bm25(p.descriptionTf, doc.descriptionLength(), avgDescription));
+        }
+        ids.add(id);
+        raw.add(score);
+        max = Math.max(max, score);
+      }
+
+      List<Hit> out = new ArrayList<>(ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        out.add(new Hit(ids.get(i), max > 0 ? raw.get(i) / max : 0.0));
+      }
+      return out;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Upper bound on the matches of {@link #search(String)}: the document frequency of the rarest
+   * query term, 0 when any term is not indexed. -1 for a query without terms.
+   */
+  public int estimate(String query) {
+    Set<String> terms = new LinkedHashSet<>(tokenize(query));
+    if (terms.isEmpty()) return -1;
+    lock.readLock().lock();
+    try {
+      int bound = docs.size();
+      for (String t : terms) {
+        Map<String, Posting> p = postings.get(t);
+        bound = Math.min(bound, p == null ? 0 : p.size());
+      }
+      return bound;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static double bm25(int tf, int length, double avgLength) {
+    if (tf == 0) return 0;
+    return tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+  }
+
+  private Posting posting(String term, String id) {
+    return postings
+        .computeIfAbsent(term, k -> new HashMap<>())
+        .computeIfAbsent(id, k -> new Posting());
+  }
+
+  private void removeLocked(String id) {
+    Doc old = docs.remove(id);
+    if (old == null) return;
+    for (String t : old.terms()) {
+      Map<String, Posting> p = postings.get(t);
+      if (p == null) continue;
+      p.remove(id);
+      if (p.isEmpty()) postings.remove(t);
+    }
+    totalTitleLength -= old.titleLength();
+    totalDescriptionLength -= old.descriptionLength();
+  }
+}
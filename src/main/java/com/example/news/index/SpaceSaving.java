@@ -0,0 +1,67 @@
+package com.example.news.index;
+
+import java.util.*;
+
+/**
+ * Space-saving heavy hitters: at most {@code capacity} counters. A new key arriving when all are
+ * taken replaces the smallest counter and inherits its count, so any key whose true frequency is
+ * above {@code total / capacity} is guaranteed to be held. Counts are upper bounds; pair with
+ * {@link CountMinSketch} when a tighter estimate is wanted.
+ *
+ * <p>Not thread-safe; callers synchronize.
+ */
+public final class SpaceSaving {
+
+  private final int capacity;
+  private final Map<String, long[]> counters = new HashMap<>();
+
+  public SpaceSaving(int capacity) {
+    this.capacity = Math.max(1, capacity);
+  }
+
+  public void add(String key, long n) {
+    long[] c = counters.get(key);
+    if (c != null) {
+      c[0] += n;
+      return;
+    }
+    if (counters.size() < capacity) {
+      counters.put(key, new long[] {n});
+      return;
+    }
+    String smallest = null;
+    long min = Long.MAX_VALUE;
+    for (Map.Entry<String, long[]> e : counters.entrySet()) {
+      if (e.getValue()[0] < min) {
+        min = e.getValue()[0];
+        smallest = e.getKey();
+      }
+    }
+    counters.remove(smallest);
+    counters.put(key, new long[] {min + n});
+  }
+
+  /** Retracts an earlier add. Keys no longer held are ignored; counts stop at zero. */
+  public void remove(String key, long n) {
+    long[] c = counters.get(key);
+    if (c != null) c[0] = Math.max(0, c[0] - n);
+  }
+
+  public Set<String> keys() {
+    return Collections.unmodifiableSet(counters.keySet());
+  }
+
+  /** Held count for {@code key} (an upper bound on its true count), or 0 if not held. */
+  public long count(String key) {
+    long[] c = counters.get(key);
+    return c == null ? 0 : c[0];
+  }
+
+  public int size() {
+    return counters.size();
+  }
+
+  public void clear() {
+    counters.clear();
+  }
+}
@@ -0,0 +1,116 @@
+package com.example.news.index;
+
+import java.util.*;
+
+/**
+ * Keeps the {@code k} items with the largest {@code double} keys seen so far in a bounded min-heap,
+ * so selecting a page out of {@code n} matches costs O(n log k) and allocates only O(k). Keys are
+ * primitives (epochs, scores, negated distances) to avoid boxing and comparator chains; NaN keys
+ * sort last. Equal keys keep their insertion order. The heap grows as items arrive, so a large
+ * {@code k} over few matches costs only what is matched.
+ */
+public final class TopK<T> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int k;
+  private double[] keys;
+  private long[] seqs;
+  private Object[] items;
+  private int size;
+  private long seq;
+
+  public TopK(int k) {
+    this.k = Math.max(0, k);
+    int capacity = Math.min(this.k, INITIAL_CAPACITY);
+    this.keys = new double[capacity];
+    this.seqs = new long[capacity];
+    this.items = new Object[capacity];
+  }
+
+  /** Offers an item; returns false when it was rejected without entering the heap. */
+  public boolean offer(double key, T item) {
+    if (Double.isNaN(key)) key = Double.NEGATIVE_INFINITY;
+    long s = seq++;
+    if (size < k) {
+      if (size == keys.length) grow();
+      keys[size] = key;
+      seqs[size] = s;
+      items[size] = item;
+      siftUp(size++);
+      return true;
+    }
+    if (k == 0 || !beats(key, s, keys[0], seqs[0])) return false;
+    keys[0] = key;
+    seqs[0] = s;
+    items[0] = item;
+    siftDown(0);
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Returns the retained items ordered by key, largest first. */
+  @SuppressWarnings("unchecked")
+  public List<T> toSortedList() {
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> beats(keys[a], seqs[a], keys[b], seqs[b]) ? -1 : 1);
+    List<T> out = new ArrayList<>(size);
+    for (Integer i : order) out.add((T) items[i]);
+    return out;
+  }
+
+  /** {@link #toSortedList()} without the first {@code offset} entries. */
+  public List<T> page(int offset) {
+    List<T> all = toSortedList();
+    return offset <= 0 ? all : all.subList(Math.min(offset, all.size()), all.size());
+  }
+
+  private void grow() {
+    int capacity = (int) Math.min(k, 2L * keys.length);
+    keys = Arrays.copyOf(keys, capacity);
+    seqs = Arrays.copyOf(seqs, capacity);
+    items = Arrays.copyOf(items, capacity);
+  }
+
+  private static boolean beats(double key, long seq, double otherKey, long otherSeq) {
+    return key > otherKey || (key == otherKey && seq < otherSeq);
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!beats(keys[parent], seqs[parent], keys[i], seqs[i])) break;
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      int left = 2 * i + 1;
+      if (left >= size) return;
+      int right = left + 1;
+      int smallest = left;
+      if (right < size && beats(keys[left], seqs[left], keys[right], seqs[right])) smallest = right;
+      if (!beats(keys[i], seqs[i], keys[smallest], seqs[smallest])) return;
+      swap(i, smallest);
+      i = smallest;
+    }
+  }
+
+  private void swap(int a, int b) {
+    double k0 = keys[a];
+    keys[a] = keys[b];
+    keys[b] = k0;
+    long s0 = seqs[a];
+    seqs[a] = seqs[b];
+    seqs[b] = s0;
+    Object i0 = items[a];
+    items[a] = items[b];
+    items[b] = i0;
+  }
+}
@@ -1,108 +1,468 @@
 package com.example.news.loader;
 
 import com.example.news.model.NewsArticle;
+import com.example.news.repository.CorpusSnapshots;
 import com.example.news.repository.NewsRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+/**
+ * Loads {@code .json} (one array) and {@code .jsonl} (one object per line) files from {@code
+ * loader.dataDir} into the repository, incrementally.
+ *
+ * <p>An {@link IngestManifest} remembers each file's size, modification time and checksum, so an
+ * untouched file is skipped without being opened, and a {@code .jsonl} file that only grew is read
+ * from where the last run stopped. Within a file that is re-read, records whose content hash
+ * matches what was last written are not written again. Records without an {@code id} get one
+ * derived from their URL, so re-reading never creates duplicates. The manifest is only trusted if a
+ * sample of the articles it records is still in the table: a new or wiped table (a restarted
+ * in-memory DynamoDB Local, another endpoint) is loaded from scratch. Each written record gets the
+ * {@link NewsArticle#getCanonicalId() canonicalId} of the story it near-duplicates, or its own id.
+ * With {@code loader.watch} the directory is then watched and new or changed files are ingested as
+ * they appear.
+ *
+ * <p>Before ingesting, the repository is warmed from the {@link CorpusSnapshots} snapshot when
+ * there is a usable one, else from a full table scan; once ingest is done a fresh snapshot is
+ * written in the background.
+ */
 @Component
 public class DataLoader implements CommandLineRunner {
 
+  /** Articles handed to a writer at once; matches the BatchWriteItem request cap. */
+  static final int BATCH_SIZE = 25;
+
+  /** The manifest journal is also flushed every this many batches, so a crash loses little. */
+  private static final int CHECKPOINT_BATCHES = 200;
+
+  /** Recorded articles looked up in the table before the manifest is trusted. */
+  private static final int MANIFEST_SAMPLE = 32;
+
+  /** Quiet period after a change event before reading, so writers can finish the file. */
+  private static final long WATCH_SETTLE_MS = 500;
+
   private final NewsRepository repo;
+  private final CorpusSnapshots snapshots;
   private final ObjectMapper mapper = new ObjectMapper();
+  private final int writers;
+  private final Path dataDir;
+  private final Path manifestPath;
+  private final boolean watch;
+  private IngestManifest manifest;
+
+  /** Counters for one ingest pass. */
+  private static final class Stats {
+    int files;
+    int unchangedFiles;
+    final AtomicLong read = new AtomicLong();
+    final AtomicLong skipped = new AtomicLong();
+    final AtomicLong written = new AtomicLong();
+    long duplicates;
+  }
 
-  public DataLoader(NewsRepository repo) {
+  public DataLoader(
+      NewsRepository repo,
+      CorpusSnapshots snapshots,
+      @Value("${loader.writers:4}") int writers,
+      @Value("${loader.dataDir:data}") String dataDir,
+      @Value("${loader.manifest:data/.ingest-manifest}") String manifest,
+      @Value("${loader.watch:false}") boolean watch) {
     this.repo = repo;
+    this.snapshots = snapshots;
+    this.writers = Math.max(1, writers);
+    this.dataDir = Path.of(dataDir);
+    this.manifestPath = Path.of(manifest);
+    this.watch = watch;
   }
 
   @Override
   public void run(String... args) throws Exception {
-    File dataDir = new File("data");
-    if (!dataDir.exists()) {
-      System.out.println("No data dir found at ./data — skipping loader.");
+    if (!snapshots.restore()) {
+      long start = System.nanoTime();
+      repo.rebuildIndexes();
+      System.out.printf(
+          "Search and geo indexes warmed from existing table contents in %d ms.%n",
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    if (!Files.isDirectory(dataDir)) {
+      System.out.println("No data dir found at ./" + dataDir + " — skipping loader.");
+    } else {
+      manifest = IngestManifest.load(manifestPath);
+      verifyManifest();
+      ingest(dataFiles());
+      if (watch) startWatcher();
+    }
+    snapshots.startWriter();
+  }
+
+  /**
+   * Clears the manifest unless every article in a random sample of the ones it records is in the
+   * table, since it otherwise describes a table that is gone.
+   */
+  private void verifyManifest() {
+    List<String> sample = manifest.sampleArticleIds(MANIFEST_SAMPLE);
+    if (sample.isEmpty()) return;
+    int stored = repo.storedIds(sample).size();
+    if (stored < sample.size()) {
+      System.out.printf(
+          "Ingest manifest does not match the table (%d of %d sampled articles found); ingesting"
+              + " every file again.%n",
+          stored, sample.size());
+      manifest.clear();
+    }
+  }
+
+  /** Ingests the given files and reports what was read, skipped and written. */
+  private synchronized void ingest(List<Path> files) throws Exception {
+    resetPeakHeap();
+    long start = System.nanoTime();
+    Stats stats = new Stats();
+    // Bounded hand-off: when every writer is busy and the queue is full the parsing thread runs the
+    // batch itself, so at most (3 * writers + 1) batches are held in memory at any time: one per
+    // writer, 2 * writers queued and the one the parsing thread is writing or filling.
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            writers,
+            writers,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(writers * 2),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    try {
+      for (Path f : files) ingestFile(f, pool, stats);
+    } finally {
+      pool.shutdown();
+      manifest.save();
+    }
+
+    double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+    System.out.printf(
+        "Data loader finished: %d files (%d unchanged), %d articles read, %d unchanged, %d written"
+            + " (%d near-duplicates) in %.2fs (%.0f articles/sec, %d writers, peak heap %d MB).%n",
+        stats.files,
+        stats.unchangedFiles,
+        stats.read.get(),
+        stats.skipped.get(),
+        stats.written.get(),
+        stats.duplicates,
+        seconds,
+        stats.read.get() / seconds,
+        writers,
+        peakHeapBytes() / (1024 * 1024));
+  }
+
+  private List<Path> dataFiles() throws IOException {
+    try (Stream<Path> s = Files.list(dataDir)) {
+      return s.filter(DataLoader::isDataFile).sorted().toList();
+    }
+  }
+
+  private static boolean isDataFile(Path p) {
+    String name = p.getFileName().toString();
+    return (name.endsWith(".json") || name.endsWith(".jsonl")) && Files.isRegularFile(p);
+  }
+
+  private void ingestFile(Path file, ExecutorService pool, Stats stats) throws Exception {
+    String name = file.getFileName().toString();
+    long size = Files.size(file);
+    long modified = Files.getLastModifiedTime(file).toMillis();
+    IngestManifest.FileState previous = manifest.file(name).orElse(null);
+    stats.files++;
+    if (previous != null
+        && previous.size() == size
+        && previous.lastModified() == modified
+        && previous.offset() == size) {
+      stats.unchangedFiles++;
       return;
     }
-    File[] files = dataDir.listFiles((d, name) -> name.endsWith(".json"));
-    if (files == null) return;
-    for (File f : files) {
-      JsonNode root = mapper.readTree(f);
-      if (root.isArray()) {
-        for (JsonNode node : root) {
-          NewsArticle.NewsArticleBuilder b = NewsArticle.builder();
-
-          String id = node.path("id").asText(null);
-          if (id == null || id.isBlank()) id = UUID.randomUUID().toString();
-          b.id(id);
-
-          b.title(node.path("title").asText(null));
-          b.description(node.path("description").asText(null));
-          b.url(node.path("url").asText(null));
-
-          // publication_date can be ISO string or epoch. We normalize to epoch millis.
-          Long publicationEpoch = null;
-          if (node.has("publication_date") && !node.path("publication_date").isNull()) {
-            String pd = node.path("publication_date").asText(null);
-            if (pd != null && !pd.isBlank()) {
-              // Try to parse as ISO first
-              try {
-                Instant ins = Instant.parse(pd);
-                publicationEpoch = ins.toEpochMilli();
-              } catch (DateTimeParseException ex) {
-                // Maybe it's numeric epoch (seconds or millis)
-                try {
-                  long v = Long.parseLong(pd);
-                  // Heuristic: if v has 10 digits -> seconds, convert to millis
-                  if (String.valueOf(v).length() == 10) {
-                    publicationEpoch = v * 1000L;
-                  } else {
-                    publicationEpoch = v;
+
+    List<Future<?>> pending = new ArrayList<>();
+    long offset;
+    if (name.endsWith(".jsonl")) {
+      // Append-only drops resume after the last complete line already ingested.
+      long from =
+          previous != null
+                  && size >= previous.offset()
+                  && previous.sha256().equals(IngestManifest.sha256(file, previous.offset()))
+              ? previous.offset()
+              : 0;
+      offset = streamLines(file, from, pool, pending, stats);
+    } else {
+      if (previous != null && previous.sha256().equals(IngestManifest.sha256(file, size))) {
+        manifest.putFile(
+            name, new IngestManifest.FileState(size, modified, size, previous.sha256()));
+        stats.unchangedFiles++;
+        return;
+      }
+      streamArray(file, pool, pending, stats);
+      offset = size;
+    }
+    for (Future<?> fut : pending) fut.get();
+    manifest.putFile(
+        name,
+        new IngestManifest.FileState(size, modified, offset, IngestManifest.sha256(file, offset)));
+  }
+
+  /** Streams one JSON array file, submitting changed articles in {@link #BATCH_SIZE} chunks. */
+  private void streamArray(Path file, ExecutorService pool, List<Future<?>> pending, Stats stats)
+      throws IOException {
+    Batcher batcher = new Batcher(pool, pending, stats);
+    try (JsonParser parser = mapper.getFactory().createParser(file.toFile())) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) return;
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        batcher.add(mapper.readTree(parser));
+      }
+    }
+    batcher.flush();
+  }
+
+  /**
+   * Streams a JSON-lines file from byte {@code from}, submitting changed articles in {@link
+   * #BATCH_SIZE} chunks. A trailing line without a newline may still be being written and is left
+   * for the next pass. Returns the offset just past the last complete line.
+   */
+  private long streamLines(
+      Path file, long from, ExecutorService pool, List<Future<?>> pending, Stats stats)
+      throws IOException {
+    Batcher batcher = new Batcher(pool, pending, stats);
+    long offset = from;
+    try (InputStream in = Files.newInputStream(file)) {
+      in.skipNBytes(from);
+      ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+      byte[] buf = new byte[64 * 1024];
+      for (int n; (n = in.read(buf)) > 0; ) {
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+          if (buf[i] != '\n') continue;
+          line.write(buf, start, i - start);
+          offset += line.size() + 1;
+          JsonNode node = mapper.readTree(line.toByteArray());
+          line.reset();
+          start = i + 1;
+          if (node != null && !node.isMissingNode()) batcher.add(node);
+        }
+        line.write(buf, start, n - start);
+      }
+    }
+    batcher.flush();
+    return offset;
+  }
+
+  /** Collects changed records into batches and records their hashes once written. */
+  private final class Batcher {
+    private final ExecutorService pool;
+    private final List<Future<?>> pending;
+    private final Stats stats;
+    private List<NewsArticle> batch = new ArrayList<>(BATCH_SIZE);
+    private List<String> hashes = new ArrayList<>(BATCH_SIZE);
+    private int batches;
+
+    Batcher(ExecutorService pool, List<Future<?>> pending, Stats stats) {
+      this.pool = pool;
+      this.pending = pending;
+      this.stats = stats;
+    }
+
+    void add(JsonNode node) throws IOException {
+      stats.read.incrementAndGet();
+      String hash = IngestManifest.recordHash(mapper.writeValueAsBytes(node));
+      NewsArticle article = toArticle(node);
+      if (manifest.unchanged(article.getId(), hash)) {
+        stats.skipped.incrementAndGet();
+        return;
+      }
+      String canonical = repo.assignCanonicalId(article);
+      article.setCanonicalId(canonical);
+      if (!article.getId().equals(canonical)) stats.duplicates++;
+      batch.add(article);
+      hashes.add(hash);
+      if (batch.size() == BATCH_SIZE) flush();
+    }
+
+    void flush() {
+      if (batch.isEmpty()) return;
+      List<NewsArticle> chunk = batch;
+      List<String> chunkHashes = hashes;
+      pending.add(
+          pool.submit(
+              () -> {
+                repo.saveAll(chunk);
+                for (int i = 0; i < chunk.size(); i++) {
+                  manifest.recordArticle(chunk.get(i).getId(), chunkHashes.get(i));
+                }
+                stats.written.addAndGet(chunk.size());
+              }));
+      batch = new ArrayList<>(BATCH_SIZE);
+      hashes = new ArrayList<>(BATCH_SIZE);
+      if (++batches % CHECKPOINT_BATCHES == 0) manifest.checkpoint();
+    }
+  }
+
+  /** Watches {@link #dataDir} on a daemon thread and ingests new or modified data files. */
+  private void startWatcher() throws IOException {
+    WatchService service = dataDir.getFileSystem().newWatchService();
+    dataDir.register(
+        service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    Thread t =
+        new Thread(
+            () -> {
+              try (service) {
+                while (true) {
+                  Set<Path> changed = new TreeSet<>();
+                  collect(service.take(), changed);
+                  // Keep draining until the directory has been quiet for a moment.
+                  for (WatchKey next;
+                      (next = service.poll(WATCH_SETTLE_MS, TimeUnit.MILLISECONDS)) != null; ) {
+                    collect(next, changed);
+                  }
+                  // The manifest's own saves land here too but are not data files.
+                  if (changed.isEmpty()) continue;
+                  try {
+                    ingest(new ArrayList<>(changed));
+                  } catch (Exception e) {
+                    // Typically a file still being written; its next change event retries it.
+                    System.out.println("Ingest of " + changed + " failed: " + e.getMessage());
                   }
-                } catch (NumberFormatException nfe) {
-                  // fallback to now
-                  publicationEpoch = Instant.now().toEpochMilli();
                 }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } catch (IOException e) {
+                System.out.println("Data dir watcher stopped: " + e.getMessage());
               }
+            },
+            "data-watcher");
+    t.setDaemon(true);
+    t.start();
+    System.out.println("Watching ./" + dataDir + " for new data files.");
+  }
+
+  private void collect(WatchKey key, Set<Path> changed) throws IOException {
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        changed.addAll(dataFiles());
+      } else if (event.context() instanceof Path p && isDataFile(dataDir.resolve(p))) {
+        changed.add(dataDir.resolve(p));
+      }
+    }
+    key.reset();
+  }
+
+  private NewsArticle toArticle(JsonNode node) {
+    NewsArticle.NewsArticleBuilder b = NewsArticle.builder();
+
+    String id = node.path("id").asText(null);
+    if (id == null || id.isBlank()) id = derivedId(node);
+    b.id(id);
+
+    b.title(node.path("title").asText(null));
+    b.description(node.path("description").asText(null));
+    b.url(node.path("url").asText(null));
+
+    // publication_date can be ISO string or epoch. We normalize to epoch millis.
+    Long publicationEpoch = null;
+    if (node.has("publication_date") && !node.path("publication_date").isNull()) {
+      String pd = node.path("publication_date").asText(null);
+      if (pd != null && !pd.isBlank()) {
+        // Try to parse as ISO first; a timestamp without an offset is taken as UTC.
+        try {
+          publicationEpoch = parseIsoMillis(pd);
+        } catch (DateTimeParseException ex) {
+          // Maybe it's numeric epoch (seconds or millis)
+          try {
+            long v = Long.parseLong(pd);
+            // Heuristic: if v has 10 digits -> seconds, convert to millis
+            if (String.valueOf(v).length() == 10) {
+              publicationEpoch = v * 1000L;
             } else {
-              publicationEpoch = Instant.now().toEpochMilli();
+              publicationEpoch = v;
             }
-          } else {
+          } catch (NumberFormatException nfe) {
+            // fallback to now
             publicationEpoch = Instant.now().toEpochMilli();
           }
-          b.publicationEpoch(publicationEpoch);
+        }
+      } else {
+        publicationEpoch = Instant.now().toEpochMilli();
+      }
+    } else {
+      publicationEpoch = Instant.now().toEpochMilli();
+    }
+    b.publicationEpoch(publicationEpoch);
 
-          b.sourceName(node.path("source_name").asText(null));
+    b.sourceName(node.path("source_name").asText(null));
 
-          if (node.has("category") && node.get("category").isArray()) {
-            List<String> cats = new ArrayList<>();
-            node.get("category").forEach(c -> cats.add(c.asText()));
-            b.category(cats);
-          }
+    if (node.has("category") && node.get("category").isArray()) {
+      List<String> cats = new ArrayList<>();
+      node.get("category").forEach(c -> cats.add(c.asText()));
+      b.category(cats);
+    }
 
-          if (node.has("relevance_score") && node.path("relevance_score").isNumber()) {
-            b.relevanceScore(node.get("relevance_score").asDouble());
-          }
+    if (node.has("relevance_score") && node.path("relevance_score").isNumber()) {
+      b.relevanceScore(node.get("relevance_score").asDouble());
+    }
 
-          if (node.has("latitude") && node.path("latitude").isNumber()) {
-            b.latitude(node.get("latitude").asDouble());
-          }
+    if (node.has("latitude") && node.path("latitude").isNumber()) {
+      b.latitude(node.get("latitude").asDouble());
+    }
 
-          if (node.has("longitude") && node.path("longitude").isNumber()) {
-            b.longitude(node.get("longitude").asDouble());
-          }
+    if (node.has("longitude") && node.path("longitude").isNumber()) {
+      b.longitude(node.get("longitude").asDouble());
+    }
 
-          NewsArticle a = b.build();
-          repo.save(a);
-        }
-      }
+    return b.build();
+  }
+
+  /**
+   * Id for a record that has none: a name-based UUID of its URL, or of the whole record when it has
+   * no URL either, so the same article always maps to the same id.
+   */
+  static String derivedId(JsonNode node) {
+    String url = node.path("url").asText(null);
+    String name = url == null || url.isBlank() ? "record:" + node : "url:" + url.trim();
+    return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  private static long parseIsoMillis(String value) {
+    try {
+      return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+  }
+
+  private static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+    }
+  }
+
+  private static long peakHeapBytes() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
     }
-    System.out.println("Data loader finished.");
+    return peak;
   }
 }
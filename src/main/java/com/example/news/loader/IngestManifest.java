@@ -0,0 +1,209 @@
+package com.example.news.loader;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * What {@link DataLoader} has already ingested, kept in local files so restarts only do new work.
+ * Per data file: size, modification time, how many leading bytes were fully ingested and a SHA-256
+ * of those bytes. Per article id: a hash of the source record last written, so unchanged records
+ * are skipped when a file is re-read.
+ *
+ * <p>Changes are appended to a journal next to the manifest ({@code <manifest>.journal}), one JSON
+ * line each, so a checkpoint only flushes what is new. {@link #save()} folds the journal into the
+ * manifest once it holds at least half as many entries as there are live ones, keeping the cost of
+ * rewrites proportional to the work done. The manifest is written by write-and-rename, and a torn
+ * last journal line is ignored, so a crash loses at most the entries since the last flush.
+ */
+public class IngestManifest {
+
+  /** A data file as of its last ingest; {@code sha256} covers bytes {@code [0, offset)}. */
+  public record FileState(long size, long lastModified, long offset, String sha256) {}
+
+  private record Snapshot(Map<String, FileState> files, Map<String, String> articles) {}
+
+  /** One journal line: a file's new state, or an article's new record hash. */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private record Entry(String file, FileState state, String id, String hash) {}
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final Path path;
+  private final Path journalPath;
+  private final Map<String, FileState> files = new ConcurrentHashMap<>();
+  private final Map<String, String> articles = new ConcurrentHashMap<>();
+  private Writer journal;
+  private long journalEntries;
+
+  private IngestManifest(Path path) {
+    this.path = path;
+    this.journalPath = path.resolveSibling(path.getFileName() + ".journal");
+  }
+
+  /** Reads the manifest at {@code path} and replays its journal; missing files start empty. */
+  public static IngestManifest load(Path path) {
+    IngestManifest m = new IngestManifest(path);
+    if (Files.exists(path)) {
+      try {
+        Snapshot s = MAPPER.readValue(path.toFile(), Snapshot.class);
+        if (s.files() != null) m.files.putAll(s.files());
+        if (s.articles() != null) m.articles.putAll(s.articles());
+      } catch (IOException e) {
+        System.out.println("Ignoring unreadable ingest manifest " + path + ": " + e.getMessage());
+      }
+    }
+    if (Files.exists(m.journalPath)) {
+      try (BufferedReader in = Files.newBufferedReader(m.journalPath, StandardCharsets.UTF_8)) {
+        for (String line; (line = in.readLine()) != null; ) {
+          Entry e = MAPPER.readValue(line, Entry.class);
+          if (e.file() != null) m.files.put(e.file(), e.state());
+          if (e.id() != null) m.articles.put(e.id(), e.hash());
+          m.journalEntries++;
+        }
+      } catch (IOException e) {
+        // A line torn by a crash; everything before it was applied.
+        System.out.println("Ingest manifest journal ends early: " + e.getMessage());
+      }
+    }
+    return m;
+  }
+
+  public Optional<FileState> file(String name) {
+    return Optional.ofNullable(files.get(name));
+  }
+
+  public void putFile(String name, FileState state) {
+    if (!state.equals(files.put(name, state))) append(new Entry(name, state, null, null));
+  }
+
+  /** True if {@code id} was last written from a record with this hash. */
+  public boolean unchanged(String id, String hash) {
+    return hash.equals(articles.get(id));
+  }
+
+  public void recordArticle(String id, String hash) {
+    if (!hash.equals(articles.put(id, hash))) append(new Entry(null, null, id, hash));
+  }
+
+  public int articleCount() {
+    return articles.size();
+  }
+
+  /** Up to {@code n} recorded article ids, picked at random. */
+  public List<String> sampleArticleIds(int n) {
+    List<String> sample = new ArrayList<>(Math.min(n, articles.size()));
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int seen = 0;
+    for (String id : articles.keySet()) {
+      seen++;
+      if (sample.size() < n) {
+        sample.add(id);
+      } else {
+        int i = random.nextInt(seen);
+        if (i < n) sample.set(i, id);
+      }
+    }
+    return sample;
+  }
+
+  /** Forgets everything, as if there had never been a manifest. */
+  public synchronized void clear() {
+    files.clear();
+    articles.clear();
+    compact();
+  }
+
+  /** Flushes the journal; cheap enough to call every few batches. */
+  public synchronized void checkpoint() {
+    if (journal == null) return;
+    try {
+      journal.flush();
+    } catch (IOException e) {
+      // Only costs a re-check of the same records on the next start.
+      System.out.println("Could not flush ingest manifest journal: " + e.getMessage());
+    }
+  }
+
+  /** Flushes the journal, and folds it into the manifest once it has grown large enough. */
+  public synchronized void save() {
+    checkpoint();
+    if (journalEntries > 0 && journalEntries * 2 >= files.size() + articles.size()) compact();
+  }
+
+  private synchronized void append(Entry entry) {
+    try {
+      if (journal == null) {
+        Files.createDirectories(journalPath.toAbsolutePath().getParent());
+        journal =
+            Files.newBufferedWriter(
+                journalPath,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+      }
+      journal.write(MAPPER.writeValueAsString(entry));
+      journal.write('\n');
+      journalEntries++;
+    } catch (IOException e) {
+      System.out.println("Could not append to ingest manifest journal: " + e.getMessage());
+    }
+  }
+
+  /** Rewrites the manifest from memory and starts an empty journal. */
+  private void compact() {
+    try {
+      Path dir = path.toAbsolutePath().getParent();
+      Files.createDirectories(dir);
+      Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+      MAPPER.writeValue(tmp.toFile(), new Snapshot(new TreeMap<>(files), new TreeMap<>(articles)));
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      // Replaying entries already in the manifest is harmless, so a crash here loses nothing.
+      if (journal != null) journal.close();
+      journal = null;
+      Files.deleteIfExists(journalPath);
+      journalEntries = 0;
+    } catch (IOException e) {
+      System.out.println("Could not save ingest manifest " + path + ": " + e.getMessage());
+    }
+  }
+
+  /** Hex SHA-256 of the first {@code length} bytes of {@code file}. */
+  public static String sha256(Path file, long length) throws IOException {
+    MessageDigest md = digest();
+    byte[] buf = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(file)) {
+      long remaining = length;
+      while (remaining > 0) {
+        int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+        if (n < 0) break;
+        md.update(buf, 0, n);
+        remaining -= n;
+      }
+    }
+    return HexFormat.of().formatHex(md.digest());
+  }
+
+  /** Short content hash for a source record: the first 64 bits of its SHA-256, in hex. */
+  public static String recordHash(byte[] canonical) {
+    return HexFormat.of().formatHex(digest().digest(canonical), 0, 8);
+  }
+
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
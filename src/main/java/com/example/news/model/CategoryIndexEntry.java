@@ -0,0 +1,37 @@
+package com.example.news.model;
+
+import java.util.Locale;
+import lombok.*;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.*;
+
+/**
+ * One row per (category, article) pair, so a category query reads only its own partition. The sort
+ * key is the zero-padded publication epoch followed by the article id, which keeps rows unique and
+ * orders them newest-first when queried in descending order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDbBean
+public class CategoryIndexEntry {
+
+  @Getter(onMethod_ = {@DynamoDbPartitionKey})
+  private String category;
+
+  @Getter(onMethod_ = {@DynamoDbSortKey})
+  private String sortKey;
+
+  private String articleId;
+  private Long publicationEpoch;
+
+  public static CategoryIndexEntry of(String category, NewsArticle article) {
+    long epoch = article.getPublicationEpoch() == null ? 0L : article.getPublicationEpoch();
+    return CategoryIndexEntry.builder()
+        .category(category.toLowerCase(Locale.ROOT))
+        .sortKey(String.format("%019d#%s", Math.max(0L, epoch), article.getId()))
+        .articleId(article.getId())
+        .publicationEpoch(article.getPublicationEpoch())
+        .build();
+  }
+}
@@ -1,27 +1,56 @@
 package com.example.news.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.List;
 import lombok.*;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.*;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @DynamoDbBean
 public class NewsArticle {
 
+  public static final String SOURCE_INDEX = "source-index";
+  public static final String UPDATES_INDEX = "updates-index";
+
   @Getter(onMethod_ = {@DynamoDbPartitionKey, @DynamoDbAttribute("id")})
   private String id;
 
   private String title;
   private String description;
   private String url;
+
+  @Getter(onMethod_ = {@DynamoDbSecondarySortKey(indexNames = SOURCE_INDEX)})
   private Long publicationEpoch;
+
   private String sourceName;
+
+  /** Lower-cased {@link #sourceName}; partition key of {@link #SOURCE_INDEX}. */
+  @Getter(onMethod_ = {@DynamoDbSecondaryPartitionKey(indexNames = SOURCE_INDEX), @JsonIgnore})
+  private String sourceKey;
+
   private List<String> category;
   private Double relevanceScore;
   private Double latitude;
   private Double longitude;
   private String llmSummary;
+
+  /**
+   * Id of the article this one near-duplicates (its own id when it is the first of its story); see
+   * {@link com.example.news.index.NearDuplicateIndex}.
+   */
+  private String canonicalId;
+
+  /** When this article was last written, in epoch millis; sort key of {@link #UPDATES_INDEX}. */
+  @Getter(onMethod_ = {@DynamoDbSecondarySortKey(indexNames = UPDATES_INDEX), @JsonIgnore})
+  private Long updatedAt;
+
+  /**
+   * UTC day of {@link #updatedAt} and a shard of the id, e.g. {@code 2025-06-15#3}; partition key
+   * of {@link #UPDATES_INDEX}, which lists a day's writes in order without one hot partition.
+   */
+  @Getter(onMethod_ = {@DynamoDbSecondaryPartitionKey(indexNames = UPDATES_INDEX), @JsonIgnore})
+  private String updateBucket;
 }
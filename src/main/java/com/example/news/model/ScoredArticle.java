@@ -0,0 +1,41 @@
+package com.example.news.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.Value;
+import lombok.With;
+
+/**
+ * One query result: the stored article plus whatever the query computed for it. The article is
+ * never modified, so indexed instances can be shared across requests; per-query values live here
+ * and serialize next to the article's own fields.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ScoredArticle {
+
+  @With @JsonUnwrapped NewsArticle article;
+
+  /** Ranking score for this query (blended text and stored relevance for search). */
+  Double score;
+
+  /** Great-circle distance from the query point, for nearby queries. */
+  Double distanceKm;
+
+  public static ScoredArticle of(NewsArticle article) {
+    return new ScoredArticle(article, null, null);
+  }
+
+  public static ScoredArticle scored(NewsArticle article, double score) {
+    return new ScoredArticle(article, score, null);
+  }
+
+  /** Either value may be null when the query did not compute it. */
+  public static ScoredArticle ranked(NewsArticle article, Double score, Double distanceKm) {
+    return new ScoredArticle(article, score, distanceKm);
+  }
+
+  public static ScoredArticle atDistance(NewsArticle article, double distanceKm) {
+    return new ScoredArticle(article, null, distanceKm);
+  }
+}
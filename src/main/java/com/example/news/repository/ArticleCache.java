@@ -0,0 +1,129 @@
+package com.example.news.repository;
+
+import com.example.news.model.NewsArticle;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process copy of the whole {@code NewsArticle} table so scan-based reads are served from
+ * memory.
+ *
+ * <p>Each article is held as one {@link ArticleRecord} byte array rather than the bean, its boxed
+ * numbers, category list and strings, and is decoded on every read; callers get a copy they may
+ * keep. Readers never lock: lookups go to a {@link ConcurrentHashMap}. Writes from this node are
+ * applied with {@link #put}; writes from other nodes show up on the next {@link #load}, which the
+ * repository triggers once the snapshot is older than {@code news.cache.maxStalenessSeconds}. Puts
+ * that race with a load are replayed on top of it so they are never lost.
+ */
+@Component
+public class ArticleCache {
+
+  private final boolean enabled;
+  private final long maxStalenessMillis;
+
+  private volatile ConcurrentHashMap<String, byte[]> byId = new ConcurrentHashMap<>();
+  private volatile long loadedAt;
+  private Map<String, byte[]> pendingDuringLoad;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+
+  public ArticleCache(
+      @Value("${news.cache.enabled:true}") boolean enabled,
+      @Value("${news.cache.maxStalenessSeconds:300}") long maxStalenessSeconds) {
+    this.enabled = enabled;
+    this.maxStalenessMillis = maxStalenessSeconds * 1000L;
+  }
+
+  /** A cache that never holds anything; every read goes to the table. */
+  public static ArticleCache disabled() {
+    return new ArticleCache(false, 0);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** True once a full load has completed. */
+  public boolean isWarm() {
+    return enabled && loadedAt > 0;
+  }
+
+  public boolean isStale() {
+    return maxStalenessMillis > 0 && System.currentTimeMillis() - loadedAt > maxStalenessMillis;
+  }
+
+  public int size() {
+    return byId.size();
+  }
+
+  public boolean contains(String id) {
+    return byId.containsKey(id);
+  }
+
+  public Optional<NewsArticle> get(String id) {
+    byte[] record = byId.get(id);
+    return record == null ? Optional.empty() : Optional.of(ArticleRecord.decode(record));
+  }
+
+  /** Every cached article, decoded into a new immutable list. */
+  public List<NewsArticle> all() {
+    List<NewsArticle> out = new ArrayList<>(byId.size());
+    for (byte[] record : byId.values()) out.add(ArticleRecord.decode(record));
+    return Collections.unmodifiableList(out);
+  }
+
+  public synchronized void put(NewsArticle article) {
+    if (!enabled || article == null || article.getId() == null) return;
+    byte[] record = ArticleRecord.encode(article);
+    byId.put(article.getId(), record);
+    if (pendingDuringLoad != null) pendingDuringLoad.put(article.getId(), record);
+  }
+
+  /** Marks the start of a full load; puts from now on are replayed over the loaded contents. */
+  public synchronized void beginLoad() {
+    pendingDuringLoad = new HashMap<>();
+  }
+
+  /**
+   * Replaces the contents with a full table read started by {@link #beginLoad()}. Returns the
+   * previous version of every article that is new (mapped to null), changed or gone, so callers can
+   * work out what changed; articles whose contents are the same are left out.
+   */
+  public synchronized Map<String, NewsArticle> load(Collection<NewsArticle> articles) {
+    ConcurrentHashMap<String, byte[]> fresh =
+        new ConcurrentHashMap<>(Math.max(16, articles.size() * 4 / 3 + 1));
+    for (NewsArticle a : articles) {
+      if (a.getId() != null) fresh.put(a.getId(), ArticleRecord.encode(a));
+    }
+    if (pendingDuringLoad != null) fresh.putAll(pendingDuringLoad);
+    pendingDuringLoad = null;
+    Map<String, byte[]> previous = byId;
+    byId = fresh;
+    loadedAt = System.currentTimeMillis();
+
+    Map<String, NewsArticle> changed = new HashMap<>();
+    for (Map.Entry<String, byte[]> e : fresh.entrySet()) {
+      byte[] old = previous.get(e.getKey());
+      if (!Arrays.equals(old, e.getValue())) {
+        changed.put(e.getKey(), old == null ? null : ArticleRecord.decode(old));
+      }
+    }
+    for (Map.Entry<String, byte[]> e : previous.entrySet()) {
+      if (!fresh.containsKey(e.getKey())) {
+        changed.put(e.getKey(), ArticleRecord.decode(e.getValue()));
+      }
+    }
+    return changed;
+  }
+
+  /** Claims the right to run a background refresh; false if one is already running. */
+  boolean tryStartRefresh() {
+    return refreshing.compareAndSet(false, true);
+  }
+
+  void endRefresh() {
+    refreshing.set(false);
+  }
+}
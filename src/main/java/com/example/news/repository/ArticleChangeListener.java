@@ -0,0 +1,16 @@
+package com.example.news.repository;
+
+import com.example.news.model.NewsArticle;
+
+/** Notified by {@link NewsRepository} after an article has been written and indexed. */
+public interface ArticleChangeListener {
+
+  /**
+   * @param previous the version this node last knew of, or null if the article is new to it. Taken
+   *     from the article cache, or with the cache disabled from the write itself (PutItem's old
+   *     item, a read of already-indexed articles before a batch write, the stored article without
+   *     its summary for a summary update), so newness does not depend on the cache
+   * @param current the version now stored, or null if the article is gone
+   */
+  void onArticleChanged(NewsArticle previous, NewsArticle current);
+}
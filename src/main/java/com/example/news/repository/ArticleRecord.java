@@ -0,0 +1,118 @@
+package com.example.news.repository;
+
+import com.example.news.model.NewsArticle;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of one article: its fields in declaration order, strings as a byte length (-1 for
+ * null) and UTF-8 bytes, numbers behind a presence byte, the category list behind its size. Used
+ * for the records of an {@link ArticleSnapshot} and for what {@link ArticleCache} keeps in memory,
+ * where one array replaces the bean, its boxed numbers, its list and a dozen strings.
+ */
+final class ArticleRecord {
+
+  private ArticleRecord() {}
+
+  static byte[] encode(NewsArticle a) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try {
+      write(new DataOutputStream(bytes), a);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static NewsArticle decode(byte[] record) {
+    return read(ByteBuffer.wrap(record));
+  }
+
+  static void write(DataOutputStream out, NewsArticle a) throws IOException {
+    writeString(out, a.getId());
+    writeString(out, a.getTitle());
+    writeString(out, a.getDescription());
+    writeString(out, a.getUrl());
+    writeLong(out, a.getPublicationEpoch());
+    writeString(out, a.getSourceName());
+    writeString(out, a.getSourceKey());
+    List<String> category = a.getCategory();
+    out.writeInt(category == null ? -1 : category.size());
+    if (category != null) for (String c : category) writeString(out, c);
+    writeDouble(out, a.getRelevanceScore());
+    writeDouble(out, a.getLatitude());
+    writeDouble(out, a.getLongitude());
+    writeString(out, a.getLlmSummary());
+    writeString(out, a.getCanonicalId());
+    writeLong(out, a.getUpdatedAt());
+    writeString(out, a.getUpdateBucket());
+  }
+
+  static NewsArticle read(ByteBuffer in) {
+    NewsArticle a = new NewsArticle();
+    a.setId(readString(in));
+    a.setTitle(readString(in));
+    a.setDescription(readString(in));
+    a.setUrl(readString(in));
+    a.setPublicationEpoch(readLong(in));
+    a.setSourceName(readString(in));
+    a.setSourceKey(readString(in));
+    int categories = in.getInt();
+    if (categories >= 0) {
+      List<String> category = new ArrayList<>(categories);
+      for (int i = 0; i < categories; i++) category.add(readString(in));
+      a.setCategory(category);
+    }
+    a.setRelevanceScore(readDouble(in));
+    a.setLatitude(readDouble(in));
+    a.setLongitude(readDouble(in));
+    a.setLlmSummary(readString(in));
+    a.setCanonicalId(readString(in));
+    a.setUpdatedAt(readLong(in));
+    a.setUpdateBucket(readString(in));
+    return a;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) return null;
+    String s =
+        new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return s;
+  }
+
+  private static void writeLong(DataOutputStream out, Long v) throws IOException {
+    out.writeBoolean(v != null);
+    if (v != null) out.writeLong(v);
+  }
+
+  private static Long readLong(ByteBuffer in) {
+    return in.get() == 0 ? null : in.getLong();
+  }
+
+  private static void writeDouble(DataOutputStream out, Double v) throws IOException {
+    out.writeBoolean(v != null);
+    if (v != null) out.writeDouble(v);
+  }
+
+  private static Double readDouble(ByteBuffer in) {
+    return in.get() == 0 ? null : in.getDouble();
+  }
+}
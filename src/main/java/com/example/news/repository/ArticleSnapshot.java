@@ -0,0 +1,183 @@
+package com.example.news.repository;
+
+import com.example.news.model.NewsArticle;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary snapshot of the article corpus, written and read by {@link CorpusSnapshots}.
+ *
+ * <p>Layout, big-endian: a header of magic, version, watermark, write time, article count and block
+ * count; then blocks of up to {@value #BLOCK_ARTICLES} articles, each prefixed by its raw length,
+ * compressed length and the CRC32 of the raw bytes, and deflate-compressed. Inside a block every
+ * article is a length-prefixed {@link ArticleRecord}.
+ *
+ * <p>{@link #read} maps the file with {@link FileChannel#map} and inflates the blocks in parallel
+ * straight from the mapping, so loading costs one copy of the corpus rather than a stream of small
+ * reads. A bad magic, version or checksum fails the whole read.
+ */
+public final class ArticleSnapshot {
+
+  static final int MAGIC = 0x4E534E50; // "NSNP"
+  static final int VERSION = 1;
+  static final int BLOCK_ARTICLES = 1024;
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+  private static final int BLOCK_HEADER_BYTES = 4 + 4 + 4;
+
+  /** Articles as of {@code watermark}: every write before it is included. */
+  public record Loaded(long watermark, long writtenAt, List<NewsArticle> articles) {}
+
+  private ArticleSnapshot() {}
+
+  /** Writes {@code articles} to {@code path} via a temporary file and an atomic rename. */
+  public static void write(Path path, Collection<NewsArticle> articles, long watermark)
+      throws IOException {
+    Path dir = path.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+    try {
+      List<NewsArticle> all = new ArrayList<>(articles);
+      int blocks = (all.size() + BLOCK_ARTICLES - 1) / BLOCK_ARTICLES;
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(watermark);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(all.size());
+        out.writeInt(blocks);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(1 << 20);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+        byte[] chunk = new byte[1 << 16];
+        try {
+          for (int b = 0; b < blocks; b++) {
+            raw.reset();
+            DataOutputStream rawOut = new DataOutputStream(raw);
+            int from = b * BLOCK_ARTICLES;
+            for (NewsArticle a : all.subList(from, Math.min(all.size(), from + BLOCK_ARTICLES))) {
+              record.reset();
+              ArticleRecord.write(new DataOutputStream(record), a);
+              rawOut.writeInt(record.size());
+              record.writeTo(rawOut);
+            }
+            byte[] bytes = raw.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 3 + 64);
+            while (!deflater.finished()) compressed.write(chunk, 0, deflater.deflate(chunk));
+            out.writeInt(bytes.length);
+            out.writeInt(compressed.size());
+            out.writeInt((int) crc.getValue());
+            compressed.writeTo(out);
+          }
+        } finally {
+          deflater.end();
+        }
+      }
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** Reads a snapshot written by {@link #write}. */
+  public static Loaded read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+        throw new IOException("Not a snapshot (size " + size + "): " + path);
+      }
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (map.getInt() != MAGIC) throw new IOException("Not a snapshot: " + path);
+      int version = map.getInt();
+      if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+      long watermark = map.getLong();
+      long writtenAt = map.getLong();
+      int count = map.getInt();
+      int blocks = map.getInt();
+
+      // Walk the length prefixes once to find each block; the inflating then runs in parallel.
+      int[] rawLengths = new int[blocks];
+      int[] crcs = new int[blocks];
+      ByteBuffer[] bodies = new ByteBuffer[blocks];
+      for (int b = 0; b < blocks; b++) {
+        if (map.remaining() < BLOCK_HEADER_BYTES) throw truncated(path);
+        rawLengths[b] = map.getInt();
+        int compressedLength = map.getInt();
+        crcs[b] = map.getInt();
+        if (compressedLength < 0 || map.remaining() < compressedLength) throw truncated(path);
+        bodies[b] = map.slice(map.position(), compressedLength);
+        map.position(map.position() + compressedLength);
+      }
+
+      List<List<NewsArticle>> decoded =
+          IntStream.range(0, blocks)
+              .parallel()
+              .mapToObj(b -> decodeBlock(bodies[b], rawLengths[b], crcs[b]))
+              .toList();
+      List<NewsArticle> articles = new ArrayList<>(count);
+      for (List<NewsArticle> block : decoded) {
+        if (block == null) throw new IOException("Corrupt snapshot block in " + path);
+        articles.addAll(block);
+      }
+      if (articles.size() != count) {
+        throw new IOException(
+            "Snapshot " + path + " holds " + articles.size() + " articles, header says " + count);
+      }
+      return new Loaded(watermark, writtenAt, articles);
+    }
+  }
+
+  /** Articles of one block, or null if it does not inflate to the recorded length and checksum. */
+  private static List<NewsArticle> decodeBlock(ByteBuffer body, int rawLength, int crc) {
+    byte[] raw = new byte[rawLength];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(body);
+      int n = 0;
+      while (n < rawLength && !inflater.finished()) {
+        int got = inflater.inflate(raw, n, rawLength - n);
+        if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+        n += got;
+      }
+      if (n != rawLength) return null;
+    } catch (DataFormatException e) {
+      return null;
+    } finally {
+      inflater.end();
+    }
+    CRC32 check = new CRC32();
+    check.update(raw);
+    if ((int) check.getValue() != crc) return null;
+
+    ByteBuffer in = ByteBuffer.wrap(raw);
+    List<NewsArticle> out = new ArrayList<>(BLOCK_ARTICLES);
+    try {
+      while (in.hasRemaining()) {
+        int end = in.getInt() + in.position();
+        out.add(ArticleRecord.read(in));
+        if (in.position() != end) return null;
+      }
+    } catch (RuntimeException e) {
+      return null;
+    }
+    return out;
+  }
+
+  private static IOException truncated(Path path) {
+    return new IOException("Truncated snapshot: " + path);
+  }
+}
@@ -0,0 +1,190 @@
+package com.example.news.repository;
+
+import com.example.news.model.NewsArticle;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts a node from a local {@link ArticleSnapshot} instead of a full table scan, and keeps that
+ * snapshot current.
+ *
+ * <p>A snapshot records its watermark: the time up to which every write, from any node, is in it.
+ * On {@link #restore()} the articles are indexed straight from the file and only writes since the
+ * watermark are read from DynamoDB, through the updates GSI. A snapshot older than {@code
+ * news.snapshot.maxReplayDays}, or unreadable, is ignored and the caller falls back to the full
+ * load. Every {@code news.snapshot.intervalSeconds} the node catches up on other nodes' writes the
+ * same way and, if anything changed, writes a new snapshot from the article cache. Snapshots need
+ * {@code news.cache.enabled}, which is also what tells replayed edits from new articles; without it
+ * they are switched off.
+ */
+@Component
+public class CorpusSnapshots implements ArticleChangeListener {
+
+  /** Replay starts this far before the watermark, for clock skew between nodes and GSI lag. */
+  static final long REPLAY_OVERLAP_MS = TimeUnit.MINUTES.toMillis(1);
+
+  /**
+   * Rewrite an unchanged corpus once this many updates have been read back since the last write, so
+   * a restart does not replay them all again.
+   */
+  static final int REWRITE_AFTER_REPLAYED = 1000;
+
+  private final NewsRepository repository;
+  private final boolean enabled;
+  private final Path path;
+  private final long maxReplayMillis;
+  private final long intervalMillis;
+  private final AtomicLong changes = new AtomicLong();
+  private long changesWritten = -1;
+  private long replayedSinceWrite;
+  private boolean updatesUnavailable;
+  private Thread writer;
+
+  public CorpusSnapshots(
+      NewsRepository repository,
+      @Value("${news.snapshot.enabled:true}") boolean enabled,
+      @Value("${news.snapshot.path:data/.articles.snapshot}") String path,
+      @Value("${news.snapshot.maxReplayDays:7}") long maxReplayDays,
+      @Value("${news.snapshot.intervalSeconds:300}") long intervalSeconds) {
+    this.repository = repository;
+    this.enabled = enabled && repository != null && repository.cachesArticles();
+    this.path = Path.of(path);
+    this.maxReplayMillis = TimeUnit.DAYS.toMillis(maxReplayDays);
+    this.intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+    if (this.enabled) repository.addChangeListener(this);
+  }
+
+  /** Snapshots switched off; {@link #restore()} always reports a full load is needed. */
+  public static CorpusSnapshots disabled() {
+    return new CorpusSnapshots(null, false, "", 0, 0);
+  }
+
+  /**
+   * Loads the repository's indexes and cache from the snapshot and replays later writes. Returns
+   * false, having changed nothing the caller's full load will not replace, when there is no usable
+   * snapshot or the replay fails.
+   */
+  public boolean restore() {
+    if (!enabled || !Files.isRegularFile(path)) return false;
+    long start = System.nanoTime();
+    try {
+      ArticleSnapshot.Loaded snapshot = ArticleSnapshot.read(path);
+      long readNanos = System.nanoTime() - start;
+      if (System.currentTimeMillis() - snapshot.watermark() > maxReplayMillis) {
+        System.out.println(
+            "Snapshot " + path + " is older than the replay limit; doing a full load instead.");
+        return false;
+      }
+      long changesBefore = changes.get();
+      int replayed =
+          repository.restore(snapshot.articles(), snapshot.watermark() - REPLAY_OVERLAP_MS);
+      System.out.printf(
+          "Restored %d articles from snapshot %s in %d ms (%d ms reading), replayed %d updates"
+              + " since %s.%n",
+          snapshot.articles().size(),
+          path,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+          TimeUnit.NANOSECONDS.toMillis(readNanos),
+          replayed,
+          Instant.ofEpochMilli(snapshot.watermark()));
+      // The file matches what was loaded unless the replay changed something.
+      synchronized (this) {
+        changesWritten = changesBefore;
+        replayedSinceWrite = replayed;
+      }
+      return true;
+    } catch (IOException | RuntimeException e) {
+      System.out.println("Could not restore snapshot " + path + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Writes a snapshot of the article cache if articles changed since the last one, if many updates
+   * were replayed since, or if there is none yet. Skipped while the cache holds no full copy.
+   */
+  public synchronized void writeIfChanged() {
+    if (!enabled) return;
+    long seen = changes.get();
+    if (seen == changesWritten
+        && replayedSinceWrite < REWRITE_AFTER_REPLAYED
+        && Files.isRegularFile(path)) return;
+    Optional<List<NewsArticle>> articles = repository.cachedArticles();
+    if (articles.isEmpty()) return;
+    long watermark = repository.syncedThrough();
+    long start = System.nanoTime();
+    try {
+      ArticleSnapshot.write(path, articles.get(), watermark);
+      changesWritten = seen;
+      replayedSinceWrite = 0;
+      System.out.printf(
+          "Wrote snapshot of %d articles to %s (%d KB) in %d ms.%n",
+          articles.get().size(),
+          path,
+          Files.size(path) / 1024,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } catch (IOException e) {
+      // The previous snapshot is left in place; it only means a longer replay on restart.
+      System.out.println("Could not write snapshot " + path + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Starts the background thread that catches up on writes since the last sync and refreshes the
+   * snapshot, right away and then every {@code news.snapshot.intervalSeconds}. Does nothing if
+   * already started or disabled.
+   */
+  public synchronized void startWriter() {
+    if (!enabled || writer != null) return;
+    writer =
+        new Thread(
+            () -> {
+              while (!Thread.currentThread().isInterrupted()) {
+                try {
+                  catchUp();
+                  writeIfChanged();
+                  if (intervalMillis <= 0) return;
+                  Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                  return;
+                } catch (RuntimeException e) {
+                  System.out.println("Snapshot refresh failed: " + e.getMessage());
+                }
+              }
+            },
+            "snapshot-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void onArticleChanged(NewsArticle previous, NewsArticle current) {
+    changes.incrementAndGet();
+  }
+
+  /**
+   * Applies writes made since the last sync, so the next snapshot's watermark moves forward. This
+   * node's own writes are read back too; catching up every interval keeps that window short.
+   */
+  private synchronized void catchUp() {
+    try {
+      replayedSinceWrite +=
+          repository.applyUpdatesSince(repository.syncedThrough() - REPLAY_OVERLAP_MS);
+      updatesUnavailable = false;
+    } catch (RuntimeException e) {
+      // Without the updates GSI the watermark stays put; the snapshot is still correct.
+      if (!updatesUnavailable) {
+        System.out.println("Could not read updates since the last sync: " + e.getMessage());
+      }
+      updatesUnavailable = true;
+    }
+  }
+}
@@ -1,37 +1,1070 @@
 package com.example.news.repository;
 
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.CategoryIndexEntry;
 import com.example.news.model.NewsArticle;
+import io.micrometer.core.instrument.Gauge;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.CollectionUtils;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPage;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 
 @Repository
 public class NewsRepository {
+  private static final int MAX_BATCH_WRITE = 25;
+  private static final int MAX_BATCH_ATTEMPTS = 8;
+  private static final int MAX_BATCH_GET = 100;
+
+  /** Partitions per day of {@link NewsArticle#UPDATES_INDEX}, to spread bulk-load writes. */
+  static final int UPDATE_SHARDS = 8;
+
+  private final DynamoDbEnhancedClient enhancedClient;
   private final DynamoDbTable<NewsArticle> table;
+  private final DynamoDbTable<CategoryIndexEntry> categoryTable;
+  private final DynamoDbEnhancedAsyncClient asyncClient;
+  private final DynamoDbAsyncTable<NewsArticle> asyncTable;
+  private final DynamoDbAsyncTable<CategoryIndexEntry> asyncCategoryTable;
+  private final SearchIndex searchIndex;
+  private final GeoIndex geoIndex;
+  private final ColumnarStore columns;
+  private final NearDuplicateIndex duplicates;
+  private final ArticleCache cache;
+  private final NewsMetrics metrics;
+  private final int scanSegments;
+  private final List<ArticleChangeListener> listeners = new CopyOnWriteArrayList<>();
+  private volatile boolean indexesLoaded;
+  private final AtomicLong lastWrite = new AtomicLong();
+  private volatile long syncedAt;
+
+  public NewsRepository(
+      DynamoDbEnhancedClient enhancedClient,
+      SearchIndex searchIndex,
+      GeoIndex geoIndex,
+      ColumnarStore columns,
+      NearDuplicateIndex duplicates,
+      ArticleCache cache,
+      NewsMetrics metrics,
+      @Value("${news.scan.segments:4}") int scanSegments) {
+    this(
+        enhancedClient,
+        Optional.empty(),
+        searchIndex,
+        geoIndex,
+        columns,
+        duplicates,
+        cache,
+        metrics,
+        scanSegments);
+  }
+
+  /**
+   * With {@code asyncClient} (present under {@code news.execution.mode: async}) the {@code *Async}
+   * reads go out without blocking; without it they read synchronously.
+   */
+  @Autowired
+  public NewsRepository(
+      DynamoDbEnhancedClient enhancedClient,
+      Optional<DynamoDbEnhancedAsyncClient> asyncClient,
+      SearchIndex searchIndex,
+      GeoIndex geoIndex,
+      ColumnarStore columns,
+      NearDuplicateIndex duplicates,
+      ArticleCache cache,
+      NewsMetrics metrics,
+      @Value("${news.scan.segments:4}") int scanSegments) {
+    TableSchema<NewsArticle> articleSchema = TableSchema.fromBean(NewsArticle.class);
+    TableSchema<CategoryIndexEntry> categorySchema = TableSchema.fromBean(CategoryIndexEntry.class);
+    this.enhancedClient = enhancedClient;
+    this.table = enhancedClient.table("NewsArticle", articleSchema);
+    this.categoryTable = enhancedClient.table("NewsArticleCategory", categorySchema);
+    this.asyncClient = asyncClient.orElse(null);
+    this.asyncTable =
+        this.asyncClient == null ? null : this.asyncClient.table("NewsArticle", articleSchema);
+    this.asyncCategoryTable =
+        this.asyncClient == null
+            ? null
+            : this.asyncClient.table("NewsArticleCategory", categorySchema);
+    this.searchIndex = searchIndex;
+    this.geoIndex = geoIndex;
+    this.columns = columns;
+    this.duplicates = duplicates;
+    this.cache = cache;
+    this.metrics = metrics;
+    this.scanSegments = Math.max(1, scanSegments);
+    Gauge.builder("news.cache.size", cache, ArticleCache::size).register(metrics.registry());
+  }
 
-  public NewsRepository(DynamoDbEnhancedClient enhancedClient) {
-    this.table = enhancedClient.table("NewsArticle", TableSchema.fromBean(NewsArticle.class));
+  /** Registers a listener for articles saved through (or refreshed into) this repository. */
+  public void addChangeListener(ArticleChangeListener listener) {
+    listeners.add(listener);
   }
 
   public void save(NewsArticle article) {
-    table.putItem(article);
+    NewsArticle cached = cache.get(article.getId()).orElse(null);
+    NewsArticle replaced =
+        time(
+            "put",
+            () -> {
+              stampCluster(article);
+              prepare(article);
+              NewsArticle old =
+                  table
+                      .putItemWithResponse(r -> r.item(article).returnValues(ReturnValue.ALL_OLD))
+                      .attributes();
+              categoryEntries(article).forEach(categoryTable::putItem);
+              return old;
+            });
+    NewsArticle previous = cached != null ? cached : replaced;
+    time("index", () -> index(article));
+    changed(previous, article);
+  }
+
+  /**
+   * Sets only the LLM summary of a stored article, with an UpdateItem that leaves every other
+   * attribute as the table has it: a summary computed from an older read of the article cannot undo
+   * a re-ingest written since. The update time moves as for any write. Nothing is written if the
+   * article no longer exists.
+   *
+   * @return the article as now stored, or empty if there is none
+   */
+  public Optional<NewsArticle> saveSummary(String id, String summary) {
+    NewsArticle cached = cache.get(id).orElse(null);
+    NewsArticle partial = NewsArticle.builder().id(id).llmSummary(summary).build();
+    prepare(partial);
+    NewsArticle stored;
+    try {
+      stored =
+          time(
+              "update",
+              () ->
+                  table.updateItem(
+                      r ->
+                          r.item(partial)
+                              .ignoreNulls(true)
+                              .conditionExpression(
+                                  Expression.builder()
+                                      .expression("attribute_exists(id)")
+                                      .build())));
+    } catch (ConditionalCheckFailedException e) {
+      return Optional.empty();
+    }
+    time("index", () -> index(stored));
+    // Only the summary can differ from what was stored before.
+    changed(cached != null ? cached : stored.toBuilder().llmSummary(null).build(), stored);
+    return Optional.of(stored);
+  }
+
+  /**
+   * Writes articles and their category rows with BatchWriteItem, {@value #MAX_BATCH_WRITE} puts per
+   * request. Unprocessed items are retried with exponential backoff; an {@link
+   * IllegalStateException} is thrown if they still cannot be written.
+   */
+  public void saveAll(List<NewsArticle> articles) {
+    // BatchWriteItem rejects two puts for the same key in one request; the last copy wins.
+    Map<String, NewsArticle> unique = new LinkedHashMap<>();
+    articles.forEach(a -> unique.put(a.getId(), a));
+    Map<String, NewsArticle> previous = new HashMap<>();
+    List<String> unknown = new ArrayList<>();
+    for (String id : unique.keySet()) {
+      Optional<NewsArticle> cached = cache.get(id);
+      if (cached.isPresent()) previous.put(id, cached.get());
+      else if (columns.contains(id)) unknown.add(id);
+    }
+    // Without the cache, read back the articles being replaced, so listeners can tell edits from
+    // new articles; ids the indexes have never seen are new and cost no read.
+    if (!unknown.isEmpty()) previous.putAll(time("batchGet", () -> batchGet(unknown)));
+    List<Object> puts = new ArrayList<>();
+    for (NewsArticle a : unique.values()) {
+      stampCluster(a);
+      prepare(a);
+      puts.add(a);
+      puts.addAll(categoryEntries(a));
+    }
+    for (int i = 0; i < puts.size(); i += MAX_BATCH_WRITE) {
+      List<Object> chunk = puts.subList(i, Math.min(puts.size(), i + MAX_BATCH_WRITE));
+      time("batchWrite", () -> batchWrite(chunk));
+    }
+    time("index", () -> unique.values().forEach(this::index));
+    for (NewsArticle a : unique.values()) changed(previous.get(a.getId()), a);
   }
 
   public Optional<NewsArticle> findById(String id) {
-    return Optional.ofNullable(table.getItem(r -> r.key(k -> k.partitionValue(id))));
+    if (cache.isWarm()) {
+      Optional<NewsArticle> cached = cache.get(id);
+      if (cached.isPresent()) {
+        metrics.increment("news.cache.requests", "operation", "get", "result", "hit");
+        return cached;
+      }
+      // Possibly written by another node since the last refresh.
+      metrics.increment("news.cache.requests", "operation", "get", "result", "miss");
+    }
+    return time(
+        "get", () -> Optional.ofNullable(table.getItem(r -> r.key(k -> k.partitionValue(id)))));
+  }
+
+  /**
+   * Articles for the given ids in the same order, skipping ids that do not exist. Cached articles
+   * are returned directly; the rest are read with BatchGetItem, {@value #MAX_BATCH_GET} keys per
+   * request, retrying throttled keys. An {@link IllegalStateException} is thrown rather than
+   * returning fewer articles if some still cannot be read.
+   */
+  public List<NewsArticle> findAllById(List<String> ids) {
+    Map<String, NewsArticle> byId = new HashMap<>();
+    List<String> missing = fromCache(ids, byId);
+    if (!missing.isEmpty()) byId.putAll(time("batchGet", () -> batchGet(missing)));
+    return inOrder(ids, byId);
+  }
+
+  /**
+   * {@link #findAllById} without blocking: cached articles are there at once, the rest are read
+   * with BatchGetItem on the async client, and throttled keys are retried after the same backoff on
+   * a timer instead of a sleeping thread.
+   */
+  public CompletableFuture<List<NewsArticle>> findAllByIdAsync(List<String> ids) {
+    if (asyncClient == null) return completed(() -> findAllById(ids));
+    Map<String, NewsArticle> byId = new HashMap<>();
+    List<String> missing = fromCache(ids, byId);
+    if (missing.isEmpty()) return CompletableFuture.completedFuture(inOrder(ids, byId));
+    return timeAsync("batchGet", () -> batchGetAsync(missing))
+        .thenApply(
+            read -> {
+              byId.putAll(read);
+              return inOrder(ids, byId);
+            });
+  }
+
+  /** Puts the cached ones of {@code ids} into {@code byId} and returns the rest. */
+  private List<String> fromCache(List<String> ids, Map<String, NewsArticle> byId) {
+    List<String> missing = new ArrayList<>();
+    for (String id : ids) {
+      Optional<NewsArticle> cached = cache.isWarm() ? cache.get(id) : Optional.empty();
+      if (cached.isPresent()) byId.put(id, cached.get());
+      else missing.add(id);
+    }
+    return missing;
+  }
+
+  private static List<NewsArticle> inOrder(List<String> ids, Map<String, NewsArticle> byId) {
+    List<NewsArticle> out = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      NewsArticle a = byId.get(id);
+      if (a != null) out.add(a);
+    }
+    return out;
   }
 
+  /** Which of {@code ids} the table holds, read with BatchGetItem whatever the cache says. */
+  public Set<String> storedIds(Collection<String> ids) {
+    return time("batchGet", () -> batchGet(ids)).keySet();
+  }
+
+  /**
+   * Every article. Served from {@link ArticleCache} when it is enabled, loading it on first use and
+   * refreshing it in the background once it is older than the staleness bound; the returned list is
+   * then shared and must not be modified.
+   */
   public List<NewsArticle> scanAll() {
-    List<NewsArticle> out = new ArrayList<>();
-    table.scan().items().forEach(out::add);
+    if (cache.isEnabled()) {
+      boolean warm = cache.isWarm();
+      if (!warm) warmCache();
+      else if (cache.isStale()) refreshCacheAsync();
+      metrics.increment(
+          "news.cache.requests", "operation", "scan", "result", warm ? "hit" : "miss");
+      List<NewsArticle> all = cache.all();
+      items("cache.scan", "read", all.size());
+      return all;
+    }
+    List<NewsArticle> out = time("scan", this::scanTable);
+    items("scan", "read", out.size());
     return out;
   }
 
+  /**
+   * Lazily streams every article. From the cache when it is enabled; otherwise straight from a
+   * table scan, one page at a time, fetching only {@code attributes} when any are given (the other
+   * fields are then left null). Stop consuming early and the remaining pages are never read.
+   */
+  public Stream<NewsArticle> streamAll(String... attributes) {
+    if (cache.isEnabled()) return scanAll().stream();
+    ScanEnhancedRequest.Builder request = ScanEnhancedRequest.builder();
+    if (attributes.length > 0) request.attributesToProject(attributes);
+    return table.scan(request.build()).items().stream();
+  }
+
+  /**
+   * Re-reads the table into the cache and re-indexes articles that changed, so writes made by other
+   * nodes become visible. Articles no longer in the table are dropped from the indexes.
+   */
+  public void refreshCache() {
+    long start = System.currentTimeMillis();
+    cache.beginLoad();
+    List<NewsArticle> scanned = time("scan", this::scanTable);
+    Map<String, NewsArticle> previous = cache.load(scanned);
+    time(
+        "index",
+        () -> {
+          for (NewsArticle a : scanned) {
+            // Unchanged articles are not in the map; one written here during the scan is newer
+            // than the scanned copy and already indexed.
+            if (!previous.containsKey(a.getId())) continue;
+            searchIndex.index(a);
+            geoIndex.index(a);
+            columns.index(a);
+            duplicates.index(a);
+            changed(previous.get(a.getId()), a);
+          }
+          for (Map.Entry<String, NewsArticle> e : previous.entrySet()) {
+            if (!cache.contains(e.getKey())) {
+              searchIndex.remove(e.getKey());
+              geoIndex.remove(e.getKey());
+              columns.remove(e.getKey());
+              duplicates.remove(e.getKey());
+              changed(e.getValue(), null);
+            }
+          }
+        });
+    items("cache.refresh", "read", scanned.size());
+    syncedAt = start;
+  }
+
+  private synchronized void warmCache() {
+    if (!cache.isWarm()) refreshCache();
+  }
+
+  private void refreshCacheAsync() {
+    if (!cache.tryStartRefresh()) return;
+    Thread t =
+        new Thread(
+            () -> {
+              try {
+                refreshCache();
+              } catch (RuntimeException e) {
+                System.out.println("Article cache refresh failed: " + e.getMessage());
+              } finally {
+                cache.endRefresh();
+              }
+            },
+            "article-cache-refresh");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  /**
+   * Reads the whole table for a full load. With {@code news.scan.segments} above one, the table is
+   * split into that many parallel scan segments, each read on its own thread.
+   */
+  private List<NewsArticle> scanTable() {
+    if (scanSegments == 1) {
+      List<NewsArticle> all = new ArrayList<>();
+      table.scan().items().forEach(all::add);
+      return all;
+    }
+    ExecutorService pool =
+        Executors.newFixedThreadPool(
+            scanSegments,
+            r -> {
+              Thread t = new Thread(r, "table-scan");
+              t.setDaemon(true);
+              return t;
+            });
+    try {
+      List<Future<List<NewsArticle>>> segments = new ArrayList<>(scanSegments);
+      for (int i = 0; i < scanSegments; i++) {
+        ScanEnhancedRequest request =
+            ScanEnhancedRequest.builder().segment(i).totalSegments(scanSegments).build();
+        segments.add(
+            pool.submit(
+                () -> {
+                  List<NewsArticle> part = new ArrayList<>();
+                  table.scan(request).items().forEach(part::add);
+                  return part;
+                }));
+      }
+      List<NewsArticle> all = new ArrayList<>();
+      for (Future<List<NewsArticle>> f : segments) all.addAll(f.get());
+      return all;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during parallel scan", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException r
+          ? r
+          : new IllegalStateException("Parallel scan failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
   public List<NewsArticle> scanWithFilter(Predicate<NewsArticle> predicate) {
-    return scanAll().stream().filter(predicate).collect(Collectors.toList());
+    return scanWithFilter(predicate, Integer.MAX_VALUE);
+  }
+
+  /**
+   * The first {@code limit} articles matching {@code predicate}, in scan order. Only matches are
+   * collected, and the scan stops as soon as {@code limit} of them have been found.
+   */
+  public List<NewsArticle> scanWithFilter(Predicate<NewsArticle> predicate, int limit) {
+    List<NewsArticle> out =
+        time(
+            "filter",
+            () ->
+                streamAll()
+                    .filter(predicate)
+                    .limit(Math.max(0, limit))
+                    .collect(Collectors.toList()));
+    items("scan", "returned", out.size());
+    return out;
+  }
+
+  /**
+   * Newest {@code limit} articles from a source, read from the {@link NewsArticle#SOURCE_INDEX}
+   * GSI. Articles without a publication epoch are not projected into the index.
+   */
+  public List<NewsArticle> queryBySource(String source, int limit) {
+    if (limit <= 0 || source == null) return List.of();
+    QueryEnhancedRequest request = newestFirst(source, limit, null);
+    List<NewsArticle> out =
+        time(
+            "query.source",
+            () ->
+                table.index(NewsArticle.SOURCE_INDEX).query(request).stream()
+                    .flatMap(page -> page.items().stream())
+                    .limit(limit)
+                    .collect(Collectors.toList()));
+    items("query.source", "read", out.size());
+    return out;
+  }
+
+  /** {@link #queryBySource} on the async client. */
+  public CompletableFuture<List<NewsArticle>> queryBySourceAsync(String source, int limit) {
+    if (asyncClient == null) return completed(() -> queryBySource(source, limit));
+    if (limit <= 0 || source == null) return CompletableFuture.completedFuture(List.of());
+    QueryEnhancedRequest request = newestFirst(source, limit, null);
+    List<NewsArticle> out = new ArrayList<>();
+    return timeAsync(
+            "query.source",
+            () ->
+                asyncTable
+                    .index(NewsArticle.SOURCE_INDEX)
+                    .query(request)
+                    .flatMapIterable(Page::items)
+                    .limit(limit)
+                    .subscribe(out::add))
+        .thenApply(
+            done -> {
+              items("query.source", "read", out.size());
+              return out;
+            });
+  }
+
+  /**
+   * Newest {@code limit} articles in a category, read from the {@code NewsArticleCategory} table
+   * and resolved with BatchGetItem. Entries whose article was read but no longer carries the
+   * category (or has moved to a different epoch) are dropped and deleted; entries whose article was
+   * not found are only skipped, as its row may not be written yet.
+   */
+  public List<NewsArticle> queryByCategory(String category, int limit) {
+    if (limit <= 0 || category == null) return List.of();
+    return time("query.category", () -> queryCategoryIndex(category, limit));
+  }
+
+  private List<NewsArticle> queryCategoryIndex(String category, int limit) {
+    String key = category.toLowerCase(Locale.ROOT);
+    QueryEnhancedRequest request = newestFirst(key, limit, null);
+
+    List<NewsArticle> out = new ArrayList<>();
+    Iterator<CategoryIndexEntry> entries =
+        categoryTable.query(request).stream().flatMap(page -> page.items().stream()).iterator();
+    while (out.size() < limit && entries.hasNext()) {
+      List<CategoryIndexEntry> chunk = new ArrayList<>();
+      while (chunk.size() < limit - out.size() && entries.hasNext()) chunk.add(entries.next());
+
+      items("query.category", "read", chunk.size());
+      Map<String, NewsArticle> byId =
+          time(
+              "batchGet",
+              () -> batchGet(chunk.stream().map(CategoryIndexEntry::getArticleId).toList()));
+      for (CategoryIndexEntry e : chunk) {
+        NewsArticle a = byId.get(e.getArticleId());
+        if (a == null) continue;
+        if (stillListed(a, e, key)) {
+          out.add(a);
+        } else {
+          categoryTable.deleteItem(e);
+        }
+      }
+    }
+    return out;
+  }
+
+  /** {@link #queryByCategory} on the async client, one page of index entries at a time. */
+  public CompletableFuture<List<NewsArticle>> queryByCategoryAsync(String category, int limit) {
+    if (asyncClient == null) return completed(() -> queryByCategory(category, limit));
+    if (limit <= 0 || category == null) return CompletableFuture.completedFuture(List.of());
+    return timeAsync(
+        "query.category",
+        () ->
+            queryCategoryIndexAsync(
+                category.toLowerCase(Locale.ROOT), limit, null, new ArrayList<>()));
+  }
+
+  private CompletableFuture<List<NewsArticle>> queryCategoryIndexAsync(
+      String key, int limit, Map<String, AttributeValue> startKey, List<NewsArticle> out) {
+    QueryEnhancedRequest request = newestFirst(key, limit - out.size(), startKey);
+    return firstPage(asyncCategoryTable.query(request))
+        .thenCompose(
+            page ->
+                page == null
+                    ? CompletableFuture.completedFuture(out)
+                    : resolveCategoryPage(key, limit, page, 0, out));
+  }
+
+  /**
+   * Resolves the entries of {@code page} from {@code from} on, as many at a time as the result is
+   * still short of, then moves on to the next page; like the iterator in {@link
+   * #queryCategoryIndex}.
+   */
+  private CompletableFuture<List<NewsArticle>> resolveCategoryPage(
+      String key, int limit, Page<CategoryIndexEntry> page, int from, List<NewsArticle> out) {
+    List<CategoryIndexEntry> entries = page.items();
+    if (from >= entries.size()) {
+      return page.lastEvaluatedKey() == null
+          ? CompletableFuture.completedFuture(out)
+          : queryCategoryIndexAsync(key, limit, page.lastEvaluatedKey(), out);
+    }
+    List<CategoryIndexEntry> chunk =
+        entries.subList(from, Math.min(entries.size(), from + limit - out.size()));
+    items("query.category", "read", chunk.size());
+    return timeAsync(
+            "batchGet",
+            () -> batchGetAsync(chunk.stream().map(CategoryIndexEntry::getArticleId).toList()))
+        .thenCompose(
+            byId -> {
+              List<CompletableFuture<?>> deletes = new ArrayList<>();
+              for (CategoryIndexEntry e : chunk) {
+                NewsArticle a = byId.get(e.getArticleId());
+                if (a == null) continue;
+                if (stillListed(a, e, key)) out.add(a);
+                else deletes.add(asyncCategoryTable.deleteItem(e));
+              }
+              return CompletableFuture.allOf(deletes.toArray(CompletableFuture[]::new));
+            })
+        .thenCompose(
+            deleted ->
+                out.size() >= limit
+                    ? CompletableFuture.completedFuture(out)
+                    : resolveCategoryPage(key, limit, page, from + chunk.size(), out));
+  }
+
+  /** Whether the category index entry {@code e} still describes article {@code a}. */
+  private static boolean stillListed(NewsArticle a, CategoryIndexEntry e, String key) {
+    return Objects.equals(a.getPublicationEpoch(), e.getPublicationEpoch())
+        && a.getCategory() != null
+        && a.getCategory().stream()
+            .anyMatch(c -> c != null && c.toLowerCase(Locale.ROOT).equals(key));
+  }
+
+  /**
+   * Newest first under partition {@code key}, up to {@code limit} items, after {@code startKey}.
+   */
+  private static QueryEnhancedRequest newestFirst(
+      String key, int limit, Map<String, AttributeValue> startKey) {
+    return QueryEnhancedRequest.builder()
+        .queryConditional(
+            QueryConditional.keyEqualTo(k -> k.partitionValue(key.toLowerCase(Locale.ROOT))))
+        .scanIndexForward(false)
+        .limit(limit)
+        .exclusiveStartKey(startKey)
+        .build();
+  }
+
+  /** Full-text lookup against the in-memory index; see {@link SearchIndex#search(String)}. */
+  public List<SearchIndex.Hit> search(String query) {
+    List<SearchIndex.Hit> hits = time("index.search", () -> searchIndex.search(query));
+    items("index.search", "returned", hits.size());
+    return hits;
+  }
+
+  /** Full-text lookup restricted to the ids in {@code within}; see {@link SearchIndex#search}. */
+  public List<SearchIndex.Hit> search(String query, Set<String> within) {
+    List<SearchIndex.Hit> hits = time("index.search", () -> searchIndex.search(query, within));
+    items("index.search", "returned", hits.size());
+    return hits;
+  }
+
+  /**
+   * Bound on full-text matches from term document frequencies; see {@link SearchIndex#estimate}.
+   */
+  public int estimateSearch(String query) {
+    return searchIndex.estimate(query);
+  }
+
+  /** Radius lookup against the in-memory index; see {@link GeoIndex#nearby}. */
+  public List<GeoIndex.Hit> findNearby(double lat, double lon, double radiusKm, int limit) {
+    List<GeoIndex.Hit> hits =
+        time("index.nearby", () -> geoIndex.nearby(lat, lon, radiusKm, limit));
+    items("index.nearby", "returned", hits.size());
+    return hits;
+  }
+
+  /** Distances to the articles within a radius, unordered; see {@link GeoIndex#distances}. */
+  public Map<String, Double> distancesWithin(
+      double lat, double lon, double radiusKm, Set<String> within) {
+    Map<String, Double> hits =
+        time("index.nearby", () -> geoIndex.distances(lat, lon, radiusKm, within));
+    items("index.nearby", "returned", hits.size());
+    return hits;
+  }
+
+  /** Bound on radius matches from per-cell point counts; see {@link GeoIndex#estimate}. */
+  public int estimateNearby(double lat, double lon, double radiusKm) {
+    return geoIndex.estimate(lat, lon, radiusKm);
+  }
+
+  /** Ids of the highest-scored articles at or above {@code minScore}; see {@link ColumnarStore}. */
+  public ColumnarStore.Selection selectByScore(double minScore, int limit) {
+    return select("columns.score", () -> columns.topByScore(minScore, limit));
+  }
+
+  /** Ids of the newest articles in {@code category}, from the in-memory columns. */
+  public ColumnarStore.Selection selectNewestInCategory(String category, int limit) {
+    return select("columns.category", () -> columns.newestInCategory(category, limit));
+  }
+
+  /** Ids of the newest articles from {@code source}, from the in-memory columns. */
+  public ColumnarStore.Selection selectNewestFromSource(String source, int limit) {
+    return select("columns.source", () -> columns.newestFromSource(source, limit));
+  }
+
+  /** Ids matching column predicates, unordered; see {@link ColumnarStore#filter}. */
+  public List<String> filterColumns(ColumnarStore.Filter filter, Set<String> within) {
+    List<String> ids = time("columns.filter", () -> columns.filter(filter, within));
+    items("columns.filter", "matched", ids.size());
+    return ids;
+  }
+
+  /** Bound on column predicate matches from the columns' counts; see {@link ColumnarStore}. */
+  public int estimateColumns(ColumnarStore.Filter filter) {
+    return columns.estimate(filter);
+  }
+
+  /** Stored relevance score per id from the score column, NaN where absent. */
+  public double[] relevanceScores(List<String> ids) {
+    return columns.scores(ids);
+  }
+
+  private ColumnarStore.Selection select(String operation, Supplier<ColumnarStore.Selection> body) {
+    ColumnarStore.Selection selection = time(operation, body);
+    items(operation, "matched", selection.matched());
+    return selection;
+  }
+
+  /**
+   * Cluster id of {@code article}: its canonical near-duplicate's id, assigning one if the article
+   * is new; see {@link NearDuplicateIndex}.
+   */
+  public String assignCanonicalId(NewsArticle article) {
+    return time("index.dedup", () -> duplicates.index(article));
+  }
+
+  /** Cluster id for an article id already indexed, or the id itself. */
+  public String canonicalId(String id) {
+    return duplicates.canonicalId(id);
+  }
+
+  /** Rebuilds the in-memory indexes, and the article cache if enabled, from one table scan. */
+  public void rebuildIndexes() {
+    long start = System.currentTimeMillis();
+    if (cache.isEnabled()) cache.beginLoad();
+    List<NewsArticle> all = time("scan", this::scanTable);
+    indexAll(all);
+    syncedAt = start;
+    indexesLoaded = true;
+  }
+
+  /**
+   * Whether the in-memory indexes hold the whole table, after {@link #rebuildIndexes} or {@link
+   * #restore}. Until then only articles saved since startup are indexed, and category and source
+   * lookups should go to {@link #queryByCategory} and {@link #queryBySource}.
+   */
+  public boolean indexesLoaded() {
+    return indexesLoaded;
+  }
+
+  /**
+   * Loads {@code snapshot} into the in-memory indexes and the article cache, then applies what was
+   * written since {@code sinceMillis}; see {@link #applyUpdatesSince}. Nothing is read from the
+   * table but those updates.
+   *
+   * @return the number of updates applied
+   * @throws IllegalStateException if the article cache is disabled
+   */
+  public int restore(List<NewsArticle> snapshot, long sinceMillis) {
+    requireCache();
+    cache.beginLoad();
+    time("index", () -> indexAll(snapshot));
+    int updates = applyUpdatesSince(sinceMillis);
+    indexesLoaded = true;
+    return updates;
+  }
+
+  /**
+   * Re-indexes every article written, by any node, since {@code sinceMillis} as read by {@link
+   * #findUpdatedSince}, and moves {@link #syncedThrough} up to now. A cheap catch-up in place of a
+   * full reload when the last sync is recent. Needs the article cache: the previous version of an
+   * update comes from it, and the indexes hold only ids.
+   *
+   * @return the number of updates applied
+   * @throws IllegalStateException if the article cache is disabled
+   */
+  public int applyUpdatesSince(long sinceMillis) {
+    requireCache();
+    long start = System.currentTimeMillis();
+    List<NewsArticle> updates = findUpdatedSince(sinceMillis);
+    time(
+        "index",
+        () -> {
+          for (NewsArticle a : updates) {
+            NewsArticle previous = cache.get(a.getId()).orElse(null);
+            if (a.equals(previous)) continue;
+            searchIndex.index(a);
+            geoIndex.index(a);
+            columns.index(a);
+            duplicates.index(a);
+            cache.put(a);
+            changed(previous, a);
+          }
+        });
+    syncedAt = start;
+    return updates.size();
+  }
+
+  /**
+   * Articles written at or after {@code sinceMillis}, from the {@link NewsArticle#UPDATES_INDEX}
+   * GSI: one query per shard for each UTC day from then until now. Articles written before that
+   * index existed carry no update time and are never returned.
+   */
+  public List<NewsArticle> findUpdatedSince(long sinceMillis) {
+    LocalDate from = utcDay(sinceMillis);
+    LocalDate to = utcDay(System.currentTimeMillis());
+    List<NewsArticle> out =
+        time(
+            "query.updates",
+            () -> {
+              List<NewsArticle> found = new ArrayList<>();
+              for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                for (int shard = 0; shard < UPDATE_SHARDS; shard++) {
+                  String bucket = updateBucket(day, shard);
+                  QueryEnhancedRequest request =
+                      QueryEnhancedRequest.builder()
+                          .queryConditional(
+                              QueryConditional.sortGreaterThanOrEqualTo(
+                                  k -> k.partitionValue(bucket).sortValue(sinceMillis)))
+                          .build();
+                  table.index(NewsArticle.UPDATES_INDEX).query(request).stream()
+                      .forEach(page -> found.addAll(page.items()));
+                }
+              }
+              return found;
+            });
+    items("query.updates", "read", out.size());
+    return out;
+  }
+
+  /**
+   * Time up to which every write, from any node, is reflected here: the start of the last full load
+   * or snapshot restore. Writes seen since then are not counted, since other nodes' writes in the
+   * same window may still be missing.
+   */
+  public long syncedThrough() {
+    return syncedAt;
+  }
+
+  /** Whether the article cache is enabled, so a full copy of the table is kept in memory. */
+  public boolean cachesArticles() {
+    return cache.isEnabled();
+  }
+
+  /** Every article, if the article cache holds a full copy; never reads the table. */
+  public Optional<List<NewsArticle>> cachedArticles() {
+    return cache.isWarm() ? Optional.of(cache.all()) : Optional.empty();
+  }
+
+  private void indexAll(List<NewsArticle> all) {
+    searchIndex.clear();
+    geoIndex.clear();
+    columns.clear();
+    duplicates.clear();
+    for (NewsArticle article : all) {
+      searchIndex.index(article);
+      geoIndex.index(article);
+      columns.index(article);
+      duplicates.index(article);
+    }
+    if (cache.isEnabled()) cache.load(all);
+  }
+
+  /** Indexes and caches an article this node has just written. */
+  private void index(NewsArticle article) {
+    searchIndex.index(article);
+    geoIndex.index(article);
+    columns.index(article);
+    duplicates.index(article);
+    cache.put(article);
+  }
+
+  private void requireCache() {
+    if (!cache.isEnabled()) {
+      throw new IllegalStateException(
+          "Replaying updates needs news.cache.enabled to tell edits from new articles");
+    }
+  }
+
+  private void changed(NewsArticle previous, NewsArticle current) {
+    for (ArticleChangeListener l : listeners) {
+      try {
+        l.onArticleChanged(previous, current);
+      } catch (RuntimeException e) {
+        System.out.println("Article change listener failed: " + e.getMessage());
+      }
+    }
+  }
+
+  private <T> T time(String operation, Supplier<T> body) {
+    return metrics.time("news.repository.operation", body, "operation", operation);
+  }
+
+  private <T> CompletableFuture<T> timeAsync(
+      String operation, Supplier<CompletableFuture<T>> body) {
+    return metrics.timeAsync("news.repository.operation", body, "operation", operation);
+  }
+
+  /** The blocking read as a completed (or failed) future, for when there is no async client. */
+  private static <T> CompletableFuture<T> completed(Supplier<T> read) {
+    try {
+      return CompletableFuture.completedFuture(read.get());
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** The first page a publisher emits, or null if it emits none. */
+  private static <T> CompletableFuture<T> firstPage(SdkPublisher<T> pages) {
+    AtomicReference<T> first = new AtomicReference<>();
+    return pages.limit(1).subscribe(first::set).thenApply(done -> first.get());
+  }
+
+  private void time(String operation, Runnable body) {
+    metrics.time("news.repository.operation", body, "operation", operation);
+  }
+
+  private void items(String operation, String kind, int count) {
+    metrics.record("news.repository.items", count, "operation", operation, "kind", kind);
+  }
+
+  private void prepare(NewsArticle article) {
+    article.setSourceKey(
+        article.getSourceName() == null ? null : article.getSourceName().toLowerCase(Locale.ROOT));
+    // Strictly increasing per node, so the write time doubles as a sequence number.
+    long now = System.currentTimeMillis();
+    long updatedAt = lastWrite.updateAndGet(last -> Math.max(last + 1, now));
+    article.setUpdatedAt(updatedAt);
+    article.setUpdateBucket(
+        updateBucket(utcDay(updatedAt), Math.floorMod(article.getId().hashCode(), UPDATE_SHARDS)));
+  }
+
+  /**
+   * Stores the article's cluster on it, so the table agrees with {@link #canonicalId} for readers
+   * that only see the stored row.
+   */
+  private void stampCluster(NewsArticle article) {
+    if (article.getCanonicalId() == null) article.setCanonicalId(duplicates.index(article));
+  }
+
+  private static LocalDate utcDay(long epochMillis) {
+    return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+  }
+
+  private static String updateBucket(LocalDate day, int shard) {
+    return day + "#" + shard;
+  }
+
+  private static List<CategoryIndexEntry> categoryEntries(NewsArticle article) {
+    if (CollectionUtils.isEmpty(article.getCategory())) return List.of();
+    Map<String, CategoryIndexEntry> out = new LinkedHashMap<>();
+    for (String c : article.getCategory()) {
+      if (c != null && !c.isBlank())
+        out.putIfAbsent(c.toLowerCase(Locale.ROOT), CategoryIndexEntry.of(c, article));
+    }
+    return new ArrayList<>(out.values());
+  }
+
+  private void batchWrite(List<Object> puts) {
+    List<NewsArticle> articles = new ArrayList<>();
+    List<CategoryIndexEntry> entries = new ArrayList<>();
+    for (Object o : puts) {
+      if (o instanceof NewsArticle a) articles.add(a);
+      else entries.add((CategoryIndexEntry) o);
+    }
+    for (int attempt = 1; ; attempt++) {
+      List<WriteBatch> batches = new ArrayList<>(2);
+      if (!articles.isEmpty()) {
+        WriteBatch.Builder<NewsArticle> b =
+            WriteBatch.builder(NewsArticle.class).mappedTableResource(table);
+        articles.forEach(b::addPutItem);
+        batches.add(b.build());
+      }
+      if (!entries.isEmpty()) {
+        WriteBatch.Builder<CategoryIndexEntry> b =
+            WriteBatch.builder(CategoryIndexEntry.class).mappedTableResource(categoryTable);
+        entries.forEach(b::addPutItem);
+        batches.add(b.build());
+      }
+      if (batches.isEmpty()) return;
+
+      BatchWriteResult result = enhancedClient.batchWriteItem(r -> r.writeBatches(batches));
+      articles = result.unprocessedPutItemsForTable(table);
+      entries = result.unprocessedPutItemsForTable(categoryTable);
+      if (articles.isEmpty() && entries.isEmpty()) return;
+      if (attempt >= MAX_BATCH_ATTEMPTS) {
+        throw new IllegalStateException(
+            "BatchWriteItem left "
+                + (articles.size() + entries.size())
+                + " unprocessed items after "
+                + attempt
+                + " attempts");
+      }
+      backoff("BatchWriteItem", attempt);
+    }
+  }
+
+  /**
+   * Reads articles with BatchGetItem, {@value #MAX_BATCH_GET} keys per request. Unprocessed keys
+   * are retried with exponential backoff, as in {@link #batchWrite}, and an {@link
+   * IllegalStateException} is thrown if they still cannot be read, so an id missing from the result
+   * is one the table does not have.
+   */
+  private Map<String, NewsArticle> batchGet(Collection<String> ids) {
+    Map<String, NewsArticle> out = new HashMap<>();
+    List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+    for (int i = 0; i < unique.size(); i += MAX_BATCH_GET) {
+      List<Key> keys =
+          unique.subList(i, Math.min(unique.size(), i + MAX_BATCH_GET)).stream()
+              .map(id -> Key.builder().partitionValue(id).build())
+              .toList();
+      for (int attempt = 1; ; attempt++) {
+        ReadBatch.Builder<NewsArticle> batch =
+            ReadBatch.builder(NewsArticle.class).mappedTableResource(table);
+        keys.forEach(batch::addGetItem);
+        // First page only: later pages re-request unprocessed keys at once, with no backoff.
+        BatchGetResultPage page =
+            enhancedClient.batchGetItem(r -> r.readBatches(batch.build())).iterator().next();
+        page.resultsForTable(table).forEach(a -> out.put(a.getId(), a));
+        keys = page.unprocessedKeysForTable(table);
+        if (keys.isEmpty()) break;
+        if (attempt >= MAX_BATCH_ATTEMPTS) {
+          throw new IllegalStateException(
+              "BatchGetItem left "
+                  + keys.size()
+                  + " unprocessed keys after "
+                  + attempt
+                  + " attempts");
+        }
+        backoff("BatchGetItem", attempt);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * {@link #batchGet} on the async client. Chunks go out together, and a chunk's unprocessed keys
+   * are requested again after a timer rather than a sleep.
+   */
+  private CompletableFuture<Map<String, NewsArticle>> batchGetAsync(Collection<String> ids) {
+    Map<String, NewsArticle> out = new ConcurrentHashMap<>();
+    List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+    List<CompletableFuture<Void>> chunks = new ArrayList<>();
+    for (int i = 0; i < unique.size(); i += MAX_BATCH_GET) {
+      List<Key> keys =
+          unique.subList(i, Math.min(unique.size(), i + MAX_BATCH_GET)).stream()
+              .map(id -> Key.builder().partitionValue(id).build())
+              .toList();
+      chunks.add(batchGetAsync(keys, 1, out));
+    }
+    return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenApply(done -> out);
+  }
+
+  private CompletableFuture<Void> batchGetAsync(
+      List<Key> keys, int attempt, Map<String, NewsArticle> out) {
+    ReadBatch.Builder<NewsArticle> batch =
+        ReadBatch.builder(NewsArticle.class).mappedTableResource(asyncTable);
+    keys.forEach(batch::addGetItem);
+    // First page only, as in batchGet.
+    return firstPage(asyncClient.batchGetItem(r -> r.readBatches(batch.build())))
+        .thenCompose(
+            page -> {
+              page.resultsForTable(asyncTable).forEach(a -> out.put(a.getId(), a));
+              List<Key> unprocessed = page.unprocessedKeysForTable(asyncTable);
+              if (unprocessed.isEmpty()) return CompletableFuture.completedFuture(null);
+              if (attempt >= MAX_BATCH_ATTEMPTS) {
+                throw new IllegalStateException(
+                    "BatchGetItem left "
+                        + unprocessed.size()
+                        + " unprocessed keys after "
+                        + attempt
+                        + " attempts");
+              }
+              Executor later =
+                  CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS);
+              return CompletableFuture.runAsync(() -> {}, later)
+                  .thenCompose(waited -> batchGetAsync(unprocessed, attempt + 1, out));
+            });
+  }
+
+  private static long backoffMillis(int attempt) {
+    return Math.min(5_000L, 50L << attempt);
+  }
+
+  private static void backoff(String operation, int attempt) {
+    try {
+      Thread.sleep(backoffMillis(attempt));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while retrying " + operation, e);
+    }
   }
 }
@@ -0,0 +1,434 @@
+package com.example.news.service;
+
+import com.example.news.index.GeoUtils;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
+import com.example.news.repository.ArticleChangeListener;
+import com.example.news.repository.NewsRepository;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Streams composite query results to subscribers, then keeps pushing newly saved articles that
+ * match the same filters.
+ *
+ * <p>A subscription first receives its ranked results, computed once by {@link
+ * NewsService#fetchNewsArticlesMatching} on the subscribing thread, as {@code result} events
+ * followed by one {@code live} event. After that every article {@link NewsRepository#save} reports
+ * as new and that passes the filters is sent as an {@code article} event. Text filters match
+ * articles holding every query term, as search does; with {@code news.dedup.collapse} copies of a
+ * story already seen are not pushed.
+ *
+ * <p>Fan-out runs on the saving thread and never blocks it: subscriptions are indexed by category
+ * and source so a save only checks the ones it can match, and a match is offered to the
+ * subscriber's buffer of {@code news.stream.bufferSize} articles. Buffers are drained to their
+ * sinks by {@code news.stream.senderThreads} shared threads. When a buffer is full the article is
+ * dropped and the subscriber gets a {@code gap} event with the count once it catches up; one that
+ * falls a whole buffer behind is disconnected. Idle subscribers get a comment every {@code
+ * news.stream.heartbeatSeconds}, which also finds closed connections.
+ *
+ * <p>Sinks may block, so a write that takes longer than {@code news.stream.sendTimeoutMs} is
+ * abandoned: the subscriber is disconnected and the pool gets a thread in place of the stuck one
+ * until the write returns, so one stalled client cannot hold up the others. The sink is only closed
+ * once no write to it is in progress.
+ */
+@Service
+public class ArticleStream implements ArticleChangeListener {
+
+  /** Where a subscription's events go; typically an SSE connection. */
+  public interface Sink {
+    void send(String event, Object data) throws IOException;
+
+    void comment(String text) throws IOException;
+
+    /** Ends the stream from the server side. */
+    void close();
+  }
+
+  private static final int SENDS_PER_TURN = 64;
+
+  private final NewsService newsService;
+  private final NewsMetrics metrics;
+  private final int bufferSize;
+  private final int maxSubscribers;
+  private final long sendTimeoutNanos;
+  private final boolean collapseDuplicates;
+  private final ThreadPoolExecutor senders;
+  private final ScheduledExecutorService heartbeats;
+
+  private final Set<Subscription> all = ConcurrentHashMap.newKeySet();
+  private final ConcurrentMap<String, Set<Subscription>> byCategory = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<Subscription>> bySource = new ConcurrentHashMap<>();
+  private final Set<Subscription> unkeyed = ConcurrentHashMap.newKeySet();
+  private final AtomicLong ids = new AtomicLong();
+
+  public ArticleStream(
+      NewsRepository newsRepository,
+      NewsService newsService,
+      NewsMetrics metrics,
+      @Value("${news.stream.bufferSize:256}") int bufferSize,
+      @Value("${news.stream.maxSubscribers:1000}") int maxSubscribers,
+      @Value("${news.stream.senderThreads:4}") int senderThreads,
+      @Value("${news.stream.heartbeatSeconds:15}") long heartbeatSeconds,
+      @Value("${news.stream.sendTimeoutMs:10000}") long sendTimeoutMs,
+      @Value("${news.dedup.collapse:true}") boolean collapseDuplicates) {
+    this.newsService = newsService;
+    this.metrics = metrics;
+    this.bufferSize = Math.max(1, bufferSize);
+    this.maxSubscribers = Math.max(0, maxSubscribers);
+    this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, sendTimeoutMs));
+    this.collapseDuplicates = collapseDuplicates;
+    AtomicInteger threads = new AtomicInteger();
+    int n = Math.max(1, senderThreads);
+    this.senders =
+        new ThreadPoolExecutor(
+            n,
+            n,
+            0,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> daemon(r, "stream-sender-" + threads.incrementAndGet()));
+    this.heartbeats =
+        Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "stream-heartbeat"));
+    if (heartbeatSeconds > 0) {
+      heartbeats.scheduleAtFixedRate(
+          this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+    if (sendTimeoutMs > 0) {
+      long period = Math.max(50, sendTimeoutMs / 2);
+      heartbeats.scheduleWithFixedDelay(
+          this::abandonStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+    newsRepository.addChangeListener(this);
+    Gauge.builder("news.stream.subscribers", all, Set::size).register(metrics.registry());
+  }
+
+  /**
+   * Opens a subscription: up to {@code initialLimit} ranked results (none when 0, or when {@code
+   * criteria} has no filters), then live articles. Returns empty when {@code
+   * news.stream.maxSubscribers} are already open. The results are ranked on the calling thread; the
+   * sender pool only writes them.
+   */
+  public Optional<Subscription> subscribe(
+      QueryPlanner.Criteria criteria, int initialLimit, Sink sink) {
+    Subscription s = new Subscription(ids.incrementAndGet(), criteria, sink);
+    synchronized (all) {
+      if (all.size() >= maxSubscribers) return Optional.empty();
+      all.add(s);
+    }
+    // Registered before the initial query runs, so nothing saved in between is missed.
+    keysOf(s).forEach(set -> set.add(s));
+    List<ScoredArticle> initial;
+    try {
+      initial =
+          initialLimit <= 0 || criteria.filters().isEmpty()
+              ? List.of()
+              : newsService.fetchNewsArticlesMatching(criteria, 0, initialLimit);
+    } catch (RuntimeException e) {
+      s.close();
+      throw e;
+    }
+    for (ScoredArticle a : initial) s.initialIds.add(a.getArticle().getId());
+    s.results = initial.size();
+    s.initial = new ArrayDeque<>(initial);
+    s.schedule();
+    return Optional.of(s);
+  }
+
+  public int subscribers() {
+    return all.size();
+  }
+
+  @Override
+  public void onArticleChanged(NewsArticle previous, NewsArticle current) {
+    // Only new articles are pushed; edits such as added summaries are not news.
+    if (previous != null || current == null || current.getId() == null || all.isEmpty()) return;
+    if (collapseDuplicates
+        && current.getCanonicalId() != null
+        && !current.getCanonicalId().equals(current.getId())) {
+      return;
+    }
+    Set<Subscription> candidates = new HashSet<>(unkeyed);
+    if (current.getCategory() != null) {
+      for (String c : current.getCategory()) {
+        Set<Subscription> subs = c == null ? null : byCategory.get(QueryResultCache.normalize(c));
+        if (subs != null) candidates.addAll(subs);
+      }
+    }
+    if (current.getSourceName() != null) {
+      Set<Subscription> subs = bySource.get(QueryResultCache.normalize(current.getSourceName()));
+      if (subs != null) candidates.addAll(subs);
+    }
+    Set<String> terms = null;
+    for (Subscription s : candidates) {
+      QueryPlanner.Criteria c = s.criteria;
+      if (c.text() != null && terms == null) {
+        terms = new HashSet<>(SearchIndex.tokenize(current.getTitle()));
+        terms.addAll(SearchIndex.tokenize(current.getDescription()));
+      }
+      Double distance = distanceIfMatching(c, current, terms);
+      if (distance == null) continue;
+      s.offer(
+          ScoredArticle.ranked(
+              current, current.getRelevanceScore(), distance.isNaN() ? null : distance));
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    heartbeats.shutdownNow();
+    senders.shutdownNow();
+    for (Subscription s : List.copyOf(all)) s.close();
+  }
+
+  /**
+   * Distance from the subscription's point (NaN without one) if {@code a} passes every filter of
+   * {@code c}, else null. {@code terms} are the article's tokens, needed only with a text filter.
+   */
+  private static Double distanceIfMatching(
+      QueryPlanner.Criteria c, NewsArticle a, Set<String> terms) {
+    if (c.category() != null
+        && (a.getCategory() == null
+            || a.getCategory().stream().noneMatch(c.category()::equalsIgnoreCase))) {
+      return null;
+    }
+    if (c.source() != null && !c.source().equalsIgnoreCase(a.getSourceName())) return null;
+    if (c.minScore() != null
+        && (a.getRelevanceScore() == null || a.getRelevanceScore() < c.minScore())) {
+      return null;
+    }
+    if (c.text() != null) {
+      List<String> query = SearchIndex.tokenize(c.text());
+      if (query.isEmpty() || !terms.containsAll(query)) return null;
+    }
+    if (!c.hasLocation()) return Double.NaN;
+    if (a.getLatitude() == null || a.getLongitude() == null) return null;
+    double d = GeoUtils.haversineKm(c.lat(), c.lon(), a.getLatitude(), a.getLongitude());
+    return d <= c.radiusKm() ? d : null;
+  }
+
+  /** The index sets a subscription is kept in: its category, else its source, else unkeyed. */
+  private List<Set<Subscription>> keysOf(Subscription s) {
+    QueryPlanner.Criteria c = s.criteria;
+    if (c.category() != null) {
+      return List.of(
+          byCategory.computeIfAbsent(
+              QueryResultCache.normalize(c.category()), k -> ConcurrentHashMap.newKeySet()));
+    }
+    if (c.source() != null) {
+      return List.of(
+          bySource.computeIfAbsent(
+              QueryResultCache.normalize(c.source()), k -> ConcurrentHashMap.newKeySet()));
+    }
+    return List.of(unkeyed);
+  }
+
+  /** Disconnects subscribers whose sink has been blocked longer than the send timeout. */
+  private void abandonStalled() {
+    long now = System.nanoTime();
+    for (Subscription s : all) {
+      if (s.sending && now - s.sendStarted > sendTimeoutNanos) s.abandon();
+    }
+  }
+
+  /** Adds or removes a sender thread, for one blocked in an abandoned write. */
+  private synchronized void resizeSenders(int delta) {
+    if (senders.isShutdown()) return;
+    if (delta > 0) {
+      senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+      senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+    } else {
+      senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+      senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+    }
+  }
+
+  private void heartbeat() {
+    for (Subscription s : all) {
+      s.heartbeatDue = true;
+      s.schedule();
+    }
+  }
+
+  private static Thread daemon(Runnable r, String name) {
+    Thread t = new Thread(r, name);
+    t.setDaemon(true);
+    return t;
+  }
+
+  private interface SinkCall {
+    void on(Sink sink) throws IOException;
+  }
+
+  /** One open stream. */
+  public final class Subscription {
+    private final long id;
+    private final QueryPlanner.Criteria criteria;
+    private final Sink sink;
+    private final BlockingQueue<ScoredArticle> buffer = new ArrayBlockingQueue<>(bufferSize);
+    private final Set<String> initialIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean sinkClosed = new AtomicBoolean();
+    private final AtomicBoolean abandoned = new AtomicBoolean();
+    private final AtomicBoolean replaced = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private volatile long droppedReported;
+
+    /** Ranked results still to send, null until they are computed; then the live phase. */
+    private volatile Queue<ScoredArticle> initial;
+
+    private int results;
+    private boolean live;
+    private volatile boolean heartbeatDue;
+    private volatile boolean sending;
+    private volatile long sendStarted;
+
+    private Subscription(long id, QueryPlanner.Criteria criteria, Sink sink) {
+      this.id = id;
+      this.criteria = criteria;
+      this.sink = sink;
+    }
+
+    public long id() {
+      return id;
+    }
+
+    /** Live articles dropped because the buffer was full. */
+    public long dropped() {
+      return dropped.get();
+    }
+
+    /** Live articles sent. */
+    public long sent() {
+      return sent.get();
+    }
+
+    public boolean isOpen() {
+      return !closed.get();
+    }
+
+    /**
+     * Unsubscribes and ends the stream; safe to call more than once. A write in progress is not
+     * waited for: the sink is closed when it returns.
+     */
+    public void close() {
+      if (!closed.compareAndSet(false, true)) return;
+      all.remove(this);
+      keysOf(this).forEach(set -> set.remove(this));
+      buffer.clear();
+      if (!sending) closeSink();
+    }
+
+    private void closeSink() {
+      if (sinkClosed.compareAndSet(false, true)) sink.close();
+    }
+
+    /** Gives up on a write that has not returned, and covers its thread until it does. */
+    private void abandon() {
+      if (!abandoned.compareAndSet(false, true)) return;
+      metrics.increment("news.stream.disconnected", "reason", "stalled");
+      close();
+      resizeSenders(1);
+      if (!sending) release();
+    }
+
+    private void release() {
+      if (replaced.compareAndSet(false, true)) resizeSenders(-1);
+    }
+
+    private void send(String event, Object data) throws IOException {
+      write(k -> k.send(event, data));
+    }
+
+    /** Runs one sink call, visible to the stall check while it lasts. */
+    private void write(SinkCall call) throws IOException {
+      sendStarted = System.nanoTime();
+      sending = true;
+      try {
+        if (!closed.get()) call.on(sink);
+      } finally {
+        sending = false;
+        if (closed.get()) closeSink();
+        if (abandoned.get()) release();
+      }
+    }
+
+    private void offer(ScoredArticle article) {
+      if (closed.get()) return;
+      if (buffer.offer(article)) {
+        schedule();
+        return;
+      }
+      metrics.increment("news.stream.dropped");
+      if (dropped.incrementAndGet() - droppedReported >= bufferSize) {
+        // A whole buffer behind: the client cannot keep up, let it reconnect and re-query.
+        metrics.increment("news.stream.disconnected", "reason", "slow");
+        close();
+      }
+    }
+
+    /** Queues a drain on the sender pool unless one is queued or running. */
+    private void schedule() {
+      if (initial == null || closed.get() || !scheduled.compareAndSet(false, true)) return;
+      try {
+        senders.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        scheduled.set(false);
+      }
+    }
+
+    private void drain() {
+      try {
+        // Bounded turns keep one busy subscriber from holding a sender thread.
+        int n = 0;
+        ScoredArticle next;
+        while (n < SENDS_PER_TURN && !closed.get() && (next = initial.poll()) != null) {
+          send("result", next);
+          n++;
+        }
+        if (!live && initial.isEmpty() && !closed.get()) {
+          send("live", Map.of("results", results));
+          live = true;
+          metrics.record("news.stream.items", results, "kind", "initial");
+          n++;
+        }
+        while (live && n < SENDS_PER_TURN && !closed.get() && (next = buffer.poll()) != null) {
+          if (initialIds.remove(next.getArticle().getId())) continue;
+          send("article", next);
+          sent.incrementAndGet();
+          n++;
+        }
+        // Drops happen while the buffer is full, so they come after everything buffered.
+        long lost = dropped.get() - droppedReported;
+        if (live && lost > 0 && buffer.isEmpty()) {
+          send("gap", Map.of("dropped", lost));
+          droppedReported += lost;
+          n++;
+        }
+        if (n == 0 && heartbeatDue) write(k -> k.comment("keepalive"));
+        heartbeatDue = false;
+      } catch (IOException | RuntimeException e) {
+        if (isOpen()) metrics.increment("news.stream.disconnected", "reason", "error");
+        close();
+        return;
+      } finally {
+        scheduled.set(false);
+      }
+      if (!live || !initial.isEmpty() || !buffer.isEmpty() || dropped.get() > droppedReported) {
+        schedule();
+      }
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.news.service;
+
+/**
+ * How a request waits on DynamoDB and the LLM. {@code news.execution.mode} picks the one the read
+ * endpoints use.
+ */
+public enum ExecutionMode {
+  /** The request thread makes each call and blocks until it returns. */
+  BLOCKING,
+  /**
+   * Calls go out on the async DynamoDB client and a non-blocking {@code WebClient}; the request
+   * thread is released and the response is written when the returned future completes.
+   */
+  ASYNC
+}
@@ -0,0 +1,42 @@
+package com.example.news.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/** Helpers for code that runs the same way whether its I/O has completed or is still running. */
+final class Futures {
+
+  private Futures() {}
+
+  /** The future {@code body} returns, or a failed one if it throws instead. */
+  static <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> body) {
+    try {
+      return body.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** Waits for {@code future} and rethrows what it failed with, not the wrapper. */
+  static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = unwrap(e);
+      if (cause instanceof RuntimeException r) throw r;
+      if (cause instanceof Error err) throw err;
+      throw e;
+    }
+  }
+
+  /** The failure inside the {@link CompletionException}/{@link ExecutionException} wrappers. */
+  static Throwable unwrap(Throwable e) {
+    while ((e instanceof CompletionException || e instanceof ExecutionException)
+        && e.getCause() != null) {
+      e = e.getCause();
+    }
+    return e;
+  }
+}
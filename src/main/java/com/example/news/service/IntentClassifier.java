@@ -0,0 +1,252 @@
+package com.example.news.service;
+
+import com.example.news.index.SearchIndex;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleChangeListener;
+import com.example.news.repository.NewsRepository;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rule- and dictionary-based intent classifier for free-text queries, tried before the LLM.
+ *
+ * <p>The dictionaries are the category and source names seen in the corpus: loaded from the
+ * repository on first use and kept current through {@link ArticleChangeListener}. A query is
+ * classified only when exactly one rule fires and every other word is filler ("latest", "news",
+ * "from", ...); anything ambiguous returns empty so the caller can ask the LLM.
+ */
+@Component
+public class IntentClassifier implements ArticleChangeListener {
+
+  public static final String CATEGORY = "category";
+  public static final String SOURCE = "source";
+  public static final String NEARBY = "nearby";
+  public static final String SCORE = "score";
+  public static final String SEARCH = "search";
+
+  static final double DEFAULT_MIN_SCORE = 0.7;
+
+  /** Longest dictionary phrase, in tokens, that is looked for in a query. */
+  private static final int MAX_PHRASE_TOKENS = 6;
+
+  /** Plain keyword queries up to this many words go straight to search. */
+  private static final int MAX_KEYWORD_TOKENS = 4;
+
+  private static final Set<String> FILLER =
+      Set.of(
+          "a",
+          "above",
+          "about",
+          "all",
+          "an",
+          "any",
+          "are",
+          "article",
+          "articles",
+          "by",
+          "can",
+          "for",
+          "from",
+          "get",
+          "give",
+          "headlines",
+          "i",
+          "in",
+          "is",
+          "latest",
+          "me",
+          "most",
+          "new",
+          "news",
+          "of",
+          "on",
+          "over",
+          "please",
+          "recent",
+          "see",
+          "show",
+          "some",
+          "stories",
+          "story",
+          "the",
+          "to",
+          "today",
+          "top",
+          "updates",
+          "what",
+          "whats",
+          "with");
+
+  private static final Set<String> QUESTION_WORDS =
+      Set.of("who", "why", "how", "when", "where", "which", "what", "whats", "did", "does");
+
+  private static final Set<String> NEARBY_CUES =
+      Set.of("near", "nearby", "around", "close", "local", "here", "me", "my", "area");
+
+  private static final Set<String> SCORE_CUES =
+      Set.of("relevant", "relevance", "score", "scored", "rated", "best", "highest", "important");
+
+  private static final Pattern SCORE_VALUE = Pattern.compile("(?<![\\d.])(0?\\.\\d+|1(?:\\.0+)?)");
+
+  public record Intent(String type, String entity, Double minScore) {}
+
+  private final NewsRepository repository;
+  private final Map<String, String> categories = new ConcurrentHashMap<>();
+  private final Map<String, String> sources = new ConcurrentHashMap<>();
+  private volatile boolean loaded;
+
+  public IntentClassifier(NewsRepository repository) {
+    this.repository = repository;
+    if (repository != null) repository.addChangeListener(this);
+  }
+
+  /** Returns the intent if the rules are confident, or empty to defer to the LLM. */
+  public Optional<Intent> classify(String query, boolean hasLocation) {
+    return classify(query, hasLocation, false);
+  }
+
+  /**
+   * The rules' best guess for when the LLM cannot answer in time: the one intent they found, else a
+   * search for the words no rule used, else for the whole query.
+   */
+  public Intent fallback(String query, boolean hasLocation) {
+    return classify(query, hasLocation, true).orElse(new Intent(SEARCH, query, null));
+  }
+
+  private Optional<Intent> classify(String query, boolean hasLocation, boolean guess) {
+    ensureLoaded();
+    List<String> tokens = SearchIndex.tokenize(query);
+    if (tokens.isEmpty()) return Optional.empty();
+    boolean[] used = new boolean[tokens.size()];
+
+    List<Intent> fired = new ArrayList<>(2);
+    String source = longestMatch(tokens, sources, used);
+    if (source != null) fired.add(new Intent(SOURCE, source, null));
+    String category = longestMatch(tokens, categories, used);
+    if (category != null) fired.add(new Intent(CATEGORY, category, null));
+    if (markCues(tokens, SCORE_CUES, used)) fired.add(new Intent(SCORE, null, minScore(query)));
+    boolean nearCue = markNearby(tokens, used);
+    if (nearCue) {
+      // "near Pune" needs geocoding: let the LLM try.
+      if (!hasLocation && !guess) return Optional.empty();
+      if (hasLocation) fired.add(new Intent(NEARBY, null, null));
+    }
+
+    List<String> rest = new ArrayList<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      String t = tokens.get(i);
+      if (!used[i] && !FILLER.contains(t) && !isNumber(t)) rest.add(t);
+    }
+    if (guess) {
+      if (fired.size() == 1) return Optional.of(fired.get(0));
+      return rest.isEmpty()
+          ? Optional.empty()
+          : Optional.of(new Intent(SEARCH, String.join(" ", rest), null));
+    }
+    if (fired.size() == 1) return rest.isEmpty() ? Optional.of(fired.get(0)) : Optional.empty();
+    if (fired.isEmpty()
+        && !rest.isEmpty()
+        && rest.size() <= MAX_KEYWORD_TOKENS
+        && tokens.stream().noneMatch(QUESTION_WORDS::contains)) {
+      return Optional.of(new Intent(SEARCH, String.join(" ", rest), null));
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public void onArticleChanged(NewsArticle previous, NewsArticle current) {
+    if (current != null) learn(current);
+  }
+
+  int categoryCount() {
+    return categories.size();
+  }
+
+  int sourceCount() {
+    return sources.size();
+  }
+
+  void learn(NewsArticle article) {
+    if (article.getCategory() != null) for (String c : article.getCategory()) add(categories, c);
+    add(sources, article.getSourceName());
+  }
+
+  private void ensureLoaded() {
+    if (loaded || repository == null) return;
+    synchronized (this) {
+      if (loaded) return;
+      try (Stream<NewsArticle> all = repository.streamAll("category", "sourceName")) {
+        all.forEach(this::learn);
+      }
+      loaded = true;
+    }
+  }
+
+  private static void add(Map<String, String> dictionary, String name) {
+    if (name == null) return;
+    List<String> tokens = SearchIndex.tokenize(name);
+    String phrase = String.join(" ", tokens);
+    // Single letters ("X") would match far too many queries.
+    if (tokens.isEmpty() || tokens.size() > MAX_PHRASE_TOKENS || phrase.length() < 2) return;
+    dictionary.putIfAbsent(phrase, name);
+  }
+
+  /** Finds the longest unused phrase from {@code dictionary} and marks its tokens used. */
+  private static String longestMatch(
+      List<String> tokens, Map<String, String> dictionary, boolean[] used) {
+    for (int n = Math.min(MAX_PHRASE_TOKENS, tokens.size()); n >= 1; n--) {
+      for (int i = 0; i + n <= tokens.size(); i++) {
+        if (anyUsed(used, i, n)) continue;
+        String name = dictionary.get(String.join(" ", tokens.subList(i, i + n)));
+        if (name != null) {
+          Arrays.fill(used, i, i + n, true);
+          return name;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean markCues(List<String> tokens, Set<String> cues, boolean[] used) {
+    boolean any = false;
+    for (int i = 0; i < tokens.size(); i++) {
+      if (!used[i] && cues.contains(tokens.get(i))) {
+        used[i] = true;
+        any = true;
+      }
+    }
+    return any;
+  }
+
+  /** "near me", "nearby", "around here", "in my area", "local"; a lone "me" is not a cue. */
+  private static boolean markNearby(List<String> tokens, boolean[] used) {
+    boolean cue = false;
+    for (String t : tokens) {
+      if (t.equals("near") || t.equals("nearby") || t.equals("around") || t.equals("local")) {
+        cue = true;
+      }
+    }
+    if (!cue) return false;
+    markCues(tokens, NEARBY_CUES, used);
+    return true;
+  }
+
+  private static boolean anyUsed(boolean[] used, int from, int n) {
+    for (int i = from; i < from + n; i++) if (used[i]) return true;
+    return false;
+  }
+
+  private static boolean isNumber(String token) {
+    for (int i = 0; i < token.length(); i++) if (!Character.isDigit(token.charAt(i))) return false;
+    return true;
+  }
+
+  private static double minScore(String query) {
+    Matcher m = SCORE_VALUE.matcher(query);
+    return m.find() ? Double.parseDouble(m.group(1)) : DEFAULT_MIN_SCORE;
+  }
+}
@@ -1,103 +1,372 @@
 package com.example.news.service;
 
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+/**
+ * Chat-completion calls to the LLM. Every call is admitted by the shared {@link LlmScheduler},
+ * which enforces the request and token budgets and retries throttled or failed calls.
+ */
 @Service
 public class LLMService {
 
+  /** JSON framing per article of a batched reply, on top of the summary itself. */
+  static final int BATCH_TOKENS_PER_ARTICLE = 24;
+
+  /** max_tokens of a query's entities-and-intent reply. */
+  private static final int ENTITY_MAX_TOKENS = 200;
+
+  private static final String SUMMARY_SYSTEM_PROMPT = "You are a brief summarizer.";
+  private static final String BATCH_SYSTEM_PROMPT =
+      "You are a brief summarizer. Summarize each news article you are given in 2-3 sentences."
+          + " Reply with only a JSON object of the form {\"summaries\": [{\"id\": \"<article"
+          + " number>\", \"summary\": \"...\"}]}, with one entry per article.";
+
+  /** Summaries by article id from one batched call, and the tokens it used (0 when cached). */
+  public record BatchSummaries(Map<String, String> byId, long tokens) {}
+
+  private record Completion(String content, long tokens) {}
+
+  /** A completion request body, its response cache key and its token estimate. */
+  private record Prompt(Map<String, Object> body, String key, long estimatedTokens, boolean json) {}
+
   private final WebClient webClient;
   private final String apiKey;
   private final String model;
+  private final int summaryMaxTokens;
+  private final LlmResponseCache cache;
+  private final LlmScheduler scheduler;
+  private final NewsMetrics metrics;
   private final ObjectMapper mapper = new ObjectMapper();
 
   public LLMService(
       @Value("${llm.openai.apiUrl}") String apiUrl,
       @Value("${OPENAI_API_KEY:}") String apiKey,
-      @Value("${llm.openai.model:gpt-4o-mini}") String model) {
+      @Value("${llm.openai.model:gpt-4o-mini}") String model,
+      @Value("${llm.summary.maxTokens:120}") int summaryMaxTokens,
+      LlmResponseCache cache,
+      LlmScheduler scheduler,
+      NewsMetrics metrics) {
     this.webClient = WebClient.builder().baseUrl(apiUrl).build();
     this.apiKey =
         System.getenv("OPENAI_API_KEY") != null ? System.getenv("OPENAI_API_KEY") : apiKey;
     this.model = model;
+    this.summaryMaxTokens = Math.max(1, summaryMaxTokens);
+    this.cache = cache;
+    this.scheduler = scheduler;
+    this.metrics = metrics;
+    FunctionCounter.builder("llm.cache.requests", cache, LlmResponseCache::hits)
+        .tag("result", "hit")
+        .register(metrics.registry());
+    FunctionCounter.builder("llm.cache.requests", cache, LlmResponseCache::misses)
+        .tag("result", "miss")
+        .register(metrics.registry());
+    FunctionCounter.builder("llm.cache.disk.hits", cache, LlmResponseCache::diskHits)
+        .register(metrics.registry());
+    FunctionCounter.builder("llm.cache.evictions", cache, LlmResponseCache::evictions)
+        .register(metrics.registry());
+    Gauge.builder("llm.cache.memory.bytes", cache, LlmResponseCache::memoryBytes)
+        .register(metrics.registry());
   }
 
   public String summarizeArticleSync(String title, String description) {
     if (apiKey == null || apiKey.isBlank()) return ""; // no API key -> skip
-    Map<String, Object> request =
-        Map.of(
-            "model",
-            model,
-            "messages",
-            List.of(
-                Map.of("role", "system", "content", "You are a brief summarizer."),
-                Map.of(
-                    "role",
-                    "user",
-                    "content",
-                    "Summarize the following news article in 2-3 sentences:\n\nTitle: "
-                        + title
-                        + "\n\n"
-                        + description)),
-            "max_tokens",
-            120);
-
-    Map response =
-        webClient
-            .post()
-            .header("Authorization", "Bearer " + apiKey)
-            .bodyValue(request)
-            .retrieve()
-            .bodyToMono(Map.class)
-            .block();
+    List<Map<String, String>> messages =
+        List.of(
+            Map.of("role", "system", "content", SUMMARY_SYSTEM_PROMPT),
+            Map.of(
+                "role",
+                "user",
+                "content",
+                "Summarize the following news article in 2-3 sentences:\n\nTitle: "
+                    + title
+                    + (description == null ? "" : "\n\n" + description)));
 
     try {
-      List choices = (List) response.get("choices");
-      Map first = (Map) choices.get(0);
-      Map msg = (Map) first.get("message");
-      return (String) msg.get("content");
+      String content =
+          complete(LlmScheduler.Priority.BACKGROUND, "summarize", messages, summaryMaxTokens, false)
+              .content();
+      return content == null ? "" : content;
     } catch (Exception e) {
       return "";
     }
   }
 
-  public Map<String, Object> extractEntitiesAndIntent(String userQuery) {
-    if (apiKey == null || apiKey.isBlank())
-      return Map.of("entities", List.of(), "intent", "search");
-    Map<String, Object> request =
+  /**
+   * The LLM's reading of a free-text query, or empty when there is no API key or no usable answer
+   * within the interactive retry budget and deadline.
+   */
+  public Optional<Map<String, Object>> extractEntitiesAndIntent(String userQuery) {
+    if (apiKey == null || apiKey.isBlank()) return Optional.empty();
+    try {
+      // Called on a request thread: admitted from the interactive budget, not the backfill's.
+      String content =
+          complete(
+                  LlmScheduler.Priority.INTERACTIVE,
+                  "entities",
+                  entityMessages(userQuery),
+                  ENTITY_MAX_TOKENS,
+                  false)
+              .content();
+      return Optional.of(mapper.readValue(content, Map.class));
+    } catch (Exception e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * {@link #extractEntitiesAndIntent} without blocking: the call is admitted with {@link
+   * LlmScheduler#callAsync} and sent without waiting on the response, and the future completes
+   * empty where the blocking version would return empty.
+   */
+  public CompletableFuture<Optional<Map<String, Object>>> extractEntitiesAndIntentAsync(
+      String userQuery) {
+    if (apiKey == null || apiKey.isBlank()) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+    Prompt prompt = prompt(entityMessages(userQuery), ENTITY_MAX_TOKENS, false);
+    Optional<String> cached = cache.get(prompt.key());
+    CompletableFuture<Completion> completion =
+        cached.isPresent()
+            ? CompletableFuture.completedFuture(new Completion(cached.get(), 0))
+            : Futures.call(
+                    () ->
+                        scheduler.callAsync(
+                            LlmScheduler.Priority.INTERACTIVE,
+                            "entities",
+                            prompt.estimatedTokens(),
+                            timeout -> sendAsync("entities", prompt.body(), timeout),
+                            LLMService::usage))
+                .thenApply(response -> completion(prompt, response));
+    return completion.handle(
+        (c, error) -> {
+          if (error != null) return Optional.empty();
+          try {
+            return Optional.of((Map<String, Object>) mapper.readValue(c.content(), Map.class));
+          } catch (Exception e) {
+            return Optional.empty();
+          }
+        });
+  }
+
+  private static List<Map<String, String>> entityMessages(String userQuery) {
+    return List.of(
         Map.of(
-            "model",
-            model,
-            "messages",
-            List.of(
-                Map.of(
-                    "role",
-                    "system",
-                    "content",
-                    "Extract entities and intent from the user query and return a JSON object like {\"entities\": [..], \"intent\": \"category|nearby|source|search|score\", \"extras\": {...}}"),
-                Map.of("role", "user", "content", userQuery)),
-            "max_tokens",
-            200);
+            "role",
+            "system",
+            "content",
+            "Extract entities and intent from the user query and return a JSON object like {\"entities\": [..], \"intent\": \"category|nearby|source|search|score\", \"extras\": {...}}"),
+        Map.of("role", "user", "content", userQuery));
+  }
+
+  /**
+   * Summarizes several articles with one call: they are numbered in a single prompt and the model
+   * answers with a JSON list of {@code {id, summary}}, its {@code max_tokens} being {@code
+   * llm.summary.maxTokens} per article plus the JSON framing. Articles the reply leaves out, or all
+   * of them if it is not valid JSON, are missing from the result; failures after the scheduler's
+   * retries are thrown.
+   */
+  public BatchSummaries summarizeBatch(List<NewsArticle> articles) {
+    if (apiKey == null || apiKey.isBlank() || articles.isEmpty()) {
+      return new BatchSummaries(Map.of(), 0);
+    }
+    // Short positional ids cost fewer tokens than article ids and are harder to garble.
+    StringBuilder prompt = new StringBuilder();
+    for (int i = 0; i < articles.size(); i++) {
+      NewsArticle a = articles.get(i);
+      prompt.append("Article ").append(i + 1).append("\nTitle: ").append(a.getTitle());
+      if (a.getDescription() != null) prompt.append("\n\n").append(a.getDescription());
+      prompt.append("\n\n");
+    }
+    List<Map<String, String>> messages =
+        List.of(
+            Map.of("role", "system", "content", BATCH_SYSTEM_PROMPT),
+            Map.of("role", "user", "content", prompt.toString().trim()));
+    int maxTokens = (summaryMaxTokens + BATCH_TOKENS_PER_ARTICLE) * articles.size();
+
+    Completion completion;
+    try {
+      completion =
+          complete(LlmScheduler.Priority.BACKGROUND, "summarize.batch", messages, maxTokens, true);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    Map<String, String> byId = new LinkedHashMap<>();
+    for (Map.Entry<Integer, String> e : parseSummaries(completion.content()).entrySet()) {
+      int i = e.getKey() - 1;
+      if (i >= 0 && i < articles.size()) byId.put(articles.get(i).getId(), e.getValue());
+    }
+    return new BatchSummaries(byId, completion.tokens());
+  }
+
+  /** Rough token count of {@code text}, at about four characters per token. */
+  public static long estimateTokens(String text) {
+    return text == null ? 0 : (text.length() + 3) / 4;
+  }
+
+  /** Article number to summary from a batched reply; empty if it is not the expected JSON. */
+  private Map<Integer, String> parseSummaries(String content) {
+    Map<Integer, String> out = new HashMap<>();
+    if (content == null) return out;
+    try {
+      Object summaries = mapper.readValue(content, Map.class).get("summaries");
+      if (!(summaries instanceof List<?> list)) return out;
+      for (Object item : list) {
+        if (!(item instanceof Map<?, ?> entry)) continue;
+        Object summary = entry.get("summary");
+        if (!(summary instanceof String text) || text.isBlank()) continue;
+        try {
+          out.put(Integer.parseInt(String.valueOf(entry.get("id")).trim()), text.trim());
+        } catch (NumberFormatException ignored) {
+          // Not one of the article numbers we sent.
+        }
+      }
+    } catch (JsonProcessingException e) {
+      // Fall through with whatever was parsed: nothing.
+    }
+    return out;
+  }
+
+  /**
+   * Sends one chat completion through the {@link LlmScheduler}, admitted from {@code priority}'s
+   * budget, and returns the first choice's content with the tokens it used. Identical (model,
+   * prompt) pairs are answered from {@link LlmResponseCache}; only non-empty responses are cached,
+   * and with {@code json} (which also asks for a JSON object response) only ones that parse.
+   */
+  private Completion complete(
+      LlmScheduler.Priority priority,
+      String operation,
+      List<Map<String, String>> messages,
+      int maxTokens,
+      boolean json)
+      throws JsonProcessingException {
+    Prompt prompt = prompt(messages, maxTokens, json);
+    Optional<String> cached = cache.get(prompt.key());
+    if (cached.isPresent()) return new Completion(cached.get(), 0);
 
     Map response =
-        webClient
-            .post()
-            .header("Authorization", "Bearer " + apiKey)
-            .bodyValue(request)
-            .retrieve()
-            .bodyToMono(Map.class)
-            .block();
+        scheduler.call(
+            priority,
+            operation,
+            prompt.estimatedTokens(),
+            timeout -> send(operation, prompt.body(), timeout),
+            LLMService::usage);
+    return completion(prompt, response);
+  }
+
+  private Prompt prompt(List<Map<String, String>> messages, int maxTokens, boolean json) {
+    Map<String, Object> request = new LinkedHashMap<>();
+    request.put("model", model);
+    request.put("messages", messages);
+    request.put("max_tokens", maxTokens);
+    if (json) request.put("response_format", Map.of("type", "json_object"));
+    long estimate = maxTokens;
+    for (Map<String, String> m : messages) estimate += estimateTokens(m.get("content"));
+    return new Prompt(request, cacheKey(model, messages, maxTokens, json), estimate, json);
+  }
+
+  /** The first choice's content of {@code response}, cached under the prompt's key if usable. */
+  private Completion completion(Prompt prompt, Map response) {
+    List choices = (List) response.get("choices");
+    Map first = (Map) choices.get(0);
+    Map msg = (Map) first.get("message");
+    String content = (String) msg.get("content");
+    if (content != null && !content.isEmpty() && (!prompt.json() || isJson(content))) {
+      cache.put(prompt.key(), content);
+    }
+    return new Completion(content, usage(response));
+  }
+
+  /**
+   * The {@link LlmResponseCache} key of a completion request. Built by explicit concatenation, not
+   * by serializing the maps, whose iteration order may differ between JVM runs: the on-disk tier is
+   * only useful if a restarted service derives the same key for the same prompt.
+   */
+  public static String cacheKey(
+      String model, List<Map<String, String>> messages, int maxTokens, boolean json) {
+    StringBuilder prompt = new StringBuilder();
+    prompt.append("max_tokens=").append(maxTokens).append("\njson=").append(json).append('\n');
+    for (Map<String, String> m : messages) {
+      // Length-prefixed, so no content can be mistaken for a message boundary.
+      appendField(prompt, m.get("role"));
+      appendField(prompt, m.get("content"));
+    }
+    return LlmResponseCache.key(model, prompt.toString());
+  }
 
+  private static void appendField(StringBuilder out, String value) {
+    String v = value == null ? "" : value;
+    out.append(v.length()).append(':').append(v).append('\n');
+  }
+
+  /** Posts {@code request}, waiting at most {@code timeout} for the answer when it is not null. */
+  private Map send(String operation, Map<String, Object> request, Duration timeout) {
+    Timer.Sample sample = Timer.start(metrics.registry());
+    String outcome = "error";
     try {
-      List choices = (List) response.get("choices");
-      Map first = (Map) choices.get(0);
-      Map msg = (Map) first.get("message");
-      String content = (String) msg.get("content");
-      return mapper.readValue(content, Map.class);
-    } catch (Exception e) {
-      return Map.of("entities", List.of(), "intent", "search");
+      Mono<Map> call = post(request);
+      Map response = timeout == null ? call.block() : call.block(timeout);
+      outcome = "success";
+      return response;
+    } finally {
+      sample.stop(metrics.timer("llm.call", "operation", operation, "outcome", outcome));
+    }
+  }
+
+  /** {@link #send} without waiting: the future fails after {@code timeout} when it is not null. */
+  private CompletableFuture<Map> sendAsync(
+      String operation, Map<String, Object> request, Duration timeout) {
+    Timer.Sample sample = Timer.start(metrics.registry());
+    Mono<Map> call = post(request);
+    return (timeout == null ? call : call.timeout(timeout))
+        .toFuture()
+        .whenComplete(
+            (response, error) ->
+                sample.stop(
+                    metrics.timer(
+                        "llm.call",
+                        "operation",
+                        operation,
+                        "outcome",
+                        error == null ? "success" : "error")));
+  }
+
+  private Mono<Map> post(Map<String, Object> request) {
+    return webClient
+        .post()
+        .header("Authorization", "Bearer " + apiKey)
+        .bodyValue(request)
+        .retrieve()
+        .bodyToMono(Map.class);
+  }
+
+  /** {@code usage.total_tokens} of a response, or 0 when it does not say. */
+  private static long usage(Map response) {
+    return response != null
+            && response.get("usage") instanceof Map<?, ?> usage
+            && usage.get("total_tokens") instanceof Number total
+        ? total.longValue()
+        : 0;
+  }
+
+  private boolean isJson(String content) {
+    try {
+      mapper.readTree(content);
+      return true;
+    } catch (JsonProcessingException e) {
+      return false;
     }
   }
 }
@@ -0,0 +1,220 @@
+package com.example.news.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed cache for LLM responses, keyed by SHA-256 of (model, prompt).
+ *
+ * <p>The memory tier is an LRU bounded by {@code llm.cache.maxBytes}. When {@code llm.cache.dir} is
+ * set, entries are also written to one file per key so they survive restarts; that tier is bounded
+ * by {@code llm.cache.diskMaxBytes} and trimmed oldest-first. Both tiers honour {@code
+ * llm.cache.ttlSeconds}.
+ */
+@Component
+public class LlmResponseCache {
+
+  /** Rough per-entry bookkeeping cost on top of the key and value characters. */
+  private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+  private final long maxBytes;
+  private final long ttlMillis;
+  private final Path dir;
+  private final long diskMaxBytes;
+
+  private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(256, 0.75f, true);
+  private long memoryBytes;
+  private final AtomicLong diskBytes = new AtomicLong();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  private record Entry(String value, long expiresAt, long bytes) {}
+
+  public LlmResponseCache(
+      @Value("${llm.cache.maxBytes:67108864}") long maxBytes,
+      @Value("${llm.cache.ttlSeconds:86400}") long ttlSeconds,
+      @Value("${llm.cache.dir:}") String dir,
+      @Value("${llm.cache.diskMaxBytes:536870912}") long diskMaxBytes) {
+    this.maxBytes = maxBytes;
+    this.ttlMillis = ttlSeconds * 1000L;
+    this.diskMaxBytes = diskMaxBytes;
+    this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+    if (this.dir != null) {
+      try {
+        Files.createDirectories(this.dir);
+        try (Stream<Path> files = Files.list(this.dir)) {
+          diskBytes.set(files.mapToLong(LlmResponseCache::sizeOf).sum());
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Cannot use LLM cache directory " + dir, e);
+      }
+    }
+  }
+
+  public static String key(String model, String prompt) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(model.getBytes(StandardCharsets.UTF_8));
+      md.update((byte) 0);
+      md.update(prompt.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(md.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public Optional<String> get(String key) {
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      Entry e = memory.get(key);
+      if (e != null) {
+        if (e.expiresAt() > now) {
+          hits.incrementAndGet();
+          return Optional.of(e.value());
+        }
+        removeLocked(key);
+      }
+    }
+    Optional<String> fromDisk = readDisk(key, now);
+    if (fromDisk.isPresent()) {
+      diskHits.incrementAndGet();
+      hits.incrementAndGet();
+      putMemory(key, fromDisk.get(), now + ttlMillis);
+      return fromDisk;
+    }
+    misses.incrementAndGet();
+    return Optional.empty();
+  }
+
+  public void put(String key, String value) {
+    if (value == null) return;
+    long expiresAt = System.currentTimeMillis() + ttlMillis;
+    putMemory(key, value, expiresAt);
+    writeDisk(key, value, expiresAt);
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long diskHits() {
+    return diskHits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  public long evictions() {
+    return evictions.get();
+  }
+
+  public synchronized long memoryBytes() {
+    return memoryBytes;
+  }
+
+  private synchronized void putMemory(String key, String value, long expiresAt) {
+    long bytes = ENTRY_OVERHEAD_BYTES + 2L * (key.length() + value.length());
+    if (bytes > maxBytes) return;
+    removeLocked(key);
+    memory.put(key, new Entry(value, expiresAt, bytes));
+    memoryBytes += bytes;
+    Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+    while (memoryBytes > maxBytes && it.hasNext()) {
+      memoryBytes -= it.next().getValue().bytes();
+      it.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  private void removeLocked(String key) {
+    Entry old = memory.remove(key);
+    if (old != null) memoryBytes -= old.bytes();
+  }
+
+  private Optional<String> readDisk(String key, long now) {
+    if (dir == null) return Optional.empty();
+    Path file = dir.resolve(key);
+    try {
+      String content = Files.readString(file, StandardCharsets.UTF_8);
+      int nl = content.indexOf('\n');
+      if (nl < 0 || Long.parseLong(content.substring(0, nl)) <= now) {
+        deleteDisk(file);
+        return Optional.empty();
+      }
+      return Optional.of(content.substring(nl + 1));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException | NumberFormatException e) {
+      deleteDisk(file);
+      return Optional.empty();
+    }
+  }
+
+  private void writeDisk(String key, String value, long expiresAt) {
+    if (dir == null) return;
+    Path file = dir.resolve(key);
+    try {
+      long previous = sizeOf(file);
+      Path tmp = Files.createTempFile(dir, key, ".tmp");
+      Files.writeString(tmp, expiresAt + "\n" + value, StandardCharsets.UTF_8);
+      long written = sizeOf(tmp);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      if (diskBytes.addAndGet(written - previous) > diskMaxBytes) trimDisk();
+    } catch (IOException e) {
+      // The disk tier is best effort; the memory tier already holds the value.
+    }
+  }
+
+  private synchronized void trimDisk() {
+    if (diskBytes.get() <= diskMaxBytes) return;
+    List<Path> files;
+    try (Stream<Path> s = Files.list(dir)) {
+      files = new ArrayList<>(s.toList());
+    } catch (IOException e) {
+      return;
+    }
+    files.sort(Comparator.comparingLong(LlmResponseCache::lastModified));
+    for (Path f : files) {
+      if (diskBytes.get() <= diskMaxBytes) break;
+      deleteDisk(f);
+      evictions.incrementAndGet();
+    }
+  }
+
+  private void deleteDisk(Path file) {
+    long size = sizeOf(file);
+    try {
+      if (Files.deleteIfExists(file)) diskBytes.addAndGet(-size);
+    } catch (IOException ignored) {
+      // Left for the next trim.
+    }
+  }
+
+  private static long sizeOf(Path p) {
+    try {
+      return Files.size(p);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static long lastModified(Path p) {
+    try {
+      return Files.getLastModifiedTime(p).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,403 @@
+package com.example.news.service;
+
+import com.example.news.metrics.NewsMetrics;
+import io.micrometer.core.instrument.Gauge;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * Admission control for LLM calls, shared by every caller so that together they stay inside the
+ * provider's limits.
+ *
+ * <p>A call holds one of {@code llm.limits.maxInFlight} permits from start to finish, then reserves
+ * one request from the {@code requestsPerMinute} bucket and its estimated tokens (prompt plus
+ * {@code max_tokens}) from the {@code tokensPerMinute} bucket, sleeping until both are covered.
+ * Once the response reports its actual usage the unused part of the estimate is refunded. A 429, a
+ * 5xx or a connection failure is retried up to {@code maxRetries} times after a full-jitter
+ * exponential backoff (uniform in [0, min(maxBackoffMs, backoffMs * 2^attempt)]), or after the
+ * server's {@code Retry-After} if that is longer; a 429 also drains both buckets so the calls
+ * queued behind it back off too.
+ *
+ * <p>Calls a request thread waits on ({@link Priority#INTERACTIVE}) are kept out of the background
+ * work's budget: they have their own {@code llm.limits.interactiveInFlight} permits and their own
+ * buckets holding {@code interactiveShare} of each per-minute limit, the background buckets holding
+ * the rest, so a backfill can neither hold their slots nor spend their tokens. They also get a
+ * smaller retry budget, {@code interactiveRetries}, and an overall {@code interactiveDeadlineMs}
+ * covering the slot, rate-limit waits, backoffs and the requests themselves; a call that cannot
+ * finish inside it fails with {@link DeadlineExceededException} so the caller can fall back.
+ *
+ * <p>{@link #callAsync} applies the same rules without holding a thread: waits are timers, and a
+ * caller finding every permit taken checks again every {@value #SLOT_POLL_MILLIS} ms.
+ */
+@Component
+public class LlmScheduler {
+
+  /** Which budget a call is admitted from. */
+  public enum Priority {
+    /** A request thread is waiting on the call. */
+    INTERACTIVE,
+    /** Summaries and backfills; nobody is blocked on one call. */
+    BACKGROUND
+  }
+
+  /** An interactive call ran out of time before it could be sent or answered. */
+  public static final class DeadlineExceededException extends RuntimeException {
+    DeadlineExceededException(String operation) {
+      super("No LLM answer for " + operation + " within the interactive deadline");
+    }
+  }
+
+  /** How often {@link #callAsync} looks for a free permit while all are taken. */
+  static final long SLOT_POLL_MILLIS = 5;
+
+  /** Counts since startup. */
+  public record Stats(
+      long calls, long retries, long throttled, long failures, long tokens, int inFlight) {}
+
+  private final Lane interactive;
+  private final Lane background;
+  private final long backoffMillis;
+  private final long maxBackoffMillis;
+  private final NewsMetrics metrics;
+
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong throttled = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong tokensUsed = new AtomicLong();
+
+  public LlmScheduler(
+      @Value("${llm.limits.requestsPerMinute:500}") long requestsPerMinute,
+      @Value("${llm.limits.tokensPerMinute:200000}") long tokensPerMinute,
+      @Value("${llm.limits.maxInFlight:8}") int maxInFlight,
+      @Value("${llm.limits.interactiveInFlight:2}") int interactiveInFlight,
+      @Value("${llm.limits.interactiveShare:0.1}") double interactiveShare,
+      @Value("${llm.limits.interactiveRetries:1}") int interactiveRetries,
+      @Value("${llm.limits.interactiveDeadlineMs:2000}") long interactiveDeadlineMillis,
+      @Value("${llm.limits.maxRetries:5}") int maxRetries,
+      @Value("${llm.limits.backoffMs:500}") long backoffMillis,
+      @Value("${llm.limits.maxBackoffMs:30000}") long maxBackoffMillis,
+      NewsMetrics metrics) {
+    double share = Math.max(0, Math.min(1, interactiveShare));
+    long interactiveRequests = Math.max(1, Math.round(requestsPerMinute * share));
+    long interactiveTokens = Math.max(1, Math.round(tokensPerMinute * share));
+    this.interactive =
+        new Lane(
+            interactiveRequests,
+            interactiveTokens,
+            Math.max(1, interactiveInFlight),
+            Math.max(0, interactiveRetries),
+            TimeUnit.MILLISECONDS.toNanos(Math.max(0, interactiveDeadlineMillis)));
+    this.background =
+        new Lane(
+            Math.max(1, requestsPerMinute - interactiveRequests),
+            Math.max(1, tokensPerMinute - interactiveTokens),
+            Math.max(1, maxInFlight),
+            Math.max(0, maxRetries),
+            0);
+    this.backoffMillis = Math.max(0, backoffMillis);
+    this.maxBackoffMillis = Math.max(this.backoffMillis, maxBackoffMillis);
+    this.metrics = metrics;
+    for (Priority priority : Priority.values()) {
+      Gauge.builder("llm.inflight", this, s -> s.lane(priority).inFlight())
+          .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+          .register(metrics.registry());
+    }
+  }
+
+  /** No rate limits and no retries; for tests and standalone tools. */
+  public static LlmScheduler unlimited() {
+    return new LlmScheduler(
+        Integer.MAX_VALUE, Integer.MAX_VALUE, 64, 64, 0.1, 0, 0, 0, 0, 0, NewsMetrics.noop());
+  }
+
+  /** Background calls allowed in flight at once. */
+  public int maxInFlight() {
+    return background.maxInFlight;
+  }
+
+  /**
+   * Runs {@code request} once admitted from {@code priority}'s budget, retrying as described above,
+   * and returns its result. {@code request} is given the time it has left, or null when the lane
+   * has no deadline. {@code usedTokens} reads the actual token usage from the result; zero or less
+   * keeps the estimate. The last failure is rethrown once retries run out or it is not retryable.
+   */
+  public <T> T call(
+      Priority priority,
+      String operation,
+      long estimatedTokens,
+      Function<Duration, T> request,
+      ToLongFunction<T> usedTokens) {
+    Lane lane = lane(priority);
+    TokenBucket requests = lane.requests;
+    TokenBucket tokens = lane.tokens;
+    Semaphore inFlight = lane.inFlight;
+    long deadline = lane.deadlineNanos > 0 ? System.nanoTime() + lane.deadlineNanos : 0;
+    try {
+      if (deadline == 0) {
+        inFlight.acquire();
+      } else if (!inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        throw deadlineExceeded(operation);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for an LLM slot", e);
+    }
+    try {
+      for (int attempt = 0; ; attempt++) {
+        long wait = Math.max(requests.reserve(1), tokens.reserve(estimatedTokens));
+        if (deadline != 0 && System.nanoTime() + wait >= deadline) {
+          requests.refund(1);
+          tokens.refund(estimatedTokens);
+          throw deadlineExceeded(operation);
+        }
+        sleep(wait);
+        try {
+          T result = request.apply(remaining(deadline));
+          succeeded(lane, estimatedTokens, usedTokens.applyAsLong(result));
+          return result;
+        } catch (RuntimeException e) {
+          long backoff = retryAfter(lane, operation, estimatedTokens, e, attempt, deadline);
+          if (backoff < 0) throw e;
+          sleep(backoff);
+        }
+      }
+    } finally {
+      inFlight.release();
+    }
+  }
+
+  /**
+   * {@link #call} for a caller that must not block: {@code request} returns a future, and the waits
+   * for a permit, the rate limit and backoffs are timers. The returned future fails as {@link
+   * #call} would throw.
+   */
+  public <T> CompletableFuture<T> callAsync(
+      Priority priority,
+      String operation,
+      long estimatedTokens,
+      Function<Duration, CompletableFuture<T>> request,
+      ToLongFunction<T> usedTokens) {
+    Lane lane = lane(priority);
+    long deadline = lane.deadlineNanos > 0 ? System.nanoTime() + lane.deadlineNanos : 0;
+    return acquireAsync(lane, operation, deadline)
+        .thenCompose(
+            acquired ->
+                attemptAsync(lane, operation, estimatedTokens, request, usedTokens, deadline, 0)
+                    .whenComplete((result, error) -> lane.inFlight.release()));
+  }
+
+  private CompletableFuture<Void> acquireAsync(Lane lane, String operation, long deadline) {
+    if (lane.inFlight.tryAcquire()) return CompletableFuture.completedFuture(null);
+    long poll = TimeUnit.MILLISECONDS.toNanos(SLOT_POLL_MILLIS);
+    if (deadline != 0) {
+      long left = deadline - System.nanoTime();
+      if (left <= 0) return CompletableFuture.failedFuture(deadlineExceeded(operation));
+      poll = Math.min(poll, left);
+    }
+    return after(poll).thenCompose(waited -> acquireAsync(lane, operation, deadline));
+  }
+
+  /** One attempt of {@link #callAsync} and, after its backoff, the retries that follow it. */
+  private <T> CompletableFuture<T> attemptAsync(
+      Lane lane,
+      String operation,
+      long estimatedTokens,
+      Function<Duration, CompletableFuture<T>> request,
+      ToLongFunction<T> usedTokens,
+      long deadline,
+      int attempt) {
+    long wait = Math.max(lane.requests.reserve(1), lane.tokens.reserve(estimatedTokens));
+    if (deadline != 0 && System.nanoTime() + wait >= deadline) {
+      lane.requests.refund(1);
+      lane.tokens.refund(estimatedTokens);
+      return CompletableFuture.failedFuture(deadlineExceeded(operation));
+    }
+    return after(wait)
+        .thenCompose(waited -> request.apply(remaining(deadline)))
+        .handle(
+            (result, error) -> {
+              if (error == null) {
+                succeeded(lane, estimatedTokens, usedTokens.applyAsLong(result));
+                return CompletableFuture.completedFuture(result);
+              }
+              Throwable cause = Futures.unwrap(error);
+              if (!(cause instanceof RuntimeException e)) {
+                failures.incrementAndGet();
+                return CompletableFuture.<T>failedFuture(cause);
+              }
+              long backoff = retryAfter(lane, operation, estimatedTokens, e, attempt, deadline);
+              if (backoff < 0) return CompletableFuture.<T>failedFuture(e);
+              return after(backoff)
+                  .thenCompose(
+                      waited ->
+                          attemptAsync(
+                              lane,
+                              operation,
+                              estimatedTokens,
+                              request,
+                              usedTokens,
+                              deadline,
+                              attempt + 1));
+            })
+        .thenCompose(next -> next);
+  }
+
+  /** Books a successful call; {@code used} of zero or less keeps the estimate. */
+  private void succeeded(Lane lane, long estimatedTokens, long used) {
+    if (used > 0) {
+      lane.tokens.refund(estimatedTokens - used);
+    } else {
+      used = estimatedTokens;
+    }
+    calls.incrementAndGet();
+    tokensUsed.addAndGet(used);
+  }
+
+  /**
+   * Books failed attempt {@code attempt} and returns how long to wait before the next one, or -1
+   * when {@code e} is final: not retryable, out of retries, or the wait would pass the deadline.
+   */
+  private long retryAfter(
+      Lane lane,
+      String operation,
+      long estimatedTokens,
+      RuntimeException e,
+      int attempt,
+      long deadline) {
+    // A rejected request spent no tokens; its request slot stays spent.
+    lane.tokens.refund(estimatedTokens);
+    boolean limited = isThrottled(e);
+    if ((!limited && !isTransient(e)) || attempt >= lane.maxRetries) {
+      failures.incrementAndGet();
+      return -1;
+    }
+    if (limited) {
+      throttled.incrementAndGet();
+      lane.requests.drain();
+      lane.tokens.drain();
+    }
+    retries.incrementAndGet();
+    metrics.increment(
+        "llm.retries", "operation", operation, "reason", limited ? "throttled" : "error");
+    long backoff =
+        TimeUnit.MILLISECONDS.toNanos(
+            Math.max(retryAfterMillis(e), jitteredBackoffMillis(attempt)));
+    if (deadline != 0 && System.nanoTime() + backoff >= deadline) {
+      failures.incrementAndGet();
+      return -1;
+    }
+    return backoff;
+  }
+
+  /** Time left before {@code deadline}, or null when there is none. */
+  private static Duration remaining(long deadline) {
+    return deadline == 0 ? null : Duration.ofNanos(deadline - System.nanoTime());
+  }
+
+  /** A future completing after {@code nanos}, on a timer rather than a sleeping thread. */
+  private static CompletableFuture<Void> after(long nanos) {
+    if (nanos <= 0) return CompletableFuture.completedFuture(null);
+    return CompletableFuture.runAsync(
+        () -> {}, CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+  }
+
+  public Stats stats() {
+    return new Stats(
+        calls.get(),
+        retries.get(),
+        throttled.get(),
+        failures.get(),
+        tokensUsed.get(),
+        interactive.inFlight() + background.inFlight());
+  }
+
+  private DeadlineExceededException deadlineExceeded(String operation) {
+    failures.incrementAndGet();
+    metrics.increment("llm.deadline.exceeded", "operation", operation);
+    return new DeadlineExceededException(operation);
+  }
+
+  private Lane lane(Priority priority) {
+    return priority == Priority.INTERACTIVE ? interactive : background;
+  }
+
+  private long jitteredBackoffMillis(int attempt) {
+    long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt, 20));
+    return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  private static boolean isThrottled(RuntimeException e) {
+    return e instanceof WebClientResponseException r && r.getStatusCode().value() == 429;
+  }
+
+  private static boolean isTransient(RuntimeException e) {
+    return e instanceof WebClientRequestException
+        || (e instanceof WebClientResponseException r && r.getStatusCode().is5xxServerError());
+  }
+
+  /** The server's requested wait, from {@code retry-after-ms} or {@code Retry-After} seconds. */
+  private static long retryAfterMillis(RuntimeException e) {
+    if (!(e instanceof WebClientResponseException r)) return 0;
+    HttpHeaders headers = r.getHeaders();
+    try {
+      String ms = headers.getFirst("retry-after-ms");
+      if (ms != null) return (long) Double.parseDouble(ms.trim());
+      String seconds = headers.getFirst(HttpHeaders.RETRY_AFTER);
+      if (seconds != null) return (long) (Double.parseDouble(seconds.trim()) * 1000);
+    } catch (NumberFormatException ignored) {
+      // An HTTP-date or garbage; fall back to the backoff.
+    }
+    return 0;
+  }
+
+  /** One priority's buckets, permits, retry budget and deadline (0 for none). */
+  private static final class Lane {
+    final TokenBucket requests;
+    final TokenBucket tokens;
+    final int maxInFlight;
+    final Semaphore inFlight;
+    final int maxRetries;
+    final long deadlineNanos;
+
+    Lane(
+        long requestsPerMinute,
+        long tokensPerMinute,
+        int maxInFlight,
+        int maxRetries,
+        long deadlineNanos) {
+      this.requests = new TokenBucket(requestsPerMinute);
+      this.tokens = new TokenBucket(tokensPerMinute);
+      this.maxInFlight = maxInFlight;
+      this.inFlight = new Semaphore(maxInFlight, true);
+      this.maxRetries = maxRetries;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    int inFlight() {
+      return maxInFlight - inFlight.availablePermits();
+    }
+  }
+
+  private static void sleep(long nanos) {
+    if (nanos <= 0) return;
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for the LLM rate limit", e);
+    }
+  }
+}
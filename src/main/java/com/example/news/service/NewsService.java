@@ -1,137 +1,710 @@
 package com.example.news.service;
 
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.GeoUtils;
+import com.example.news.index.SearchIndex;
+import com.example.news.index.TopK;
+import com.example.news.metrics.NewsMetrics;
 import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
 import com.example.news.repository.NewsRepository;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.StringUtils;
 
+/**
+ * The read endpoints. Each runs in either {@link ExecutionMode}: the plain methods block the
+ * calling thread on DynamoDB and summaries, and the ones taking a mode return a future that, for
+ * {@link ExecutionMode#ASYNC}, completes on the async clients' threads. Both run the same code over
+ * a {@link Reads} of the matching kind.
+ */
 @Service
 public class NewsService {
 
   private final NewsRepository newsRepository;
-  private final LLMService llmService;
+  private final SummarizationPipeline summarizationPipeline;
+  private final QueryResultCache queryCache;
+  private final NewsMetrics metrics;
+  private final QueryPlanner planner;
+  private final boolean collapseDuplicates;
+  private final Reads blockingReads;
+  private final Reads asyncReads;
 
-  public NewsService(NewsRepository newsRepository, LLMService llmService) {
+  /** The waits a request makes: page materialization, startup-window queries, summaries. */
+  private interface Reads {
+    CompletableFuture<List<NewsArticle>> findAllById(List<String> ids);
+
+    CompletableFuture<List<NewsArticle>> queryByCategory(String category, int limit);
+
+    CompletableFuture<List<NewsArticle>> queryBySource(String source, int limit);
+
+    CompletableFuture<List<NewsArticle>> enrich(List<NewsArticle> articles);
+  }
+
+  public NewsService(
+      NewsRepository newsRepository,
+      SummarizationPipeline summarizationPipeline,
+      QueryResultCache queryCache,
+      NewsMetrics metrics,
+      @Value("${news.dedup.collapse:true}") boolean collapseDuplicates) {
     this.newsRepository = newsRepository;
-    this.llmService = llmService;
-  }
-
-  public List<NewsArticle> fetchNewsArticlesByCategory(String category, int limit) {
-    List<NewsArticle> list =
-        newsRepository.scanWithFilter(
-            article ->
-                    !CollectionUtils.isEmpty(article.getCategory())
-                    && article.getCategory().stream().anyMatch(c -> c.equalsIgnoreCase(category)));
-    list.sort(
-        Comparator.comparing(
-            NewsArticle::getPublicationEpoch, Comparator.nullsLast(Comparator.reverseOrder())));
-    return enrichAndLimit(list, limit);
-  }
-
-  public List<NewsArticle> fetchNewsArticlesBySource(String source, int limit) {
-    List<NewsArticle> list =
-        newsRepository.scanWithFilter(
-            article ->
-                StringUtils.hasText(article.getSourceName())
-                    && article.getSourceName().equalsIgnoreCase(source));
-    list.sort(
-        Comparator.comparing(
-            NewsArticle::getPublicationEpoch, Comparator.nullsLast(Comparator.reverseOrder())));
-    return enrichAndLimit(list, limit);
-  }
-
-  public List<NewsArticle> fetchNewsArticlesByScore(double minScore, int limit) {
-    List<NewsArticle> list =
-        newsRepository.scanWithFilter(
-            article ->
-                Objects.nonNull(article.getRelevanceScore()) && article.getRelevanceScore() >= minScore);
-    list.sort(
-        Comparator.comparing(
-            NewsArticle::getRelevanceScore, Comparator.nullsLast(Comparator.reverseOrder())));
-    return enrichAndLimit(list, limit);
-  }
-
-  public List<NewsArticle> searchNewsArticles(String q, int limit) {
-    String qLower = q.toLowerCase();
-
-      // Since dynamoDB does not support full text search, we are doing a scan with filter here.
-      List<NewsArticle> list =
-        newsRepository.scanWithFilter(
-            article ->
-                (StringUtils.hasText(article.getTitle())
-                        && article.getTitle().toLowerCase().contains(qLower))
-                    || (StringUtils.hasText(article.getDescription())
-                        && article.getDescription().toLowerCase().contains(qLower)));
-
-    List<NewsArticle> scored =
-        list.stream()
-            .peek(
-                article -> {
-                  double match = 0;
-                  if (StringUtils.hasText(article.getTitle())
-                      && article.getTitle().toLowerCase().contains(qLower)) match += 0.7;
-                  if (StringUtils.hasText(article.getDescription())
-                      && article.getDescription().toLowerCase().contains(qLower)) match += 0.3;
-                  double relevance =
-                      Objects.isNull(article.getRelevanceScore()) ? 0.0 : article.getRelevanceScore();
-                  double finalScore = 0.6 * match + 0.4 * relevance;
-                  article.setRelevanceScore(finalScore);
-                })
-            .sorted(
-                Comparator.comparing(
-                    NewsArticle::getRelevanceScore,
-                    Comparator.nullsLast(Comparator.reverseOrder())))
-            .collect(Collectors.toList());
-
-    return enrichAndLimit(scored, limit);
-  }
-
-  public List<NewsArticle> fetchNewsArticlesRelevantNearby(double lat, double lon, double radiusKm, int limit) {
-    List<NewsArticle> list =
-        newsRepository.scanWithFilter(
-            article -> Objects.nonNull(article.getLatitude()) && Objects.nonNull(article.getLongitude()));
-    List<NewsArticle> withDist =
-        list.stream()
-            .peek(
-                article -> {
-                  double d = haversineKm(lat, lon, article.getLatitude(), article.getLongitude());
-                  // store distance temporarily in relevanceScore for sorting
-                  article.setRelevanceScore(d);
-                })
-            .filter(article -> article.getRelevanceScore() <= radiusKm)
-            .sorted(Comparator.comparing(NewsArticle::getRelevanceScore))
-            .collect(Collectors.toList());
-
-    return enrichAndLimit(withDist, limit);
+    this.summarizationPipeline = summarizationPipeline;
+    this.queryCache = queryCache;
+    this.metrics = metrics;
+    this.planner = new QueryPlanner(newsRepository);
+    this.collapseDuplicates = collapseDuplicates;
+    this.blockingReads =
+        new Reads() {
+          @Override
+          public CompletableFuture<List<NewsArticle>> findAllById(List<String> ids) {
+            return CompletableFuture.completedFuture(newsRepository.findAllById(ids));
+          }
+
+          @Override
+          public CompletableFuture<List<NewsArticle>> queryByCategory(String category, int limit) {
+            return CompletableFuture.completedFuture(
+                newsRepository.queryByCategory(category, limit));
+          }
+
+          @Override
+          public CompletableFuture<List<NewsArticle>> queryBySource(String source, int limit) {
+            return CompletableFuture.completedFuture(newsRepository.queryBySource(source, limit));
+          }
+
+          @Override
+          public CompletableFuture<List<NewsArticle>> enrich(List<NewsArticle> articles) {
+            return CompletableFuture.completedFuture(summarizationPipeline.enrich(articles));
+          }
+        };
+    this.asyncReads =
+        new Reads() {
+          @Override
+          public CompletableFuture<List<NewsArticle>> findAllById(List<String> ids) {
+            return newsRepository.findAllByIdAsync(ids);
+          }
+
+          @Override
+          public CompletableFuture<List<NewsArticle>> queryByCategory(String category, int limit) {
+            return newsRepository.queryByCategoryAsync(category, limit);
+          }
+
+          @Override
+          public CompletableFuture<List<NewsArticle>> queryBySource(String source, int limit) {
+            return newsRepository.queryBySourceAsync(source, limit);
+          }
+
+          @Override
+          public CompletableFuture<List<NewsArticle>> enrich(List<NewsArticle> articles) {
+            return summarizationPipeline.enrichAsync(articles);
+          }
+        };
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesByCategory(String category, int limit) {
+    return fetchNewsArticlesByCategory(category, 0, limit);
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesByCategory(String category, int offset, int limit) {
+    return Futures.join(
+        fetchNewsArticlesByCategory(category, offset, limit, ExecutionMode.BLOCKING));
+  }
+
+  public CompletableFuture<List<ScoredArticle>> fetchNewsArticlesByCategory(
+      String category, int offset, int limit, ExecutionMode mode) {
+    Reads reads = reads(mode);
+    if (!newsRepository.indexesLoaded()) {
+      return request(
+          "category",
+          () ->
+              fromTable(reads, "category", offset, limit, k -> reads.queryByCategory(category, k)));
+    }
+    return cached(
+        "category",
+        String.join("|", "category", QueryResultCache.normalize(category), page(offset, limit)),
+        Set.of(QueryResultCache.categoryTag(category)),
+        () -> {
+          // Newest-first from the category bitset and epoch column; only the page is materialized.
+          ColumnarStore.Selection selection =
+              stage(
+                  "category",
+                  "select",
+                  () ->
+                      distinct(
+                          window(offset, limit),
+                          k -> newsRepository.selectNewestInCategory(category, k)));
+          return stageAsync(
+                  "category",
+                  "fetch",
+                  () -> materialize(reads, selection, offset).thenApply(NewsService::wrap))
+              .thenCompose(page -> enrich(reads, "category", selection.matched(), page));
+        });
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesBySource(String source, int limit) {
+    return fetchNewsArticlesBySource(source, 0, limit);
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesBySource(String source, int offset, int limit) {
+    return Futures.join(fetchNewsArticlesBySource(source, offset, limit, ExecutionMode.BLOCKING));
+  }
+
+  public CompletableFuture<List<ScoredArticle>> fetchNewsArticlesBySource(
+      String source, int offset, int limit, ExecutionMode mode) {
+    Reads reads = reads(mode);
+    if (!newsRepository.indexesLoaded()) {
+      return request(
+          "source",
+          () -> fromTable(reads, "source", offset, limit, k -> reads.queryBySource(source, k)));
+    }
+    return cached(
+        "source",
+        String.join("|", "source", QueryResultCache.normalize(source), page(offset, limit)),
+        Set.of(QueryResultCache.sourceTag(source)),
+        () -> {
+          // Newest-first from the source-id and epoch columns; only the page is materialized.
+          ColumnarStore.Selection selection =
+              stage(
+                  "source",
+                  "select",
+                  () ->
+                      distinct(
+                          window(offset, limit),
+                          k -> newsRepository.selectNewestFromSource(source, k)));
+          return stageAsync(
+                  "source",
+                  "fetch",
+                  () -> materialize(reads, selection, offset).thenApply(NewsService::wrap))
+              .thenCompose(page -> enrich(reads, "source", selection.matched(), page));
+        });
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesByScore(double minScore, int limit) {
+    return fetchNewsArticlesByScore(minScore, 0, limit);
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesByScore(double minScore, int offset, int limit) {
+    return Futures.join(fetchNewsArticlesByScore(minScore, offset, limit, ExecutionMode.BLOCKING));
+  }
+
+  public CompletableFuture<List<ScoredArticle>> fetchNewsArticlesByScore(
+      double minScore, int offset, int limit, ExecutionMode mode) {
+    Reads reads = reads(mode);
+    return cached(
+        "score",
+        String.join("|", "score", Double.toString(minScore), page(offset, limit)),
+        Set.of(QueryResultCache.SCORE_TAG),
+        () -> {
+          // Select on the score column, then materialize only the page.
+          ColumnarStore.Selection selection =
+              stage(
+                  "score",
+                  "select",
+                  () ->
+                      distinct(
+                          window(offset, limit), k -> newsRepository.selectByScore(minScore, k)));
+          Map<String, Double> scores = new HashMap<>();
+          for (ColumnarStore.Hit hit : selection.hits()) scores.put(hit.id(), hit.key());
+          return stageAsync(
+                  "score",
+                  "fetch",
+                  () ->
+                      materialize(reads, selection, offset)
+                          .thenApply(
+                              articles -> {
+                                List<ScoredArticle> out = new ArrayList<>();
+                                for (NewsArticle a : articles) {
+                                  out.add(ScoredArticle.scored(a, scores.get(a.getId())));
+                                }
+                                return out;
+                              }))
+              .thenCompose(page -> enrich(reads, "score", selection.matched(), page));
+        });
+  }
+
+  public List<ScoredArticle> searchNewsArticles(String q, int limit) {
+    return searchNewsArticles(q, 0, limit);
+  }
+
+  public List<ScoredArticle> searchNewsArticles(String q, int offset, int limit) {
+    return Futures.join(searchNewsArticles(q, offset, limit, ExecutionMode.BLOCKING));
+  }
+
+  public CompletableFuture<List<ScoredArticle>> searchNewsArticles(
+      String q, int offset, int limit, ExecutionMode mode) {
+    Reads reads = reads(mode);
+    SortedSet<String> terms = QueryResultCache.searchTerms(q);
+    Set<String> tags = new HashSet<>();
+    for (String t : terms) tags.add(QueryResultCache.termTag(t));
+    return cached(
+        "search",
+        String.join("|", "search", String.join(" ", terms), page(offset, limit)),
+        tags,
+        () -> {
+          // DynamoDB does not support full text search, so queries go to the in-memory index.
+          List<SearchIndex.Hit> hits = stage("search", "fetch", () -> newsRepository.search(q));
+          TopK<SearchIndex.Hit> top = new TopK<>(window(offset, limit));
+          Map<String, Double> ranks = new HashMap<>();
+          stage(
+              "search",
+              "select",
+              () -> {
+                List<String> ids = new ArrayList<>(hits.size());
+                for (SearchIndex.Hit hit : hits) ids.add(hit.id());
+                double[] relevance = newsRepository.relevanceScores(ids);
+                for (int i = 0; i < hits.size(); i++) {
+                  ranks.put(hits.get(i).id(), blend(hits.get(i).score(), relevance[i]));
+                }
+                for (SearchIndex.Hit hit : bestPerStory(hits, SearchIndex.Hit::id, ranks)) {
+                  top.offer(ranks.get(hit.id()), hit);
+                }
+              });
+          // Only the page is materialized.
+          List<String> ids = new ArrayList<>();
+          for (SearchIndex.Hit hit : top.page(offset)) ids.add(hit.id());
+          return stageAsync(
+                  "search",
+                  "materialize",
+                  () ->
+                      findAllById(reads, ids)
+                          .thenApply(
+                              articles -> {
+                                List<ScoredArticle> out = new ArrayList<>(articles.size());
+                                for (NewsArticle a : articles) {
+                                  out.add(ScoredArticle.scored(a, ranks.get(a.getId())));
+                                }
+                                return out;
+                              }))
+              .thenCompose(page -> enrich(reads, "search", hits.size(), page));
+        });
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesRelevantNearby(
+      double lat, double lon, double radiusKm, int limit) {
+    return fetchNewsArticlesRelevantNearby(lat, lon, radiusKm, 0, limit);
+  }
+
+  public List<ScoredArticle> fetchNewsArticlesRelevantNearby(
+      double lat, double lon, double radiusKm, int offset, int limit) {
+    return Futures.join(
+        fetchNewsArticlesRelevantNearby(lat, lon, radiusKm, offset, limit, ExecutionMode.BLOCKING));
+  }
+
+  public CompletableFuture<List<ScoredArticle>> fetchNewsArticlesRelevantNearby(
+      double lat, double lon, double radiusKm, int offset, int limit, ExecutionMode mode) {
+    Reads reads = reads(mode);
+    // Callers within one grid cell of each other share the cell's candidates; distances, the
+    // radius and the order are then worked out from each caller's own point.
+    double qLat = queryCache.quantize(lat);
+    double qLon = queryCache.quantize(lon);
+    double errorKm = queryCache.quantizationErrorKm(lat);
+    int needed = window(offset, limit);
+    return request(
+        "nearby",
+        () -> {
+          List<GeoIndex.Hit> candidates =
+              queryCache.get(
+                  "nearby",
+                  String.join(
+                      "|",
+                      "nearby",
+                      Double.toString(qLat),
+                      Double.toString(qLon),
+                      Double.toString(radiusKm),
+                      Integer.toString(needed)),
+                  Set.of(QueryResultCache.NEARBY_TAG),
+                  () ->
+                      stage(
+                          "nearby",
+                          "fetch",
+                          () -> nearbyCandidates(qLat, qLon, radiusKm, errorKm, needed)));
+          TopK<GeoIndex.Hit> nearest = new TopK<>(candidates.size());
+          stage(
+              "nearby",
+              "select",
+              () -> {
+                for (GeoIndex.Hit c : candidates) {
+                  double d = GeoUtils.haversineKm(lat, lon, c.lat(), c.lon());
+                  if (d <= radiusKm)
+                    nearest.offer(-d, new GeoIndex.Hit(c.id(), c.lat(), c.lon(), d));
+                }
+              });
+          List<GeoIndex.Hit> ranked = new ArrayList<>(needed);
+          Set<String> stories = new HashSet<>();
+          for (GeoIndex.Hit hit : nearest.toSortedList()) {
+            if (ranked.size() == needed) break;
+            if (!collapseDuplicates || stories.add(newsRepository.canonicalId(hit.id()))) {
+              ranked.add(hit);
+            }
+          }
+          // Only the page is materialized.
+          List<String> ids = new ArrayList<>();
+          Map<String, Double> distances = new HashMap<>();
+          for (GeoIndex.Hit hit : skip(ranked, offset)) {
+            ids.add(hit.id());
+            distances.put(hit.id(), hit.distanceKm());
+          }
+          return stageAsync(
+                  "nearby",
+                  "materialize",
+                  () ->
+                      findAllById(reads, ids)
+                          .thenApply(
+                              articles -> {
+                                List<ScoredArticle> out = new ArrayList<>(articles.size());
+                                for (NewsArticle a : articles) {
+                                  out.add(ScoredArticle.atDistance(a, distances.get(a.getId())));
+                                }
+                                return out;
+                              }))
+              .thenCompose(page -> enrich(reads, "nearby", nearest.size(), page));
+        });
+  }
+
+  /**
+   * Every article a caller up to {@code errorKm} from the cell centre could need for the nearest
+   * {@code needed} stories within {@code radiusKm}, with its distance from the centre. Candidates
+   * reach out to {@code radiusKm + errorKm}. Once the {@code needed}-th story within {@code
+   * radiusKm - errorKm} of the centre is found, at distance D, anything past D + 2 errorKm is
+   * farther from every caller in the cell than those stories, so the list stops there. The index is
+   * asked for a doubled count until that point is reached or it runs out.
+   */
+  private List<GeoIndex.Hit> nearbyCandidates(
+      double qLat, double qLon, double radiusKm, double errorKm, int needed) {
+    if (needed <= 0) return List.of();
+    double reach = radiusKm + errorKm;
+    for (int k = needed; ; k *= 2) {
+      List<GeoIndex.Hit> hits = newsRepository.findNearby(qLat, qLon, reach, k);
+      double cutoff = reach;
+      Set<String> stories = new HashSet<>();
+      for (GeoIndex.Hit hit : hits) {
+        if (hit.distanceKm() > radiusKm - errorKm) break;
+        String id = hit.id();
+        if (!stories.add(collapseDuplicates ? newsRepository.canonicalId(id) : id)) continue;
+        if (stories.size() == needed) {
+          cutoff = Math.min(reach, hit.distanceKm() + 2 * errorKm);
+          break;
+        }
+      }
+      boolean complete = hits.size() < k || hits.get(hits.size() - 1).distanceKm() > cutoff;
+      if (complete || k > Integer.MAX_VALUE / 2) {
+        List<GeoIndex.Hit> out = new ArrayList<>();
+        for (GeoIndex.Hit hit : hits) {
+          if (hit.distanceKm() > cutoff) break;
+          out.add(hit);
+        }
+        return out;
+      }
+    }
+  }
+
+  /**
+   * Articles matching every filter in {@code criteria}, in one ranked page. With a text filter the
+   * rank is the search blend of text match and stored relevance, otherwise stored relevance alone;
+   * see {@link QueryPlanner} for how the filters are evaluated.
+   */
+  public List<ScoredArticle> fetchNewsArticlesMatching(
+      QueryPlanner.Criteria criteria, int offset, int limit) {
+    return Futures.join(fetchNewsArticlesMatching(criteria, offset, limit, ExecutionMode.BLOCKING));
+  }
+
+  public CompletableFuture<List<ScoredArticle>> fetchNewsArticlesMatching(
+      QueryPlanner.Criteria criteria, int offset, int limit, ExecutionMode mode) {
+    Reads reads = reads(mode);
+    QueryPlanner.Criteria c = quantized(criteria);
+    return cached(
+        "composite",
+        String.join(
+            "|",
+            "composite",
+            QueryResultCache.normalize(c.category()),
+            QueryResultCache.normalize(c.source()),
+            Objects.toString(c.minScore()),
+            // A text without terms matches nothing, unlike no text at all.
+            c.text() == null ? "" : "q:" + String.join(" ", QueryResultCache.searchTerms(c.text())),
+            Objects.toString(c.lat()),
+            Objects.toString(c.lon()),
+            Objects.toString(c.radiusKm()),
+            page(offset, limit)),
+        compositeTags(c),
+        () -> {
+          QueryPlanner.Plan plan = stage("composite", "plan", () -> planner.plan(c));
+          List<QueryPlanner.Match> matches =
+              stage("composite", "filter", () -> planner.execute(plan, c));
+          TopK<QueryPlanner.Match> top = new TopK<>(window(offset, limit));
+          Map<String, Double> ranks = new HashMap<>();
+          stage(
+              "composite",
+              "select",
+              () -> {
+                List<String> ids = new ArrayList<>(matches.size());
+                for (QueryPlanner.Match m : matches) ids.add(m.id());
+                double[] relevance = newsRepository.relevanceScores(ids);
+                for (int i = 0; i < matches.size(); i++) {
+                  QueryPlanner.Match m = matches.get(i);
+                  ranks.put(
+                      m.id(), c.text() == null ? relevance[i] : blend(m.textScore(), relevance[i]));
+                }
+                for (QueryPlanner.Match m : bestPerStory(matches, QueryPlanner.Match::id, ranks)) {
+                  top.offer(ranks.get(m.id()), m);
+                }
+              });
+          List<QueryPlanner.Match> selected = top.page(offset);
+          List<String> ids = new ArrayList<>(selected.size());
+          Map<String, QueryPlanner.Match> byId = new HashMap<>();
+          for (QueryPlanner.Match m : selected) {
+            ids.add(m.id());
+            byId.put(m.id(), m);
+          }
+          return stageAsync(
+                  "composite",
+                  "fetch",
+                  () ->
+                      findAllById(reads, ids)
+                          .thenApply(
+                              articles -> {
+                                List<ScoredArticle> out = new ArrayList<>(articles.size());
+                                for (NewsArticle a : articles) {
+                                  QueryPlanner.Match m = byId.get(a.getId());
+                                  double rank = ranks.get(a.getId());
+                                  out.add(
+                                      ScoredArticle.ranked(
+                                          a,
+                                          Double.isNaN(rank) ? null : rank,
+                                          Double.isNaN(m.distanceKm()) ? null : m.distanceKm()));
+                                }
+                                return out;
+                              }))
+              .thenCompose(page -> enrich(reads, "composite", matches.size(), page));
+        });
+  }
+
+  /** The plan {@link #fetchNewsArticlesMatching} would run for {@code criteria}. */
+  public QueryPlanner.Plan planMatching(QueryPlanner.Criteria criteria) {
+    return planner.plan(quantized(criteria));
   }
 
   public double haversineKm(double lat1, double lon1, double lat2, double lon2) {
-    final int R = 6371;
-    double dLat = Math.toRadians(lat2 - lat1);
-    double dLon = Math.toRadians(lon2 - lon1);
-    double article =
-        Math.sin(dLat / 2) * Math.sin(dLat / 2)
-            + Math.cos(Math.toRadians(lat1))
-                * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2)
-                * Math.sin(dLon / 2);
-    double c = 2 * Math.atan2(Math.sqrt(article), Math.sqrt(1 - article));
-    return R * c;
-  }
-
-  private List<NewsArticle> enrichAndLimit(List<NewsArticle> list, int limit) {
-    List<NewsArticle> out = list.stream().limit(limit).collect(Collectors.toList());
-    for (NewsArticle article : out) {
-      if (article.getLlmSummary() == null || article.getLlmSummary().isEmpty()) {
-        String summary =
-            llmService.summarizeArticleSync(article.getTitle(), article.getDescription());
-        article.setLlmSummary(summary);
-        newsRepository.save(article);
+    return GeoUtils.haversineKm(lat1, lon1, lat2, lon2);
+  }
+
+  /** Text match weighted 0.6, stored relevance weighted 0.4. */
+  private static double blend(double textScore, double relevance) {
+    return 0.6 * textScore + 0.4 * (Double.isNaN(relevance) ? 0.0 : relevance);
+  }
+
+  /**
+   * The first {@code needed} items of a ranking with at most one per near-duplicate story, the
+   * best-ranked one. {@code select} is re-run with a doubled size while collapsing leaves the page
+   * short and the ranking still has more.
+   */
+  private <T> List<T> distinct(int needed, IntFunction<List<T>> select, Function<T, String> idOf) {
+    if (!collapseDuplicates || needed <= 0) return select.apply(needed);
+    for (int k = needed; ; k *= 2) {
+      List<T> ranked = select.apply(k);
+      List<T> out = new ArrayList<>(needed);
+      Set<String> stories = new HashSet<>();
+      for (T item : ranked) {
+        if (!stories.add(newsRepository.canonicalId(idOf.apply(item)))) continue;
+        out.add(item);
+        if (out.size() == needed) return out;
       }
+      if (ranked.size() < k || k > Integer.MAX_VALUE / 2) return out;
+    }
+  }
+
+  private ColumnarStore.Selection distinct(
+      int needed, IntFunction<ColumnarStore.Selection> select) {
+    int[] matched = new int[1];
+    List<ColumnarStore.Hit> hits =
+        distinct(
+            needed,
+            k -> {
+              ColumnarStore.Selection s = select.apply(k);
+              matched[0] = s.matched();
+              return s.hits();
+            },
+            ColumnarStore.Hit::id);
+    return new ColumnarStore.Selection(hits, matched[0]);
+  }
+
+  /** Ranked items with at most one per near-duplicate story, keeping the best rank. */
+  private <T> Collection<T> bestPerStory(
+      List<T> items, Function<T, String> idOf, Map<String, Double> ranks) {
+    if (!collapseDuplicates) return items;
+    Map<String, T> best = new LinkedHashMap<>();
+    for (T item : items) {
+      best.merge(
+          newsRepository.canonicalId(idOf.apply(item)),
+          item,
+          (a, b) -> outranks(ranks.get(idOf.apply(b)), ranks.get(idOf.apply(a))) ? b : a);
     }
+    return best.values();
+  }
+
+  /** NaN ranks (no stored score) lose to any number, as they do in {@link TopK}. */
+  private static boolean outranks(double rank, double other) {
+    return rank > other || (Double.isNaN(other) && !Double.isNaN(rank));
+  }
+
+  /** {@code criteria} with its point snapped to the query cache grid, as for nearby queries. */
+  private QueryPlanner.Criteria quantized(QueryPlanner.Criteria c) {
+    if (!c.hasLocation()) return c;
+    return new QueryPlanner.Criteria(
+        c.category(),
+        c.source(),
+        c.minScore(),
+        c.text(),
+        queryCache.quantize(c.lat()),
+        queryCache.quantize(c.lon()),
+        c.radiusKm());
+  }
+
+  /**
+   * Cache tags for a composite query. Any article entering or leaving its results matches every
+   * filter, so the narrowest tags suffice: category, source and terms when given, else score and
+   * nearby, which every save touches.
+   */
+  private static Set<String> compositeTags(QueryPlanner.Criteria c) {
+    Set<String> tags = new HashSet<>();
+    if (c.category() != null) tags.add(QueryResultCache.categoryTag(c.category()));
+    if (c.source() != null) tags.add(QueryResultCache.sourceTag(c.source()));
+    if (c.text() != null) {
+      for (String t : QueryResultCache.searchTerms(c.text())) tags.add(QueryResultCache.termTag(t));
+    }
+    if (tags.isEmpty() && c.minScore() != null) tags.add(QueryResultCache.SCORE_TAG);
+    if (tags.isEmpty() && c.hasLocation()) tags.add(QueryResultCache.NEARBY_TAG);
+    return tags;
+  }
+
+  /** Number of ranked items needed to serve a page; saturates rather than overflowing. */
+  private static int window(int offset, int limit) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) Math.max(0, offset) + Math.max(0, limit));
+  }
+
+  private static <T> List<T> skip(List<T> ranked, int offset) {
+    return offset <= 0 ? ranked : ranked.subList(Math.min(offset, ranked.size()), ranked.size());
+  }
+
+  /**
+   * A newest-first page read straight from DynamoDB, for the startup window before the in-memory
+   * indexes are loaded. Not cached: once the indexes are loaded the columns answer instead.
+   */
+  private CompletableFuture<List<ScoredArticle>> fromTable(
+      Reads reads,
+      String endpoint,
+      int offset,
+      int limit,
+      IntFunction<CompletableFuture<List<NewsArticle>>> query) {
+    return stageAsync(
+            endpoint,
+            "query",
+            () -> distinctAsync(window(offset, limit), window(offset, limit), query))
+        .thenCompose(ranked -> enrich(reads, endpoint, ranked.size(), wrap(skip(ranked, offset))));
+  }
+
+  /**
+   * {@link #distinct(int, IntFunction, Function)} over table queries that complete later: {@code
+   * query} is asked for {@code k} articles, then for twice as many while the page is still short.
+   */
+  private CompletableFuture<List<NewsArticle>> distinctAsync(
+      int needed, int k, IntFunction<CompletableFuture<List<NewsArticle>>> query) {
+    if (!collapseDuplicates || needed <= 0) return query.apply(needed);
+    return query
+        .apply(k)
+        .thenCompose(
+            ranked -> {
+              List<NewsArticle> out = new ArrayList<>(needed);
+              Set<String> stories = new HashSet<>();
+              for (NewsArticle a : ranked) {
+                if (!stories.add(newsRepository.canonicalId(a.getId()))) continue;
+                out.add(a);
+                if (out.size() == needed) return CompletableFuture.completedFuture(out);
+              }
+              if (ranked.size() < k || k > Integer.MAX_VALUE / 2) {
+                return CompletableFuture.completedFuture(out);
+              }
+              return distinctAsync(needed, k * 2, query);
+            });
+  }
+
+  /** Full articles for the selected ids past {@code offset}, in selection order. */
+  private CompletableFuture<List<NewsArticle>> materialize(
+      Reads reads, ColumnarStore.Selection selection, int offset) {
+    List<String> ids = new ArrayList<>();
+    for (ColumnarStore.Hit hit : skip(selection.hits(), offset)) ids.add(hit.id());
+    return findAllById(reads, ids);
+  }
+
+  private static CompletableFuture<List<NewsArticle>> findAllById(Reads reads, List<String> ids) {
+    return ids.isEmpty() ? CompletableFuture.completedFuture(List.of()) : reads.findAllById(ids);
+  }
+
+  private Reads reads(ExecutionMode mode) {
+    return mode == ExecutionMode.ASYNC ? asyncReads : blockingReads;
+  }
+
+  private static List<ScoredArticle> wrap(List<NewsArticle> articles) {
+    List<ScoredArticle> out = new ArrayList<>(articles.size());
+    for (NewsArticle a : articles) out.add(ScoredArticle.of(a));
     return out;
   }
+
+  private CompletableFuture<List<ScoredArticle>> enrich(
+      Reads reads, String endpoint, int matched, List<ScoredArticle> page) {
+    metrics.record("news.service.items", matched, "endpoint", endpoint, "kind", "matched");
+    metrics.record("news.service.items", page.size(), "endpoint", endpoint, "kind", "returned");
+    // Summaries are produced off the request path; see SummarizationPipeline.
+    List<NewsArticle> articles = new ArrayList<>(page.size());
+    for (ScoredArticle s : page) articles.add(s.getArticle());
+    return stageAsync(
+        endpoint,
+        "enrich",
+        () ->
+            reads
+                .enrich(articles)
+                .thenApply(
+                    summarized -> {
+                      List<ScoredArticle> out = new ArrayList<>(page.size());
+                      for (int i = 0; i < page.size(); i++) {
+                        out.add(page.get(i).withArticle(summarized.get(i)));
+                      }
+                      return out;
+                    }));
+  }
+
+  private static String page(int offset, int limit) {
+    return Math.max(0, offset) + "|" + Math.max(0, limit);
+  }
+
+  private CompletableFuture<List<ScoredArticle>> cached(
+      String endpoint,
+      String key,
+      Set<String> tags,
+      Supplier<CompletableFuture<List<ScoredArticle>>> body) {
+    return request(endpoint, () -> queryCache.getAsync(endpoint, key, tags, body));
+  }
+
+  private <T> CompletableFuture<T> request(String endpoint, Supplier<CompletableFuture<T>> body) {
+    return metrics.timeAsync(
+        "news.service.request", () -> Futures.call(body), "endpoint", endpoint);
+  }
+
+  private <T> T stage(String endpoint, String stage, Supplier<T> body) {
+    return metrics.time("news.service.stage", body, "endpoint", endpoint, "stage", stage);
+  }
+
+  private <T> CompletableFuture<T> stageAsync(
+      String endpoint, String stage, Supplier<CompletableFuture<T>> body) {
+    return metrics.timeAsync(
+        "news.service.stage", () -> Futures.call(body), "endpoint", endpoint, "stage", stage);
+  }
+
+  private void stage(String endpoint, String stage, Runnable body) {
+    metrics.time("news.service.stage", body, "endpoint", endpoint, "stage", stage);
+  }
 }
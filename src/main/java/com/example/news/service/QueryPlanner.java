@@ -0,0 +1,173 @@
+package com.example.news.service;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.SearchIndex;
+import com.example.news.repository.NewsRepository;
+import java.util.*;
+
+/**
+ * Plans and runs composite queries: any mix of category, source, minimum score, text and radius
+ * filters, all of which must match.
+ *
+ * <p>Each filter gets a cardinality estimate from its index's own counts, without touching any
+ * article: category and source row counts and the score histogram from {@link ColumnarStore}, the
+ * rarest term's document frequency from {@link SearchIndex}, the points in the overlapping cells
+ * from the geo index. The filter with the smallest estimate drives: its index produces the
+ * candidate ids. The others then run as checks on just those candidates, smallest estimate first,
+ * stopping as soon as none are left. A zero estimate means nothing can match, and nothing runs.
+ */
+public class QueryPlanner {
+
+  /** Filter kinds; on equal estimates the earlier (cheaper to check) one goes first. */
+  public enum Filter {
+    CATEGORY,
+    SOURCE,
+    SCORE,
+    NEARBY,
+    TEXT
+  }
+
+  /** Composite query filters; null (or blank) fields are not applied. */
+  public record Criteria(
+      String category,
+      String source,
+      Double minScore,
+      String text,
+      Double lat,
+      Double lon,
+      Double radiusKm) {
+
+    public Criteria {
+      category = blankToNull(category);
+      source = blankToNull(source);
+      text = blankToNull(text);
+    }
+
+    public boolean hasLocation() {
+      return lat != null && lon != null && radiusKm != null;
+    }
+
+    public List<Filter> filters() {
+      List<Filter> out = new ArrayList<>();
+      if (category != null) out.add(Filter.CATEGORY);
+      if (source != null) out.add(Filter.SOURCE);
+      if (minScore != null) out.add(Filter.SCORE);
+      if (hasLocation()) out.add(Filter.NEARBY);
+      if (text != null) out.add(Filter.TEXT);
+      return out;
+    }
+
+    private static String blankToNull(String s) {
+      return s == null || s.isBlank() ? null : s.trim();
+    }
+  }
+
+  /** One filter of a plan and the number of matches its index expects at most. */
+  public record Step(Filter filter, int estimate) {}
+
+  /** Filters in execution order; the first one drives. */
+  public record Plan(List<Step> steps) {
+
+    /** True when some filter is known to match nothing. */
+    public boolean empty() {
+      return steps.stream().anyMatch(s -> s.estimate() == 0);
+    }
+  }
+
+  /** A candidate that passed the filters run so far, with its text score and distance. */
+  public static final class Match {
+    private final String id;
+    private double textScore = Double.NaN;
+    private double distanceKm = Double.NaN;
+
+    Match(String id) {
+      this.id = id;
+    }
+
+    public String id() {
+      return id;
+    }
+
+    /** Normalized text match score, NaN without a text filter. */
+    public double textScore() {
+      return textScore;
+    }
+
+    /** Distance from the query point, NaN without a radius filter. */
+    public double distanceKm() {
+      return distanceKm;
+    }
+  }
+
+  private final NewsRepository repository;
+
+  public QueryPlanner(NewsRepository repository) {
+    this.repository = repository;
+  }
+
+  public Plan plan(Criteria criteria) {
+    List<Step> steps = new ArrayList<>();
+    for (Filter f : criteria.filters()) steps.add(new Step(f, estimate(f, criteria)));
+    // Stable sort: ties keep the cheaper-check order of Filter.
+    steps.sort(Comparator.comparingInt(Step::estimate));
+    return new Plan(List.copyOf(steps));
+  }
+
+  /** Candidates passing every filter of {@code plan}, unordered. */
+  public List<Match> execute(Plan plan, Criteria criteria) {
+    if (plan.steps().isEmpty() || plan.empty()) return List.of();
+    Map<String, Match> matches = null;
+    for (Step step : plan.steps()) {
+      Set<String> within = matches == null ? null : matches.keySet();
+      Map<String, Match> next = new LinkedHashMap<>();
+      switch (step.filter()) {
+        case TEXT -> {
+          for (SearchIndex.Hit hit : repository.search(criteria.text(), within)) {
+            Match m = carry(matches, next, hit.id());
+            if (m != null) m.textScore = hit.score();
+          }
+        }
+        case NEARBY -> {
+          Map<String, Double> distances =
+              repository.distancesWithin(
+                  criteria.lat(), criteria.lon(), criteria.radiusKm(), within);
+          for (Map.Entry<String, Double> e : distances.entrySet()) {
+            Match m = carry(matches, next, e.getKey());
+            if (m != null) m.distanceKm = e.getValue();
+          }
+        }
+        default -> {
+          ColumnarStore.Filter filter = columnFilter(step.filter(), criteria);
+          for (String id : repository.filterColumns(filter, within)) carry(matches, next, id);
+        }
+      }
+      matches = next;
+      if (matches.isEmpty()) break;
+    }
+    return new ArrayList<>(matches.values());
+  }
+
+  private int estimate(Filter filter, Criteria c) {
+    return switch (filter) {
+      case TEXT -> Math.max(0, repository.estimateSearch(c.text()));
+      case NEARBY -> repository.estimateNearby(c.lat(), c.lon(), c.radiusKm());
+      default -> repository.estimateColumns(columnFilter(filter, c));
+    };
+  }
+
+  private static ColumnarStore.Filter columnFilter(Filter filter, Criteria c) {
+    return switch (filter) {
+      case CATEGORY -> ColumnarStore.Filter.category(c.category());
+      case SOURCE -> ColumnarStore.Filter.source(c.source());
+      case SCORE -> ColumnarStore.Filter.minScore(c.minScore());
+      default -> throw new IllegalArgumentException("Not a column filter: " + filter);
+    };
+  }
+
+  /** Moves {@code id} into {@code next}: new for the driving step, else only if it survived. */
+  private static Match carry(Map<String, Match> matches, Map<String, Match> next, String id) {
+    Match m = matches == null ? new Match(id) : matches.get(id);
+    if (m != null) next.put(id, m);
+    return m;
+  }
+}
@@ -0,0 +1,238 @@
+package com.example.news.service;
+
+import com.example.news.index.GeoUtils;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
+import com.example.news.repository.ArticleChangeListener;
+import com.example.news.repository.NewsRepository;
+import io.micrometer.core.instrument.Gauge;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches {@link NewsService} results by (endpoint, normalized parameters, offset, limit).
+ *
+ * <p>Entries are bounded by {@code news.queryCache.maxEntries} (LRU) and {@code
+ * news.queryCache.ttlSeconds}. Each entry carries tags naming what it depends on (a category, a
+ * source, a search term, or a whole endpoint); when {@link NewsRepository} reports a saved article,
+ * only entries tagged with something that article had before or has now are dropped. Concurrent
+ * misses for one key share a single computation, and a result computed while an invalidation
+ * happened is returned but not stored.
+ */
+@Component
+public class QueryResultCache implements ArticleChangeListener {
+
+  static final String SCORE_TAG = "score";
+  static final String NEARBY_TAG = "nearby";
+
+  private final boolean enabled;
+  private final int maxEntries;
+  private final long ttlMillis;
+  private final int geoDecimals;
+  private final NewsMetrics metrics;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+  private final Map<String, Set<String>> keysByTag = new HashMap<>();
+  private final ConcurrentHashMap<String, CompletableFuture<List<?>>> inFlight =
+      new ConcurrentHashMap<>();
+  private long invalidations;
+
+  private record Entry(List<?> value, long expiresAt, Set<String> tags) {}
+
+  public QueryResultCache(
+      @Value("${news.queryCache.enabled:true}") boolean enabled,
+      @Value("${news.queryCache.maxEntries:10000}") int maxEntries,
+      @Value("${news.queryCache.ttlSeconds:30}") long ttlSeconds,
+      @Value("${news.queryCache.geoDecimals:2}") int geoDecimals,
+      NewsRepository repository,
+      NewsMetrics metrics) {
+    this.enabled = enabled && maxEntries > 0;
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlSeconds * 1000L;
+    this.geoDecimals = geoDecimals;
+    this.metrics = metrics;
+    if (this.enabled && repository != null) repository.addChangeListener(this);
+    Gauge.builder("news.query.cache.size", this, QueryResultCache::size)
+        .register(metrics.registry());
+  }
+
+  /** A cache that stores nothing; every call computes. */
+  public static QueryResultCache disabled() {
+    return new QueryResultCache(false, 0, 0, 2, null, NewsMetrics.noop());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Rounds a coordinate to {@code news.queryCache.geoDecimals} places so nearby callers share an
+   * entry; two decimals is a grid of roughly 1.1 km.
+   */
+  public double quantize(double degrees) {
+    if (!enabled) return degrees;
+    double scale = Math.pow(10, geoDecimals);
+    return Math.round(degrees * scale) / scale;
+  }
+
+  /**
+   * How far, in km, a point can be from the {@link #quantize quantized} point at latitude {@code
+   * lat}: half the diagonal of a grid cell, widest on the side nearer the equator. Zero when
+   * coordinates are not quantized.
+   */
+  public double quantizationErrorKm(double lat) {
+    if (!enabled) return 0;
+    double half = Math.pow(10, -geoDecimals) / 2;
+    double centre = quantize(lat);
+    return GeoUtils.haversineKm(centre, 0, centre >= 0 ? centre - half : centre + half, half);
+  }
+
+  public static String normalize(String param) {
+    return param == null ? "" : param.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /** Tags for a search: one per distinct query term, sorted so word order shares an entry. */
+  public static SortedSet<String> searchTerms(String query) {
+    return new TreeSet<>(SearchIndex.tokenize(query));
+  }
+
+  public static String termTag(String term) {
+    return "term:" + term;
+  }
+
+  public static String categoryTag(String category) {
+    return "category:" + normalize(category);
+  }
+
+  public static String sourceTag(String source) {
+    return "source:" + normalize(source);
+  }
+
+  /**
+   * Returns the cached result for {@code key}, or computes, stores and returns it. A key always
+   * holds the same element type: pages of {@link ScoredArticle}, or an endpoint's own candidates.
+   */
+  public <T> List<T> get(String endpoint, String key, Set<String> tags, Supplier<List<T>> compute) {
+    return Futures.join(
+        getAsync(endpoint, key, tags, () -> CompletableFuture.completedFuture(compute.get())));
+  }
+
+  /**
+   * {@link #get} for a computation that completes later. A hit completes at once, and a miss for a
+   * key already being computed shares that computation's future instead of waiting for it.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<List<T>> getAsync(
+      String endpoint, String key, Set<String> tags, Supplier<CompletableFuture<List<T>>> compute) {
+    if (!enabled) return Futures.call(compute);
+    List<T> hit = (List<T>) lookup(key);
+    if (hit != null) {
+      metrics.increment("news.query.cache.requests", "endpoint", endpoint, "result", "hit");
+      return CompletableFuture.completedFuture(hit);
+    }
+
+    CompletableFuture<List<?>> mine = new CompletableFuture<>();
+    CompletableFuture<List<?>> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      metrics.increment("news.query.cache.requests", "endpoint", endpoint, "result", "shared");
+      return running.thenApply(value -> (List<T>) value);
+    }
+    metrics.increment("news.query.cache.requests", "endpoint", endpoint, "result", "miss");
+    long seen = invalidationCount();
+    Futures.call(compute)
+        .whenComplete(
+            (computed, error) -> {
+              try {
+                if (error != null) {
+                  mine.completeExceptionally(Futures.unwrap(error));
+                  return;
+                }
+                List<T> value = List.copyOf(computed);
+                store(key, value, tags, seen);
+                mine.complete(value);
+              } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+              } finally {
+                inFlight.remove(key, mine);
+              }
+            });
+    return mine.thenApply(value -> (List<T>) value);
+  }
+
+  @Override
+  public void onArticleChanged(NewsArticle previous, NewsArticle current) {
+    Set<String> tags = new HashSet<>();
+    tags.add(SCORE_TAG);
+    tags.add(NEARBY_TAG);
+    for (NewsArticle a : Arrays.asList(previous, current)) {
+      if (a == null) continue;
+      if (a.getSourceName() != null) tags.add(sourceTag(a.getSourceName()));
+      if (a.getCategory() != null)
+        for (String c : a.getCategory()) if (c != null) tags.add(categoryTag(c));
+      for (String t : SearchIndex.tokenize(a.getTitle())) tags.add(termTag(t));
+      for (String t : SearchIndex.tokenize(a.getDescription())) tags.add(termTag(t));
+    }
+    invalidate(tags);
+  }
+
+  public synchronized void invalidate(Collection<String> tags) {
+    invalidations++;
+    for (String tag : tags) {
+      Set<String> keys = keysByTag.remove(tag);
+      if (keys == null) continue;
+      for (String key : keys) removeLocked(key);
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private synchronized long invalidationCount() {
+    return invalidations;
+  }
+
+  private synchronized List<?> lookup(String key) {
+    Entry e = entries.get(key);
+    if (e == null) return null;
+    if (e.expiresAt() > System.currentTimeMillis()) return e.value();
+    removeLocked(key);
+    return null;
+  }
+
+  private synchronized void store(
+      String key, List<?> value, Set<String> tags, long seenInvalidations) {
+    // An article changed while this was computed; the result may already be stale.
+    if (invalidations != seenInvalidations) return;
+    removeLocked(key);
+    entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis, Set.copyOf(tags)));
+    for (String tag : tags) keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+    while (entries.size() > maxEntries && eldest.hasNext()) {
+      Map.Entry<String, Entry> evicted = eldest.next();
+      eldest.remove();
+      untagLocked(evicted.getKey(), evicted.getValue());
+      metrics.increment("news.query.cache.evictions");
+    }
+  }
+
+  private void removeLocked(String key) {
+    Entry e = entries.remove(key);
+    if (e != null) untagLocked(key, e);
+  }
+
+  private void untagLocked(String key, Entry e) {
+    for (String tag : e.tags()) {
+      Set<String> keys = keysByTag.get(tag);
+      if (keys == null) continue;
+      keys.remove(key);
+      if (keys.isEmpty()) keysByTag.remove(tag);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.example.news.service;
+
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.ScoredArticle;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.stereotype.Service;
+
+/**
+ * Answers free-text queries by picking the {@link NewsService} endpoint that fits. {@link
+ * IntentClassifier} is tried first; only queries it is not confident about go to {@link
+ * LLMService#extractEntitiesAndIntent}; when the LLM has no answer within its interactive budget
+ * the classifier's best guess is used instead. Each query is counted under {@code news.query.route}
+ * with the path taken ({@code local}, {@code llm} or {@code fallback}) and the resulting intent.
+ */
+@Service
+public class QueryRouter {
+
+  public static final String LOCAL = "local";
+  public static final String LLM = "llm";
+  public static final String FALLBACK = "fallback";
+
+  /** Radius for nearby intents when the caller does not give one. */
+  private static final double DEFAULT_RADIUS_KM = 25;
+
+  private final IntentClassifier classifier;
+  private final LLMService llmService;
+  private final NewsService newsService;
+  private final NewsMetrics metrics;
+
+  public record RoutedQuery(
+      String intent, String entity, String path, List<ScoredArticle> articles) {}
+
+  public QueryRouter(
+      IntentClassifier classifier,
+      LLMService llmService,
+      NewsService newsService,
+      NewsMetrics metrics) {
+    this.classifier = classifier;
+    this.llmService = llmService;
+    this.newsService = newsService;
+    this.metrics = metrics;
+  }
+
+  public RoutedQuery route(
+      String q, Double lat, Double lon, Double radiusKm, int offset, int limit) {
+    return Futures.join(route(q, lat, lon, radiusKm, offset, limit, ExecutionMode.BLOCKING));
+  }
+
+  /** {@link #route}, waiting on the LLM and {@link NewsService} as {@code mode} says. */
+  public CompletableFuture<RoutedQuery> route(
+      String q,
+      Double lat,
+      Double lon,
+      Double radiusKm,
+      int offset,
+      int limit,
+      ExecutionMode mode) {
+    boolean hasLocation = lat != null && lon != null;
+    Optional<IntentClassifier.Intent> local =
+        metrics.time(
+            "news.query.classify", () -> classifier.classify(q, hasLocation), "path", LOCAL);
+    CompletableFuture<RoutedIntent> routed;
+    if (local.isPresent()) {
+      routed = CompletableFuture.completedFuture(new RoutedIntent(local.get(), LOCAL));
+    } else {
+      routed =
+          metrics
+              .timeAsync(
+                  "news.query.classify",
+                  () ->
+                      mode == ExecutionMode.ASYNC
+                          ? llmService.extractEntitiesAndIntentAsync(q)
+                          : CompletableFuture.completedFuture(
+                              llmService.extractEntitiesAndIntent(q)),
+                  "path",
+                  LLM)
+              .thenApply(
+                  extracted ->
+                      extracted.isPresent()
+                          ? new RoutedIntent(fromLlm(extracted.get(), q, hasLocation), LLM)
+                          : new RoutedIntent(classifier.fallback(q, hasLocation), FALLBACK));
+    }
+    return routed.thenCompose(
+        r -> {
+          IntentClassifier.Intent intent = r.intent();
+          metrics.increment("news.query.route", "path", r.path(), "intent", intent.type());
+          double radius = radiusKm == null ? DEFAULT_RADIUS_KM : radiusKm;
+          CompletableFuture<List<ScoredArticle>> articles =
+              switch (intent.type()) {
+                case IntentClassifier.CATEGORY ->
+                    newsService.fetchNewsArticlesByCategory(intent.entity(), offset, limit, mode);
+                case IntentClassifier.SOURCE ->
+                    newsService.fetchNewsArticlesBySource(intent.entity(), offset, limit, mode);
+                case IntentClassifier.SCORE ->
+                    newsService.fetchNewsArticlesByScore(intent.minScore(), offset, limit, mode);
+                case IntentClassifier.NEARBY ->
+                    newsService.fetchNewsArticlesRelevantNearby(
+                        lat, lon, radius, offset, limit, mode);
+                default -> newsService.searchNewsArticles(intent.entity(), offset, limit, mode);
+              };
+          return articles.thenApply(
+              a -> new RoutedQuery(intent.type(), intent.entity(), r.path(), a));
+        });
+  }
+
+  private record RoutedIntent(IntentClassifier.Intent intent, String path) {}
+
+  /**
+   * Maps the LLM's {@code {"entities": [...], "intent": "..."}} onto an intent this service can
+   * run. Anything missing or unusable (no entity, nearby without a location) becomes a search for
+   * the raw query.
+   */
+  private IntentClassifier.Intent fromLlm(
+      Map<String, Object> extracted, String q, boolean hasLocation) {
+    String type = String.valueOf(extracted.getOrDefault("intent", IntentClassifier.SEARCH));
+    List<String> entities = new ArrayList<>();
+    if (extracted.get("entities") instanceof List<?> list) {
+      for (Object e : list) if (e != null && !e.toString().isBlank()) entities.add(e.toString());
+    }
+    switch (type) {
+      case IntentClassifier.CATEGORY, IntentClassifier.SOURCE -> {
+        if (!entities.isEmpty()) return new IntentClassifier.Intent(type, entities.get(0), null);
+      }
+      case IntentClassifier.SCORE -> {
+        return new IntentClassifier.Intent(type, null, minScore(extracted));
+      }
+      case IntentClassifier.NEARBY -> {
+        if (hasLocation) return new IntentClassifier.Intent(type, null, null);
+      }
+      default -> {
+        if (!entities.isEmpty()) {
+          return new IntentClassifier.Intent(
+              IntentClassifier.SEARCH, String.join(" ", entities), null);
+        }
+      }
+    }
+    return new IntentClassifier.Intent(IntentClassifier.SEARCH, q, null);
+  }
+
+  private static double minScore(Map<String, Object> extracted) {
+    if (extracted.get("extras") instanceof Map<?, ?> extras
+        && extras.get("minScore") instanceof Number n) {
+      return n.doubleValue();
+    }
+    return IntentClassifier.DEFAULT_MIN_SCORE;
+  }
+}
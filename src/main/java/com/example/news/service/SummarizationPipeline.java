@@ -0,0 +1,186 @@
+package com.example.news.service;
+
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.NewsRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Background LLM summarization. Articles are queued on a bounded executor, each article id is
+ * summarized at most once at a time, and finished summaries are written back through {@link
+ * NewsRepository#saveSummary}, which touches no other attribute. Readers get whatever summary
+ * exists right away, optionally waiting up to {@code llm.summary.waitMs} for in-flight work.
+ *
+ * <p>Near-duplicates share one summary: work is keyed by {@link NewsArticle#getCanonicalId()}, or
+ * {@link NewsRepository#canonicalId} for rows stored without one, a summary already on the
+ * canonical article is copied instead of asking the LLM again, and a new summary is also written to
+ * the canonical article for the rest of its cluster.
+ */
+@Service
+public class SummarizationPipeline {
+
+  private final LLMService llmService;
+  private final NewsRepository newsRepository;
+  private final ThreadPoolExecutor executor;
+  private final long waitMs;
+  private final ConcurrentMap<String, Pending> inFlight = new ConcurrentHashMap<>();
+
+  /** A summary being produced for one cluster, and the article it was started for. */
+  private record Pending(String articleId, CompletableFuture<NewsArticle> future) {}
+
+  public SummarizationPipeline(
+      LLMService llmService,
+      NewsRepository newsRepository,
+      @Value("${llm.summary.concurrency:4}") int concurrency,
+      @Value("${llm.summary.queueCapacity:1000}") int queueCapacity,
+      @Value("${llm.summary.waitMs:0}") long waitMs) {
+    this.llmService = llmService;
+    this.newsRepository = newsRepository;
+    this.waitMs = waitMs;
+    int threads = Math.max(1, concurrency);
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Queues a summary for {@code article} unless it already has one or is already queued. The
+   * returned future completes with the summarized copy, or with the original article when the queue
+   * is full or the LLM returns nothing.
+   */
+  public CompletableFuture<NewsArticle> submit(NewsArticle article) {
+    if (hasSummary(article) || article.getId() == null) {
+      return CompletableFuture.completedFuture(article);
+    }
+    String cluster = clusterOf(article);
+    Pending created = new Pending(article.getId(), new CompletableFuture<>());
+    Pending existing = inFlight.putIfAbsent(cluster, created);
+    if (existing != null) {
+      // The story is already being summarized, possibly for another article; borrow its summary
+      // onto this one rather than hand back the other article.
+      return existing.articleId().equals(article.getId())
+          ? existing.future()
+          : existing.future().thenApply(done -> withSummaryOf(article, done));
+    }
+    try {
+      executor.execute(() -> summarize(article, created));
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(cluster, created);
+      created.future().complete(article);
+    }
+    return created.future();
+  }
+
+  /**
+   * Queues every unsummarized article and returns the list with whatever summaries are available
+   * once the configured wait (if any) has elapsed.
+   */
+  public List<NewsArticle> enrich(List<NewsArticle> articles) {
+    List<CompletableFuture<NewsArticle>> futures = new ArrayList<>(articles.size());
+    for (NewsArticle a : articles) futures.add(submit(a));
+    if (waitMs <= 0) return articles;
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+    List<NewsArticle> out = new ArrayList<>(articles.size());
+    for (int i = 0; i < articles.size(); i++) {
+      NewsArticle a = articles.get(i);
+      long remaining = deadline - System.nanoTime();
+      try {
+        NewsArticle done = futures.get(i).get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        if (hasSummary(done) && !hasSummary(a)) {
+          a = a.toBuilder().llmSummary(done.getLlmSummary()).build();
+        }
+      } catch (TimeoutException | ExecutionException e) {
+        // Deadline passed or summarization failed; return the article as-is.
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      out.add(a);
+    }
+    return out;
+  }
+
+  /**
+   * {@link #enrich} without blocking: completes once every queued summary is done, or after the
+   * configured wait with whichever are.
+   */
+  public CompletableFuture<List<NewsArticle>> enrichAsync(List<NewsArticle> articles) {
+    List<CompletableFuture<NewsArticle>> futures = new ArrayList<>(articles.size());
+    for (NewsArticle a : articles) futures.add(submit(a));
+    if (waitMs <= 0) return CompletableFuture.completedFuture(articles);
+
+    CompletableFuture<?>[] settled = new CompletableFuture<?>[futures.size()];
+    for (int i = 0; i < settled.length; i++) settled[i] = futures.get(i).handle((a, e) -> a);
+    return CompletableFuture.allOf(settled)
+        .completeOnTimeout(null, waitMs, TimeUnit.MILLISECONDS)
+        .thenApply(
+            done -> {
+              List<NewsArticle> out = new ArrayList<>(articles.size());
+              for (int i = 0; i < articles.size(); i++) {
+                CompletableFuture<NewsArticle> f = futures.get(i);
+                boolean summarized = f.isDone() && !f.isCompletedExceptionally();
+                out.add(summarized ? withSummaryOf(articles.get(i), f.join()) : articles.get(i));
+              }
+              return out;
+            });
+  }
+
+  public int inFlightCount() {
+    return inFlight.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void summarize(NewsArticle article, Pending pending) {
+    CompletableFuture<NewsArticle> result = pending.future();
+    String cluster = clusterOf(article);
+    try {
+      NewsArticle canonical =
+          cluster.equals(article.getId()) ? null : newsRepository.findById(cluster).orElse(null);
+      String summary =
+          hasSummary(canonical)
+              ? canonical.getLlmSummary()
+              : llmService.summarizeArticleSync(article.getTitle(), article.getDescription());
+      if (summary == null || summary.isEmpty()) {
+        result.complete(article);
+        return;
+      }
+      NewsArticle summarized = article.toBuilder().llmSummary(summary).build();
+      newsRepository.saveSummary(article.getId(), summary);
+      if (canonical != null && !hasSummary(canonical)) {
+        newsRepository.saveSummary(canonical.getId(), summary);
+      }
+      result.complete(summarized);
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+    } finally {
+      inFlight.remove(cluster, pending);
+    }
+  }
+
+  private String clusterOf(NewsArticle article) {
+    return article.getCanonicalId() == null
+        ? newsRepository.canonicalId(article.getId())
+        : article.getCanonicalId();
+  }
+
+  private static NewsArticle withSummaryOf(NewsArticle article, NewsArticle done) {
+    if (hasSummary(article) || !hasSummary(done)) return article;
+    return article.toBuilder().llmSummary(done.getLlmSummary()).build();
+  }
+
+  private static boolean hasSummary(NewsArticle article) {
+    return article != null && article.getLlmSummary() != null && !article.getLlmSummary().isEmpty();
+  }
+}
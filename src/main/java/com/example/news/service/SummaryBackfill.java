@@ -0,0 +1,263 @@
+package com.example.news.service;
+
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.NewsRepository;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes LLM summaries for every article that lacks one, in bulk.
+ *
+ * <p>Work is per story, as in {@link SummarizationPipeline}: a story that already has a summary on
+ * one of its articles has it copied to the rest without an LLM call, and otherwise one article per
+ * story (its canonical one when present) is sent. Those are packed into batches of up to {@code
+ * llm.backfill.batchArticles} articles and about {@code llm.backfill.maxPromptTokens} prompt
+ * tokens, each summarized with one {@link LLMService#summarizeBatch} call, and the batches run on
+ * {@link LlmScheduler#maxInFlight()} threads so the scheduler's budgets are what paces them.
+ * Articles a reply left out stay unsummarized for the next run; a failed batch does not stop the
+ * others. Summaries are written with {@link NewsRepository#saveSummary}, so articles re-ingested
+ * since the scan keep their new contents.
+ */
+@Service
+public class SummaryBackfill {
+
+  /** Progress of the current or last run. */
+  public record Report(
+      boolean running,
+      int stories,
+      int batches,
+      int summarized,
+      int copied,
+      int missing,
+      int failedBatches,
+      long tokens,
+      long elapsedMs,
+      double articlesPerSecond,
+      double articlesPer1kTokens,
+      LlmScheduler.Stats llm) {}
+
+  private final LLMService llmService;
+  private final NewsRepository newsRepository;
+  private final LlmScheduler scheduler;
+  private final int batchArticles;
+  private final long maxPromptTokens;
+
+  private volatile Run current;
+  private Thread worker;
+
+  public SummaryBackfill(
+      LLMService llmService,
+      NewsRepository newsRepository,
+      LlmScheduler scheduler,
+      @Value("${llm.backfill.batchArticles:8}") int batchArticles,
+      @Value("${llm.backfill.maxPromptTokens:4000}") long maxPromptTokens) {
+    this.llmService = llmService;
+    this.newsRepository = newsRepository;
+    this.scheduler = scheduler;
+    this.batchArticles = Math.max(1, batchArticles);
+    this.maxPromptTokens = Math.max(1, maxPromptTokens);
+  }
+
+  /**
+   * Starts a run in the background over at most {@code maxStories} stories (all when 0 or less).
+   * Returns false if one is already running.
+   */
+  public synchronized boolean start(int maxStories) {
+    if (worker != null && worker.isAlive()) return false;
+    Run run = new Run();
+    current = run;
+    worker = new Thread(() -> execute(run, maxStories), "summary-backfill");
+    worker.setDaemon(true);
+    worker.start();
+    return true;
+  }
+
+  /** Runs a backfill on the calling thread and returns its final report. */
+  public Report run(int maxStories) {
+    Run run = new Run();
+    current = run;
+    execute(run, maxStories);
+    return run.report();
+  }
+
+  /** The current or last run's report; all zeros before the first run. */
+  public Report report() {
+    Run run = current;
+    return run == null
+        ? new Report(false, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, scheduler.stats())
+        : run.report();
+  }
+
+  private void execute(Run run, int maxStories) {
+    try {
+      Map<String, List<NewsArticle>> stories = new LinkedHashMap<>();
+      for (NewsArticle a : newsRepository.scanAll()) {
+        if (a.getId() != null) stories.computeIfAbsent(clusterOf(a), k -> new ArrayList<>()).add(a);
+      }
+
+      // Stories with a summary somewhere only need it copied; the rest need the LLM.
+      Map<String, String> copies = new LinkedHashMap<>();
+      Map<String, List<NewsArticle>> pending = new LinkedHashMap<>();
+      for (Map.Entry<String, List<NewsArticle>> story : stories.entrySet()) {
+        List<NewsArticle> missing = story.getValue().stream().filter(a -> !hasSummary(a)).toList();
+        if (missing.isEmpty()) continue;
+        Optional<NewsArticle> summarized =
+            story.getValue().stream().filter(SummaryBackfill::hasSummary).findFirst();
+        if (summarized.isPresent()) {
+          for (NewsArticle a : missing) copies.put(a.getId(), summarized.get().getLlmSummary());
+        } else if (maxStories <= 0 || pending.size() < maxStories) {
+          pending.put(story.getKey(), missing);
+        }
+      }
+      copies.forEach(newsRepository::saveSummary);
+      run.copied.addAndGet(copies.size());
+
+      List<List<NewsArticle>> batches = pack(pending);
+      run.stories.set(pending.size());
+      run.batches.set(batches.size());
+      ExecutorService executor =
+          Executors.newFixedThreadPool(
+              Math.min(Math.max(1, batches.size()), scheduler.maxInFlight()));
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<NewsArticle> batch : batches) {
+          futures.add(executor.submit(() -> summarize(run, batch, pending)));
+        }
+        for (Future<?> f : futures) f.get();
+      } finally {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | RuntimeException e) {
+      System.out.println("Summary backfill failed: " + e.getMessage());
+    } finally {
+      run.finish();
+      Report r = run.report();
+      System.out.printf(
+          "Summary backfill: %d stories in %d batches, %d articles summarized (%d missing, %d"
+              + " failed batches), %d copied within stories, %d tokens in %.1fs: %.2f articles/sec,"
+              + " %.2f articles per 1k tokens.%n",
+          r.stories(),
+          r.batches(),
+          r.summarized(),
+          r.missing(),
+          r.failedBatches(),
+          r.copied(),
+          r.tokens(),
+          r.elapsedMs() / 1000.0,
+          r.articlesPerSecond(),
+          r.articlesPer1kTokens());
+    }
+  }
+
+  /** Representative articles, batched by article count and estimated prompt size. */
+  private List<List<NewsArticle>> pack(Map<String, List<NewsArticle>> pending) {
+    List<List<NewsArticle>> batches = new ArrayList<>();
+    List<NewsArticle> batch = new ArrayList<>();
+    long promptTokens = 0;
+    for (Map.Entry<String, List<NewsArticle>> story : pending.entrySet()) {
+      NewsArticle representative =
+          story.getValue().stream()
+              .filter(a -> a.getId().equals(story.getKey()))
+              .findFirst()
+              .orElse(story.getValue().get(0));
+      long tokens =
+          LLMService.estimateTokens(representative.getTitle())
+              + LLMService.estimateTokens(representative.getDescription());
+      if (!batch.isEmpty()
+          && (batch.size() >= batchArticles || promptTokens + tokens > maxPromptTokens)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        promptTokens = 0;
+      }
+      batch.add(representative);
+      promptTokens += tokens;
+    }
+    if (!batch.isEmpty()) batches.add(batch);
+    return batches;
+  }
+
+  private void summarize(Run run, List<NewsArticle> batch, Map<String, List<NewsArticle>> pending) {
+    try {
+      LLMService.BatchSummaries result = llmService.summarizeBatch(batch);
+      run.tokens.addAndGet(result.tokens());
+      Map<String, String> updates = new LinkedHashMap<>();
+      for (NewsArticle representative : batch) {
+        String summary = result.byId().get(representative.getId());
+        if (summary == null) {
+          run.missing.incrementAndGet();
+          continue;
+        }
+        run.summarized.incrementAndGet();
+        List<NewsArticle> story = pending.get(clusterOf(representative));
+        for (NewsArticle a : story) updates.put(a.getId(), summary);
+        run.copied.addAndGet(story.size() - 1);
+      }
+      updates.forEach(newsRepository::saveSummary);
+    } catch (RuntimeException e) {
+      run.failedBatches.incrementAndGet();
+      run.missing.addAndGet(batch.size());
+      System.out.println("Summary batch of " + batch.size() + " failed: " + e.getMessage());
+    }
+  }
+
+  private String clusterOf(NewsArticle article) {
+    return article.getCanonicalId() == null
+        ? newsRepository.canonicalId(article.getId())
+        : article.getCanonicalId();
+  }
+
+  private static boolean hasSummary(NewsArticle article) {
+    return article.getLlmSummary() != null && !article.getLlmSummary().isEmpty();
+  }
+
+  /** Counters of one run. */
+  private final class Run {
+    final long startNanos = System.nanoTime();
+    final LlmScheduler.Stats llmBefore = scheduler.stats();
+    final AtomicInteger stories = new AtomicInteger();
+    final AtomicInteger batches = new AtomicInteger();
+    final AtomicInteger summarized = new AtomicInteger();
+    final AtomicInteger copied = new AtomicInteger();
+    final AtomicInteger missing = new AtomicInteger();
+    final AtomicInteger failedBatches = new AtomicInteger();
+    final AtomicLong tokens = new AtomicLong();
+    volatile long endNanos = -1;
+
+    void finish() {
+      endNanos = System.nanoTime();
+    }
+
+    Report report() {
+      long end = endNanos < 0 ? System.nanoTime() : endNanos;
+      long elapsedMs = TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+      int done = summarized.get();
+      long used = tokens.get();
+      LlmScheduler.Stats now = scheduler.stats();
+      return new Report(
+          endNanos < 0,
+          stories.get(),
+          batches.get(),
+          done,
+          copied.get(),
+          missing.get(),
+          failedBatches.get(),
+          used,
+          elapsedMs,
+          elapsedMs == 0 ? 0 : done * 1000.0 / elapsedMs,
+          used == 0 ? 0 : done * 1000.0 / used,
+          new LlmScheduler.Stats(
+              now.calls() - llmBefore.calls(),
+              now.retries() - llmBefore.retries(),
+              now.throttled() - llmBefore.throttled(),
+              now.failures() - llmBefore.failures(),
+              now.tokens() - llmBefore.tokens(),
+              now.inFlight()));
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.news.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket holding up to {@code capacity} permits and refilling {@code perMinute} of them every
+ * minute, continuously.
+ *
+ * <p>{@link #reserve} always succeeds: it takes the permits at once, letting the balance go
+ * negative, and returns how long the caller has to wait for the debt to refill. A request larger
+ * than the whole bucket therefore still goes through, just after a proportionally longer wait.
+ * {@link #refund} gives back permits that were reserved but not used, such as tokens a response did
+ * not spend, and {@link #drain} empties the bucket when the server reports it is over its limit.
+ */
+public final class TokenBucket {
+
+  private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+  private final double capacity;
+  private final double perNano;
+  private final LongSupplier clock;
+  private double available;
+  private long refilledAt;
+
+  public TokenBucket(long perMinute) {
+    this(perMinute, System::nanoTime);
+  }
+
+  public TokenBucket(long perMinute, LongSupplier clock) {
+    if (perMinute <= 0) throw new IllegalArgumentException("perMinute must be positive");
+    this.capacity = perMinute;
+    this.perNano = perMinute / (double) NANOS_PER_MINUTE;
+    this.clock = clock;
+    this.available = capacity;
+    this.refilledAt = clock.getAsLong();
+  }
+
+  /** Takes {@code permits} and returns the nanoseconds to wait before using them (0 if none). */
+  public synchronized long reserve(long permits) {
+    refill();
+    available -= permits;
+    return available >= 0 ? 0 : (long) Math.ceil(-available / perNano);
+  }
+
+  /** Gives back permits reserved but not used; a negative count takes more after the fact. */
+  public synchronized void refund(long permits) {
+    refill();
+    available = Math.min(capacity, available + permits);
+  }
+
+  /** Empties the bucket, so the next reservations wait for a fresh refill. */
+  public synchronized void drain() {
+    refill();
+    available = Math.min(available, 0);
+  }
+
+  public synchronized long available() {
+    refill();
+    return (long) Math.floor(available);
+  }
+
+  private void refill() {
+    long now = clock.getAsLong();
+    available = Math.min(capacity, available + (now - refilledAt) * perNano);
+    refilledAt = now;
+  }
+}
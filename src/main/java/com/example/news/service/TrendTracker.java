@@ -0,0 +1,244 @@
+package com.example.news.service;
+
+import com.example.news.index.CountMinSketch;
+import com.example.news.index.SearchIndex;
+import com.example.news.index.SpaceSaving;
+import com.example.news.index.TopK;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleChangeListener;
+import com.example.news.repository.NewsRepository;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Top categories, sources and title terms over the last hour or day of {@code publicationEpoch},
+ * maintained incrementally as articles are saved.
+ *
+ * <p>Time is cut into buckets of {@code news.trending.bucketMinutes}; a ring keeps the newest day's
+ * worth. Each bucket holds, per dimension, a {@link CountMinSketch} for counts and a {@link
+ * SpaceSaving} set of candidate heavy hitters. A query takes the candidates of the buckets in its
+ * window and ranks them by their count summed over those buckets, so its cost depends on the bucket
+ * count and sketch sizes, never on the corpus. Windows are aligned to buckets. Articles older than
+ * the ring, or without an epoch, are not counted.
+ *
+ * <p>The tracker is filled from one projected scan on first use and kept current through {@link
+ * ArticleChangeListener}; a re-saved article has its previous contribution retracted first. Changes
+ * reported while the scan runs are queued and applied after it against what the scan counted for
+ * the same article, so a save is neither lost nor counted twice.
+ */
+@Component
+public class TrendTracker implements ArticleChangeListener {
+
+  public static final String HOUR = "hour";
+  public static final String DAY = "day";
+
+  private static final int MIN_TERM_LENGTH = 3;
+
+  private static final Set<String> STOPWORDS =
+      Set.of(
+          "about", "after", "again", "against", "all", "also", "and", "are", "amid", "as", "but",
+          "can", "could", "for", "from", "had", "has", "have", "her", "his", "how", "into", "its",
+          "may", "more", "new", "not", "now", "off", "over", "says", "said", "she", "than", "that",
+          "the", "their", "them", "they", "this", "was", "were", "what", "when", "who", "why",
+          "will", "with", "you", "your");
+
+  public record Trend(String name, long count) {}
+
+  public record Trending(
+      String window, long asOf, List<Trend> categories, List<Trend> sources, List<Trend> terms) {}
+
+  private enum Dimension {
+    CATEGORY,
+    SOURCE,
+    TERM
+  }
+
+  /** What one article adds: a bucket and the distinct keys per dimension. */
+  private record Contribution(long bucket, List<Set<String>> keys) {}
+
+  private final class Bucket {
+    long index = Long.MIN_VALUE;
+    final CountMinSketch[] sketches = new CountMinSketch[Dimension.values().length];
+    final SpaceSaving[] hitters = new SpaceSaving[Dimension.values().length];
+
+    void reset(long newIndex) {
+      index = newIndex;
+      for (int d = 0; d < sketches.length; d++) {
+        if (sketches[d] == null) {
+          sketches[d] = new CountMinSketch(sketchWidth, sketchDepth);
+          hitters[d] = new SpaceSaving(heavyHitters);
+        } else {
+          sketches[d].clear();
+          hitters[d].clear();
+        }
+      }
+    }
+  }
+
+  private final NewsRepository repository;
+  private final long bucketMillis;
+  private final int sketchWidth;
+  private final int sketchDepth;
+  private final int heavyHitters;
+  private final Bucket[] ring;
+  private volatile boolean loaded;
+
+  /** Changes reported during the initial scan, as (previous, current) pairs. */
+  private final List<NewsArticle[]> pending = new ArrayList<>();
+
+  public TrendTracker(
+      @Value("${news.trending.bucketMinutes:15}") int bucketMinutes,
+      @Value("${news.trending.sketchWidth:1024}") int sketchWidth,
+      @Value("${news.trending.sketchDepth:4}") int sketchDepth,
+      @Value("${news.trending.heavyHitters:100}") int heavyHitters,
+      NewsRepository repository) {
+    this.bucketMillis = TimeUnit.MINUTES.toMillis(Math.max(1, bucketMinutes));
+    this.sketchWidth = sketchWidth;
+    this.sketchDepth = sketchDepth;
+    this.heavyHitters = heavyHitters;
+    this.repository = repository;
+    this.ring = new Bucket[bucketsIn(DAY)];
+    for (int i = 0; i < ring.length; i++) ring[i] = new Bucket();
+    if (repository != null) repository.addChangeListener(this);
+  }
+
+  /** Trends over {@code window} ({@value #HOUR} or {@value #DAY}) ending at {@code asOfMillis}. */
+  public Trending trending(String window, long asOfMillis, int limit) {
+    ensureLoaded();
+    int span = bucketsIn(window);
+    long last = Math.floorDiv(asOfMillis, bucketMillis);
+    synchronized (this) {
+      List<Bucket> buckets = new ArrayList<>(span);
+      for (Bucket b : ring) {
+        if (b.index <= last && b.index > last - span) buckets.add(b);
+      }
+      return new Trending(
+          window,
+          asOfMillis,
+          top(buckets, Dimension.CATEGORY, limit),
+          top(buckets, Dimension.SOURCE, limit),
+          top(buckets, Dimension.TERM, limit));
+    }
+  }
+
+  @Override
+  public void onArticleChanged(NewsArticle previous, NewsArticle current) {
+    if (!loaded) {
+      synchronized (pending) {
+        if (!loaded) {
+          pending.add(new NewsArticle[] {previous, current});
+          return;
+        }
+      }
+    }
+    Contribution before = previous == null ? null : contribution(previous);
+    Contribution after = current == null ? null : contribution(current);
+    if (Objects.equals(before, after)) return;
+    synchronized (this) {
+      if (before != null) apply(before, -1);
+      if (after != null) apply(after, 1);
+    }
+  }
+
+  private void ensureLoaded() {
+    if (loaded) return;
+    synchronized (this) {
+      if (loaded) return;
+      // What the scan counted, for the articles it counted: only those inside the ring.
+      Map<String, Contribution> counted = new HashMap<>();
+      if (repository != null) {
+        try (Stream<NewsArticle> all =
+            repository.streamAll("id", "publicationEpoch", "category", "sourceName", "title")) {
+          all.forEach(
+              a -> {
+                Contribution c = contribution(a);
+                if (c != null && apply(c, 1)) counted.put(a.getId(), c);
+              });
+        }
+      }
+      synchronized (pending) {
+        // The scan saw each of these articles at some version, or not at all; replace whatever it
+        // counted with each reported version in turn, ending at the latest.
+        for (NewsArticle[] change : pending) {
+          NewsArticle current = change[1];
+          String id = current != null ? current.getId() : change[0].getId();
+          Contribution before = counted.remove(id);
+          Contribution after = current == null ? null : contribution(current);
+          if (before != null) apply(before, -1);
+          if (after != null && apply(after, 1)) counted.put(id, after);
+        }
+        pending.clear();
+        loaded = true;
+      }
+    }
+  }
+
+  private int bucketsIn(String window) {
+    long span = DAY.equals(window) ? TimeUnit.DAYS.toMillis(1) : TimeUnit.HOURS.toMillis(1);
+    return (int) Math.max(1, (span + bucketMillis - 1) / bucketMillis);
+  }
+
+  private Contribution contribution(NewsArticle a) {
+    if (a.getPublicationEpoch() == null) return null;
+    List<Set<String>> keys = new ArrayList<>(Dimension.values().length);
+    Set<String> categories = new TreeSet<>();
+    if (a.getCategory() != null) {
+      for (String c : a.getCategory()) {
+        if (c != null && !c.isBlank()) categories.add(QueryResultCache.normalize(c));
+      }
+    }
+    keys.add(categories);
+    keys.add(
+        a.getSourceName() == null || a.getSourceName().isBlank()
+            ? Set.of()
+            : Set.of(QueryResultCache.normalize(a.getSourceName())));
+    Set<String> terms = new TreeSet<>();
+    for (String t : SearchIndex.tokenize(a.getTitle())) {
+      if (t.length() >= MIN_TERM_LENGTH && !STOPWORDS.contains(t) && !isNumber(t)) terms.add(t);
+    }
+    keys.add(terms);
+    return new Contribution(Math.floorDiv(a.getPublicationEpoch(), bucketMillis), keys);
+  }
+
+  /** Adds or retracts {@code c}; false when its bucket is outside the ring. */
+  private boolean apply(Contribution c, int sign) {
+    Bucket b = ring[(int) Math.floorMod(c.bucket(), (long) ring.length)];
+    if (b.index != c.bucket()) {
+      // Slot holds a newer bucket: this article is older than the ring covers.
+      if (b.index > c.bucket() || sign < 0) return false;
+      b.reset(c.bucket());
+    }
+    for (Dimension d : Dimension.values()) {
+      for (String key : c.keys().get(d.ordinal())) {
+        b.sketches[d.ordinal()].add(key, sign);
+        if (sign > 0) b.hitters[d.ordinal()].add(key, 1);
+        else b.hitters[d.ordinal()].remove(key, 1);
+      }
+    }
+    return true;
+  }
+
+  private static List<Trend> top(List<Bucket> buckets, Dimension d, int limit) {
+    if (buckets.isEmpty() || limit <= 0) return List.of();
+    List<CountMinSketch> sketches = new ArrayList<>(buckets.size());
+    Set<String> candidates = new HashSet<>();
+    for (Bucket b : buckets) {
+      sketches.add(b.sketches[d.ordinal()]);
+      candidates.addAll(b.hitters[d.ordinal()].keys());
+    }
+    TopK<Trend> top = new TopK<>(limit);
+    for (String key : candidates) {
+      long count = CountMinSketch.estimate(sketches, key);
+      if (count > 0) top.offer(count, new Trend(key, count));
+    }
+    return top.toSortedList();
+  }
+
+  private static boolean isNumber(String token) {
+    for (int i = 0; i < token.length(); i++) if (!Character.isDigit(token.charAt(i))) return false;
+    return true;
+  }
+}
@@ -0,0 +1,65 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ArticleCacheTest {
+
+  private static NewsArticle article(String id, String title) {
+    return NewsArticle.builder().id(id).title(title).build();
+  }
+
+  @Test
+  public void handsOutCopiesOfWhatItHolds() {
+    ArticleCache cache = new ArticleCache(true, 300);
+    cache.beginLoad();
+    NewsArticle a = article("a", "A");
+    cache.load(List.of(a, article("b", "B")));
+    assertTrue(cache.isWarm());
+    a.setTitle("changed after caching");
+    assertEquals("A", cache.get("a").orElseThrow().getTitle());
+    cache.get("a").orElseThrow().setTitle("changed by a reader");
+    assertEquals("A", cache.get("a").orElseThrow().getTitle());
+
+    List<NewsArticle> first = cache.all();
+    assertEquals(first, cache.all());
+    assertEquals(2, first.size());
+
+    cache.put(article("c", "C"));
+    List<NewsArticle> second = cache.all();
+    assertNotSame(first, second);
+    assertEquals(3, second.size());
+    assertEquals(2, first.size(), "earlier snapshots are not modified");
+    assertThrows(UnsupportedOperationException.class, () -> second.add(article("d", "D")));
+  }
+
+  @Test
+  public void putsDuringLoadWinOverScannedCopies() {
+    ArticleCache cache = new ArticleCache(true, 300);
+    cache.beginLoad();
+    cache.put(article("a", "newer"));
+    Map<String, NewsArticle> changed =
+        cache.load(List.of(article("a", "older"), article("b", "B")));
+
+    assertEquals("newer", cache.get("a").orElseThrow().getTitle());
+    assertEquals(2, cache.size());
+    assertEquals(Collections.singletonMap("b", null), changed, "only b is new; a is unchanged");
+
+    changed = cache.load(List.of(article("a", "newest")));
+    assertEquals(Map.of("a", article("a", "newer"), "b", article("b", "B")), changed);
+  }
+
+  @Test
+  public void disabledCacheHoldsNothing() {
+    ArticleCache cache = ArticleCache.disabled();
+    cache.put(article("a", "A"));
+    assertFalse(cache.isWarm());
+    assertTrue(cache.get("a").isEmpty());
+  }
+}
@@ -0,0 +1,184 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.ArticleSnapshot;
+import com.example.news.repository.CorpusSnapshots;
+import com.example.news.repository.NewsRepository;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class ArticleSnapshotTest {
+
+  @TempDir Path dir;
+
+  private static List<NewsArticle> corpus(int n) {
+    List<NewsArticle> out = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      out.add(
+          NewsArticle.builder()
+              .id("id" + i)
+              .title("Título " + i + " — naïve café")
+              .description(i % 3 == 0 ? null : "Body " + i)
+              .publicationEpoch(i % 5 == 0 ? null : 1_700_000_000_000L + i)
+              .sourceName("Reuters")
+              .sourceKey("reuters")
+              .category(i % 7 == 0 ? null : List.of("world", "c" + (i % 4)))
+              .relevanceScore(i / (double) n)
+              .latitude(i % 2 == 0 ? 21.5 : null)
+              .longitude(i % 2 == 0 ? 80.25 : null)
+              .llmSummary(i % 4 == 0 ? "summary " + i : null)
+              .canonicalId("id" + (i - i % 10))
+              .updatedAt(1_750_000_000_000L + i)
+              .updateBucket("2025-06-15#" + (i % 8))
+              .build());
+    }
+    return out;
+  }
+
+  private static DynamoDbClient unusedClient() {
+    return DynamoDbClient.builder()
+        .endpointOverride(URI.create("http://127.0.0.1:1"))
+        .region(Region.US_EAST_1)
+        .credentialsProvider(
+            StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+        .build();
+  }
+
+  private NewsRepository repository(List<long[]> restores) {
+    return new NewsRepository(
+        DynamoDbEnhancedClient.builder().dynamoDbClient(unusedClient()).build(),
+        new SearchIndex(),
+        new GeoIndex(),
+        new ColumnarStore(),
+        new NearDuplicateIndex(4),
+        new ArticleCache(true, 0),
+        NewsMetrics.noop(),
+        1) {
+      @Override
+      public int restore(List<NewsArticle> snapshot, long sinceMillis) {
+        restores.add(new long[] {snapshot.size(), sinceMillis});
+        return 0;
+      }
+    };
+  }
+
+  @Test
+  public void replayReportsEditsAsEdits() {
+    List<NewsArticle> snapshot = corpus(3);
+    NewsArticle edited = snapshot.get(1).toBuilder().llmSummary("a new summary").build();
+    NewsArticle added = corpus(4).get(3);
+    NewsRepository repo =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unusedClient()).build(),
+            new SearchIndex(),
+            new GeoIndex(),
+            new ColumnarStore(),
+            new NearDuplicateIndex(4),
+            new ArticleCache(true, 0),
+            NewsMetrics.noop(),
+            1) {
+          @Override
+          public List<NewsArticle> findUpdatedSince(long sinceMillis) {
+            return List.of(snapshot.get(0), edited, added);
+          }
+        };
+    Map<String, NewsArticle> previous = new HashMap<>();
+    repo.addChangeListener((before, after) -> previous.put(after.getId(), before));
+
+    assertEquals(3, repo.restore(snapshot, 0));
+    assertEquals(Set.of("id1", "id3"), previous.keySet(), "unchanged articles are skipped");
+    assertEquals(snapshot.get(1), previous.get("id1"));
+    assertNull(previous.get("id3"), "only the unseen article is new");
+  }
+
+  @Test
+  public void replayNeedsTheArticleCache() {
+    NewsRepository repo =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unusedClient()).build(),
+            new SearchIndex(),
+            new GeoIndex(),
+            new ColumnarStore(),
+            new NearDuplicateIndex(4),
+            ArticleCache.disabled(),
+            NewsMetrics.noop(),
+            1);
+    assertThrows(IllegalStateException.class, () -> repo.restore(corpus(3), 0));
+    assertThrows(IllegalStateException.class, () -> repo.applyUpdatesSince(0));
+
+    Path file = dir.resolve("articles.snapshot");
+    assertFalse(new CorpusSnapshots(repo, true, file.toString(), 7, 0).restore());
+  }
+
+  @Test
+  public void roundTripsEveryFieldAcrossBlocks() throws IOException {
+    List<NewsArticle> articles = corpus(2500);
+    Path file = dir.resolve("articles.snapshot");
+    ArticleSnapshot.write(file, articles, 42L);
+
+    ArticleSnapshot.Loaded loaded = ArticleSnapshot.read(file);
+    assertEquals(42L, loaded.watermark());
+    assertEquals(articles, loaded.articles());
+
+    ArticleSnapshot.write(file, List.of(), 7L);
+    assertTrue(ArticleSnapshot.read(file).articles().isEmpty());
+  }
+
+  @Test
+  public void rejectsCorruptFiles() throws IOException {
+    Path file = dir.resolve("articles.snapshot");
+    ArticleSnapshot.write(file, corpus(100), 1L);
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(raf.length() - 10);
+      int b = raf.read();
+      raf.seek(raf.length() - 10);
+      raf.write(b ^ 0xFF);
+    }
+    assertThrows(IOException.class, () -> ArticleSnapshot.read(file));
+
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.setLength(40);
+    }
+    assertThrows(IOException.class, () -> ArticleSnapshot.read(file));
+  }
+
+  @Test
+  public void restoresFromRecentSnapshotsOnly() throws IOException {
+    Path file = dir.resolve("articles.snapshot");
+    List<long[]> restores = new ArrayList<>();
+    NewsRepository repo = repository(restores);
+    CorpusSnapshots snapshots = new CorpusSnapshots(repo, true, file.toString(), 7, 0);
+    assertFalse(snapshots.restore());
+
+    long watermark = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+    ArticleSnapshot.write(file, corpus(10), watermark);
+    assertTrue(snapshots.restore());
+    assertEquals(10, restores.get(0)[0]);
+    // Replay reaches back before the watermark to cover clock skew.
+    assertTrue(restores.get(0)[1] < watermark);
+
+    ArticleSnapshot.write(file, corpus(10), watermark - TimeUnit.DAYS.toMillis(8));
+    assertFalse(snapshots.restore());
+    assertEquals(1, restores.size());
+    assertFalse(CorpusSnapshots.disabled().restore());
+  }
+}
@@ -0,0 +1,260 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import com.example.news.service.ArticleStream;
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.NewsService;
+import com.example.news.service.QueryPlanner;
+import com.example.news.service.QueryResultCache;
+import com.example.news.service.SummarizationPipeline;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class ArticleStreamTest {
+
+  private final Map<String, NewsArticle> stored = new HashMap<>();
+  private ArticleStream stream;
+  private int senderThreads = 2;
+  private long sendTimeoutMs = 0;
+
+  /** Records events; {@code gate}, when set, holds every send until it opens. */
+  private static final class RecordingSink implements ArticleStream.Sink {
+    final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    final CountDownLatch gate;
+    volatile boolean closed;
+
+    RecordingSink(CountDownLatch gate) {
+      this.gate = gate;
+    }
+
+    @Override
+    public void send(String event, Object data) {
+      try {
+        if (gate != null) gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      String detail =
+          data instanceof ScoredArticle s ? s.getArticle().getId() : String.valueOf(data);
+      events.add(event + ":" + detail);
+    }
+
+    @Override
+    public void comment(String text) {}
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    String next() throws InterruptedException {
+      String e = events.poll(5, TimeUnit.SECONDS);
+      assertNotNull(e, "no event within 5s");
+      return e;
+    }
+  }
+
+  private static NewsArticle article(String id, String category, double score) {
+    return NewsArticle.builder()
+        .id(id)
+        .title("Ceasefire talks " + id)
+        .description("Officials met in Riyadh")
+        .sourceName("Reuters")
+        .category(List.of(category))
+        .relevanceScore(score)
+        .latitude(21.0)
+        .longitude(80.0)
+        .build();
+  }
+
+  private ArticleStream stream(int bufferSize, int maxSubscribers, NewsArticle... corpus) {
+    DynamoDbClient unused =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    SearchIndex search = new SearchIndex();
+    GeoIndex geo = new GeoIndex();
+    ColumnarStore columns = new ColumnarStore();
+    for (NewsArticle a : corpus) {
+      search.index(a);
+      geo.index(a);
+      columns.index(a);
+      stored.put(a.getId(), a);
+    }
+    NewsRepository repo =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unused).build(),
+            search,
+            geo,
+            columns,
+            new NearDuplicateIndex(4),
+            ArticleCache.disabled(),
+            NewsMetrics.noop(),
+            1) {
+          @Override
+          public List<NewsArticle> findAllById(List<String> ids) {
+            return ids.stream().map(stored::get).toList();
+          }
+        };
+    LLMService llm =
+        new LLMService(
+            "http://127.0.0.1:1",
+            "",
+            "m",
+            120,
+            new LlmResponseCache(1 << 20, 60, "", 0),
+            LlmScheduler.unlimited(),
+            NewsMetrics.noop());
+    NewsService service =
+        new NewsService(
+            repo,
+            new SummarizationPipeline(llm, repo, 1, 10, 0),
+            QueryResultCache.disabled(),
+            NewsMetrics.noop(),
+            false);
+    stream =
+        new ArticleStream(
+            repo,
+            service,
+            NewsMetrics.noop(),
+            bufferSize,
+            maxSubscribers,
+            senderThreads,
+            0,
+            sendTimeoutMs,
+            true);
+    return stream;
+  }
+
+  @AfterEach
+  public void shutdown() {
+    if (stream != null) stream.shutdown();
+  }
+
+  private static void awaitClosed(RecordingSink sink) throws InterruptedException {
+    for (int i = 0; i < 500 && !sink.closed; i++) Thread.sleep(10);
+    assertTrue(sink.closed, "sink not closed within 5s");
+  }
+
+  private static QueryPlanner.Criteria category(String category) {
+    return new QueryPlanner.Criteria(category, null, null, null, null, null, null);
+  }
+
+  @Test
+  public void streamsRankedPagesThenMatchingNewArticles() throws Exception {
+    ArticleStream stream =
+        stream(
+            16,
+            10,
+            article("a", "world", 0.9),
+            article("b", "world", 0.5),
+            article("c", "world", 0.7),
+            article("s", "sports", 0.99));
+    RecordingSink world = new RecordingSink(null);
+    RecordingSink nearby = new RecordingSink(null);
+    stream.subscribe(category("world"), 10, world).orElseThrow();
+    stream
+        .subscribe(
+            new QueryPlanner.Criteria(null, null, 0.6, "ceasefire", 21.0, 80.0, 5.0), 0, nearby)
+        .orElseThrow();
+
+    assertEquals("result:a", world.next());
+    assertEquals("result:c", world.next());
+    assertEquals("result:b", world.next());
+    assertEquals("live:{results=3}", world.next());
+    assertEquals("live:{results=0}", nearby.next());
+
+    stream.onArticleChanged(null, article("d", "world", 0.8));
+    stream.onArticleChanged(null, article("e", "sports", 0.4));
+    stream.onArticleChanged(article("a", "world", 0.9), article("a", "world", 0.95));
+    stream.onArticleChanged(
+        null, article("copy", "world", 0.8).toBuilder().canonicalId("d").build());
+    NewsArticle far = article("far", "world", 0.8).toBuilder().latitude(40.0).build();
+    stream.onArticleChanged(null, far);
+
+    assertEquals("article:d", world.next());
+    assertEquals("article:far", world.next());
+    assertEquals("article:d", nearby.next());
+    Thread.sleep(100);
+    assertTrue(world.events.isEmpty(), "updates, other categories and copies are not pushed");
+    assertTrue(nearby.events.isEmpty(), "score, text and radius filters apply");
+  }
+
+  @Test
+  public void slowSubscribersLoseArticlesAndThenTheirConnection() throws Exception {
+    ArticleStream stream = stream(4, 1, article("a", "world", 0.9));
+    CountDownLatch gate = new CountDownLatch(1);
+    RecordingSink slow = new RecordingSink(gate);
+    ArticleStream.Subscription s = stream.subscribe(category("world"), 0, slow).orElseThrow();
+    assertTrue(stream.subscribe(category("world"), 0, new RecordingSink(null)).isEmpty());
+
+    // The sender is stuck on the "live" event: the buffer takes 4, the next 2 are dropped.
+    for (int i = 0; i < 6; i++) stream.onArticleChanged(null, article("n" + i, "world", 0.5));
+    assertEquals(2, s.dropped());
+    gate.countDown();
+    assertEquals("live:{results=0}", slow.next());
+    for (int i = 0; i < 4; i++) assertEquals("article:n" + i, slow.next());
+    assertEquals("gap:{dropped=2}", slow.next());
+    assertTrue(s.isOpen());
+
+    // A whole buffer dropped since the last report: disconnected.
+    CountDownLatch stuck = new CountDownLatch(1);
+    RecordingSink stalled = new RecordingSink(stuck);
+    s.close();
+    ArticleStream.Subscription t = stream.subscribe(category("world"), 0, stalled).orElseThrow();
+    for (int i = 0; i < 8; i++) stream.onArticleChanged(null, article("m" + i, "world", 0.5));
+    assertFalse(t.isOpen());
+    assertEquals(0, stream.subscribers());
+    // Closed once the write in progress returns.
+    stuck.countDown();
+    awaitClosed(stalled);
+  }
+
+  @Test
+  public void stalledWritesAreAbandonedWithoutHoldingUpOthers() throws Exception {
+    senderThreads = 1;
+    sendTimeoutMs = 100;
+    ArticleStream stream = stream(16, 10, article("a", "world", 0.9));
+    CountDownLatch stuck = new CountDownLatch(1);
+    RecordingSink stalled = new RecordingSink(stuck);
+    RecordingSink other = new RecordingSink(null);
+    ArticleStream.Subscription s = stream.subscribe(category("world"), 10, stalled).orElseThrow();
+    stream.subscribe(category("world"), 10, other).orElseThrow();
+
+    // The only sender is stuck writing "result:a" to the first subscriber.
+    assertEquals("result:a", other.next());
+    assertEquals("live:{results=1}", other.next());
+    stream.onArticleChanged(null, article("b", "world", 0.5));
+    assertEquals("article:b", other.next());
+    assertFalse(s.isOpen());
+    assertEquals(1, stream.subscribers());
+    assertFalse(stalled.closed);
+
+    stuck.countDown();
+    awaitClosed(stalled);
+    assertEquals(List.of("result:a"), List.copyOf(stalled.events));
+  }
+}
@@ -0,0 +1,133 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.model.NewsArticle;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarStoreTest {
+
+  private static NewsArticle article(
+      String id, Double score, Long epoch, String source, String... categories) {
+    return NewsArticle.builder()
+        .id(id)
+        .relevanceScore(score)
+        .publicationEpoch(epoch)
+        .sourceName(source)
+        .category(List.of(categories))
+        .build();
+  }
+
+  private static List<String> ids(ColumnarStore.Selection selection) {
+    return selection.hits().stream().map(ColumnarStore.Hit::id).toList();
+  }
+
+  @Test
+  public void selectsTopScoresAndSkipsMissingOnes() {
+    ColumnarStore store = new ColumnarStore();
+    store.index(article("a", 0.9, 1L, "Reuters"));
+    store.index(article("b", 0.5, 2L, "Reuters"));
+    store.index(article("c", null, 3L, "Reuters"));
+    store.index(article("d", 0.95, 4L, "Reuters"));
+
+    ColumnarStore.Selection top = store.topByScore(0.6, 1);
+    assertEquals(2, top.matched());
+    assertEquals(List.of("d"), ids(top));
+    assertEquals(0.95, top.hits().get(0).key());
+    assertEquals(List.of("d", "a", "b"), ids(store.topByScore(0.0, 5)));
+  }
+
+  @Test
+  public void selectsNewestByCategoryAndSourceIgnoringCase() {
+    ColumnarStore store = new ColumnarStore();
+    store.index(article("old", 0.1, 100L, "Reuters", "World", "business"));
+    store.index(article("new", 0.1, 300L, "reuters", "world"));
+    store.index(article("undated", 0.1, null, "Reuters", "world"));
+    store.index(article("other", 0.1, 200L, "BBC", "sports"));
+
+    ColumnarStore.Selection world = store.newestInCategory("WORLD", 5);
+    assertEquals(List.of("new", "old"), ids(world));
+    assertEquals(2, world.matched());
+    assertEquals(List.of("new", "old"), ids(store.newestFromSource("REUTERS", 5)));
+    assertEquals(List.of("other"), ids(store.newestFromSource("bbc", 5)));
+    assertTrue(store.newestInCategory("unknown", 5).hits().isEmpty());
+  }
+
+  @Test
+  public void reindexAndRemoveUpdateColumns() {
+    ColumnarStore store = new ColumnarStore();
+    store.index(article("a", 0.9, 1L, "Reuters", "world"));
+    store.index(article("a", 0.2, 1L, "BBC", "sports"));
+    store.index(article("b", 0.8, 2L, "Reuters", "world"));
+
+    assertEquals(2, store.size());
+    assertEquals(List.of("b"), ids(store.newestInCategory("world", 5)));
+    assertEquals(List.of("a"), ids(store.newestFromSource("bbc", 5)));
+
+    store.remove("b");
+    assertEquals(1, store.size());
+    assertTrue(store.newestInCategory("world", 5).hits().isEmpty());
+
+    // The freed row is reused without leaking the old article's columns.
+    store.index(article("c", null, 5L, "BBC"));
+    assertEquals(List.of("a"), ids(store.topByScore(0.0, 5)));
+    assertEquals(List.of("c", "a"), ids(store.newestFromSource("bbc", 5)));
+  }
+
+  @Test
+  public void estimatesFromCountsAndFiltersWithinCandidates() {
+    ColumnarStore store = new ColumnarStore();
+    store.index(article("a", 0.91, 1L, "Reuters", "world"));
+    store.index(article("b", 0.5, 2L, "Reuters", "sports"));
+    store.index(article("c", 0.95, 3L, "BBC", "world"));
+    store.index(article("c", 0.3, 3L, "BBC", "world"));
+
+    assertEquals(2, store.estimate(ColumnarStore.Filter.category("WORLD")));
+    assertEquals(2, store.estimate(ColumnarStore.Filter.source("reuters")));
+    assertEquals(0, store.estimate(ColumnarStore.Filter.source("AP")));
+    assertEquals(1, store.estimate(ColumnarStore.Filter.minScore(0.9)));
+    assertEquals(1, store.estimate(new ColumnarStore.Filter("world", "bbc", 0.3)));
+
+    assertEquals(
+        List.of("a"), store.filter(new ColumnarStore.Filter("world", "Reuters", null), null));
+    assertEquals(
+        Set.of("a", "b"), Set.copyOf(store.filter(ColumnarStore.Filter.minScore(0.5), null)));
+    assertEquals(
+        List.of("c"), store.filter(ColumnarStore.Filter.category("world"), Set.of("b", "c", "x")));
+
+    store.remove("a");
+    assertEquals(0, store.estimate(ColumnarStore.Filter.minScore(0.9)));
+  }
+
+  @Test
+  public void growsPastInitialCapacity() {
+    ColumnarStore store = new ColumnarStore();
+    for (int i = 0; i < 5000; i++) store.index(article("id" + i, i / 5000.0, (long) i, "S"));
+
+    assertEquals(5000, store.size());
+    assertEquals(List.of("id4999", "id4998"), ids(store.newestFromSource("s", 2)));
+    assertEquals(500, store.topByScore(0.9, 3).matched());
+  }
+
+  @Test
+  public void reusedAndReindexedRowsKeepOnlyTheirCurrentCategories() {
+    ColumnarStore store = new ColumnarStore();
+    store.index(article("a", 0.5, 1L, "Reuters", "world", "business"));
+    store.remove("a");
+    store.index(article("b", 0.5, 2L, "Reuters", "sports"));
+    store.index(article("c", 0.5, 3L, "Reuters", "World", "WORLD"));
+
+    assertEquals(0, store.newestInCategory("business", 5).matched());
+    assertEquals(List.of("c"), ids(store.newestInCategory("world", 5)));
+    assertEquals(List.of("b"), ids(store.newestInCategory("sports", 5)));
+
+    store.index(article("c", 0.5, 3L, "Reuters"));
+    assertEquals(0, store.estimate(ColumnarStore.Filter.category("world")));
+    store.index(article("b", 0.5, 2L, "Reuters", "world"));
+    assertEquals(List.of("b"), ids(store.newestInCategory("world", 5)));
+    assertEquals(0, store.newestInCategory("sports", 5).matched());
+  }
+}
@@ -0,0 +1,169 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.loader.DataLoader;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.CorpusSnapshots;
+import com.example.news.repository.NewsRepository;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class DataLoaderTest {
+
+  @TempDir Path dir;
+  private final List<NewsArticle> saved = new CopyOnWriteArrayList<>();
+  private final Set<String> table = ConcurrentHashMap.newKeySet();
+  private NewsRepository repository;
+
+  @BeforeEach
+  public void stubRepository() {
+    DynamoDbClient unused =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    repository =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unused).build(),
+            new SearchIndex(),
+            new GeoIndex(),
+            new ColumnarStore(),
+            new NearDuplicateIndex(4),
+            ArticleCache.disabled(),
+            NewsMetrics.noop(),
+            1) {
+          @Override
+          public void saveAll(List<NewsArticle> articles) {
+            saved.addAll(articles);
+            articles.forEach(a -> table.add(a.getId()));
+          }
+
+          @Override
+          public Set<String> storedIds(Collection<String> ids) {
+            return ids.stream().filter(table::contains).collect(Collectors.toSet());
+          }
+
+          @Override
+          public void rebuildIndexes() {}
+        };
+  }
+
+  private void load() throws Exception {
+    saved.clear();
+    new DataLoader(
+            repository,
+            CorpusSnapshots.disabled(),
+            2,
+            dir.toString(),
+            dir.resolve(".manifest").toString(),
+            false)
+        .run();
+  }
+
+  private List<String> titles() {
+    return saved.stream().map(NewsArticle::getTitle).sorted().toList();
+  }
+
+  @Test
+  public void skipsUnchangedFilesAndRecords() throws Exception {
+    Path file = dir.resolve("a.json");
+    Files.writeString(
+        file,
+        "[{\"id\":\"1\",\"title\":\"One\",\"publication_date\":\"2025-03-26T04:46:55\"},"
+            + "{\"id\":\"2\",\"title\":\"Two\"}]");
+    load();
+    assertEquals(List.of("One", "Two"), titles());
+    assertEquals(1742964415000L, saved.get(0).getPublicationEpoch());
+
+    load();
+    assertTrue(saved.isEmpty());
+
+    // Rewritten file with one record edited: only that record is written again.
+    Files.writeString(
+        file,
+        "[{\"id\":\"1\",\"title\":\"One\",\"publication_date\":\"2025-03-26T04:46:55\"},"
+            + "{\"id\":\"2\",\"title\":\"Two, updated\"}]");
+    load();
+    assertEquals(List.of("Two, updated"), titles());
+  }
+
+  @Test
+  public void resumesAppendedJsonLinesAndDerivesIdsFromUrl() throws Exception {
+    Path file = dir.resolve("feed.jsonl");
+    Files.writeString(
+        file,
+        "{\"title\":\"A\",\"url\":\"https://x.test/a\"}\n"
+            + "\n"
+            + "{\"title\":\"B\",\"url\":\"https://x.test/b\"}\n"
+            + "{\"title\":\"partial");
+    load();
+    assertEquals(List.of("A", "B"), titles());
+    String idA = saved.stream().filter(a -> a.getTitle().equals("A")).findFirst().get().getId();
+
+    Files.writeString(
+        file,
+        "{\"title\":\"A\",\"url\":\"https://x.test/a\"}\n"
+            + "\n"
+            + "{\"title\":\"B\",\"url\":\"https://x.test/b\"}\n"
+            + "{\"title\":\"C\",\"url\":\"https://x.test/c\"}\n");
+    load();
+    assertEquals(List.of("C"), titles());
+
+    // Without a manifest everything is re-read, but ids come out the same.
+    Files.delete(dir.resolve(".manifest"));
+    load();
+    assertEquals(
+        idA, saved.stream().filter(a -> a.getTitle().equals("A")).findFirst().get().getId());
+  }
+
+  @Test
+  public void reloadsEverythingWhenTheTableNoLongerMatchesTheManifest() throws Exception {
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < 100; i++) lines.append("{\"id\":\"").append(i).append("\"}\n");
+    Files.writeString(dir.resolve("feed.jsonl"), lines);
+    load();
+    assertEquals(100, saved.size());
+    load();
+    assertTrue(saved.isEmpty());
+
+    // An in-memory table restarted empty: the manifest no longer describes it.
+    table.clear();
+    load();
+    assertEquals(100, saved.size());
+    load();
+    assertTrue(saved.isEmpty());
+
+    // A small append is journaled rather than rewriting the manifest, and still remembered.
+    Files.writeString(dir.resolve("feed.jsonl"), "{\"id\":\"new\"}\n", StandardOpenOption.APPEND);
+    load();
+    assertEquals(1, saved.size());
+    assertTrue(Files.exists(dir.resolve(".manifest.journal")));
+    load();
+    assertTrue(saved.isEmpty());
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.GeoIndex;
+import com.example.news.model.NewsArticle;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class GeoIndexTest {
+
+  private static NewsArticle at(String id, Double lat, Double lon) {
+    return NewsArticle.builder().id(id).latitude(lat).longitude(lon).build();
+  }
+
+  @Test
+  public void returnsNearestWithinRadius() {
+    GeoIndex index = new GeoIndex();
+    index.index(at("paris", 48.8566, 2.3522));
+    index.index(at("london", 51.5074, -0.1278));
+    index.index(at("versailles", 48.8049, 2.1204));
+    index.index(at("nowhere", null, null));
+
+    List<GeoIndex.Hit> hits = index.nearby(48.8566, 2.3522, 50, 5);
+    assertEquals(2, hits.size());
+    assertEquals("paris", hits.get(0).id());
+    assertEquals("versailles", hits.get(1).id());
+
+    assertEquals(3, index.nearby(48.8566, 2.3522, 400, 5).size());
+    assertEquals(1, index.nearby(48.8566, 2.3522, 400, 1).size());
+  }
+
+  @Test
+  public void handlesAntimeridian() {
+    GeoIndex index = new GeoIndex();
+    index.index(at("east", 0.0, 179.9));
+    index.index(at("west", 0.0, -179.9));
+
+    List<GeoIndex.Hit> hits = index.nearby(0.0, 179.95, 50, 5);
+    assertEquals(2, hits.size());
+  }
+
+  @Test
+  public void reindexMovesPoint() {
+    GeoIndex index = new GeoIndex();
+    index.index(at("a", 10.0, 10.0));
+    index.index(at("a", -10.0, -10.0));
+
+    assertEquals(1, index.size());
+    assertTrue(index.nearby(10.0, 10.0, 100, 5).isEmpty());
+    assertEquals(1, index.nearby(-10.0, -10.0, 100, 5).size());
+  }
+}
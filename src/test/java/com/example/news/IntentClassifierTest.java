@@ -0,0 +1,105 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.model.NewsArticle;
+import com.example.news.service.IntentClassifier;
+import com.example.news.service.IntentClassifier.Intent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.util.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class IntentClassifierTest {
+
+  private static final IntentClassifier classifier = new IntentClassifier(null);
+
+  /** Dictionaries come from the bundled sample corpus, as they would from the table. */
+  @BeforeAll
+  public static void learnSampleCorpus() throws Exception {
+    JsonNode root = new ObjectMapper().readTree(new File("data/news_sample.json"));
+    for (JsonNode n : root) {
+      List<String> categories = new ArrayList<>();
+      n.path("category").forEach(c -> categories.add(c.asText()));
+      classifier.onArticleChanged(
+          null,
+          NewsArticle.builder()
+              .id(n.path("id").asText())
+              .sourceName(n.path("source_name").asText(null))
+              .category(categories)
+              .build());
+    }
+  }
+
+  private static Intent classify(String q, boolean hasLocation) {
+    return classifier.classify(q, hasLocation).orElse(null);
+  }
+
+  @Test
+  public void classifiesDictionaryAndCueQueriesLocally() {
+    assertEquals(
+        new Intent("source", "Reuters", null), classify("latest news from Reuters", false));
+    assertEquals(
+        new Intent("source", "The Indian Express", null), classify("the indian express", false));
+    assertEquals(new Intent("category", "sports", null), classify("Sports news", false));
+    assertEquals(
+        new Intent("category", "Health___Fitness", null),
+        classify("health fitness stories", false));
+    assertEquals(new Intent("score", null, 0.9), classify("most relevant above 0.9", false));
+    assertEquals(new Intent("nearby", null, null), classify("news near me", true));
+    assertEquals(new Intent("search", "elon musk", null), classify("Elon Musk", false));
+  }
+
+  @Test
+  public void defersAmbiguousQueriesToTheLlm() {
+    assertNull(classify("news near me", false), "nearby without a location");
+    assertNull(classify("sports news from Reuters", false), "two intents fire");
+    assertNull(classify("tesla business results this quarter", false), "category plus other words");
+    assertNull(classify("why did the stock market fall", false), "question");
+    assertNull(classify("", false));
+  }
+
+  @Test
+  public void fallbackGuessesWhenTheLlmCannotAnswer() {
+    assertEquals(
+        new Intent("category", "sports", null),
+        classifier.fallback("sports news from somewhere unusual", false));
+    assertEquals(
+        new Intent("category", "business", null),
+        classifier.fallback("tesla business results this quarter", false));
+    assertEquals(
+        new Intent("search", "news near me", null), classifier.fallback("news near me", false));
+  }
+
+  @Test
+  public void fastPathShareOnRepresentativeQueries() {
+    List<String> queries =
+        List.of(
+            "sports",
+            "business news",
+            "latest technology news",
+            "world headlines",
+            "politics",
+            "IPL 2025",
+            "news from Hindustan Times",
+            "NDTV",
+            "articles by Reuters",
+            "ESPNcricinfo",
+            "top rated stories",
+            "most relevant news",
+            "news near me",
+            "Elon Musk",
+            "Paris Olympics",
+            "stock market crash",
+            "what is happening with the India Pakistan ceasefire talks",
+            "cricket news from ESPNcricinfo",
+            "show me something interesting about space exploration missions",
+            "startup funding rounds in bangalore this week");
+    int local = 0;
+    for (String q : queries) if (classifier.classify(q, true).isPresent()) local++;
+    assertEquals(16, local);
+    assertTrue(local * 10 >= queries.size() * 8, "at least 80% of queries skip the LLM");
+  }
+}
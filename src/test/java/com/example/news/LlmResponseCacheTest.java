@@ -0,0 +1,81 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LlmResponseCacheTest {
+
+  @Test
+  public void keyDependsOnModelAndPrompt() {
+    String k = LlmResponseCache.key("gpt-4o-mini", "Summarize: A");
+    assertEquals(k, LlmResponseCache.key("gpt-4o-mini", "Summarize: A"));
+    assertNotEquals(k, LlmResponseCache.key("gpt-4o", "Summarize: A"));
+    assertNotEquals(k, LlmResponseCache.key("gpt-4o-mini", "Summarize: B"));
+  }
+
+  @Test
+  public void countsHitsMissesAndEvictsLeastRecentlyUsed() {
+    // Room for roughly two small entries.
+    LlmResponseCache cache = new LlmResponseCache(600, 3600, "", 0);
+    String a = LlmResponseCache.key("m", "a");
+    String b = LlmResponseCache.key("m", "b");
+    String c = LlmResponseCache.key("m", "c");
+
+    assertEquals(Optional.empty(), cache.get(a));
+    cache.put(a, "summary a");
+    cache.put(b, "summary b");
+    assertEquals(Optional.of("summary a"), cache.get(a));
+    cache.put(c, "summary c");
+
+    assertEquals(Optional.empty(), cache.get(b), "b was least recently used");
+    assertEquals(Optional.of("summary c"), cache.get(c));
+    assertEquals(2, cache.hits());
+    assertEquals(2, cache.misses());
+    assertEquals(1, cache.evictions());
+    assertTrue(cache.memoryBytes() <= 600);
+  }
+
+  @Test
+  public void expiredEntriesAreMisses() {
+    LlmResponseCache cache = new LlmResponseCache(1 << 20, 0, "", 0);
+    String k = LlmResponseCache.key("m", "p");
+    cache.put(k, "value");
+    assertEquals(Optional.empty(), cache.get(k));
+  }
+
+  @Test
+  public void diskTierSurvivesRestart(@TempDir Path dir) {
+    String k = LlmResponseCache.key("m", "p");
+    new LlmResponseCache(1 << 20, 3600, dir.toString(), 1 << 20).put(k, "persisted");
+
+    LlmResponseCache restarted = new LlmResponseCache(1 << 20, 3600, dir.toString(), 1 << 20);
+    assertEquals(Optional.of("persisted"), restarted.get(k));
+    assertEquals(1, restarted.diskHits());
+  }
+
+  @Test
+  public void promptKeysAreFixedAcrossRunsAndMapOrders() {
+    Map<String, String> contentFirst = new LinkedHashMap<>();
+    contentFirst.put("content", "Hello");
+    contentFirst.put("role", "user");
+    List<Map<String, String>> messages =
+        List.of(Map.of("role", "system", "content", "Be concise."), contentFirst);
+
+    // Same value on every JVM: a restarted service must find what it cached on disk.
+    assertEquals(
+        "e7d7967a4c8b87530054a621f34afd3611a03e72a98db8f711e9f2e4ab20e0c7",
+        LLMService.cacheKey("m", messages, 200, false));
+    assertNotEquals(
+        LLMService.cacheKey("m", messages, 200, false),
+        LLMService.cacheKey("m", messages, 200, true));
+  }
+}
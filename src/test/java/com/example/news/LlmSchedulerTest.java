@@ -0,0 +1,154 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.LlmScheduler.Priority;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+public class LlmSchedulerTest {
+
+  @Test
+  public void interactiveCallsDoNotWaitBehindBackgroundWork() throws Exception {
+    // One background slot, and a background budget of 900 tokens a minute.
+    LlmScheduler scheduler =
+        new LlmScheduler(60, 1000, 1, 1, 0.1, 0, 0, 0, 0, 0, NewsMetrics.noop());
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> held =
+          pool.submit(
+              () ->
+                  scheduler.call(
+                      Priority.BACKGROUND,
+                      "summarize",
+                      900,
+                      timeout -> {
+                        try {
+                          release.await();
+                        } catch (InterruptedException e) {
+                          Thread.currentThread().interrupt();
+                        }
+                        return "held";
+                      },
+                      r -> 0));
+      while (scheduler.stats().inFlight() == 0) Thread.sleep(1);
+      Future<String> queued =
+          pool.submit(
+              () -> scheduler.call(Priority.BACKGROUND, "summarize", 1, timeout -> "q", r -> 0));
+
+      long start = System.nanoTime();
+      assertEquals(
+          "interactive",
+          scheduler.call(Priority.INTERACTIVE, "entities", 50, timeout -> "interactive", r -> 0));
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+      assertFalse(queued.isDone(), "background work still waits for its own slot");
+
+      release.countDown();
+      assertEquals("held", held.get(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void interactiveCallsGiveUpAfterTheirRetryBudgetAndDeadline() {
+    // Interactive: 1 retry within 300 ms. Background would retry 5 times.
+    LlmScheduler scheduler =
+        new LlmScheduler(6000, 1_000_000, 1, 1, 0.5, 1, 300, 5, 10, 10, NewsMetrics.noop());
+    AtomicInteger attempts = new AtomicInteger();
+    WebClientResponseException unavailable =
+        WebClientResponseException.create(
+            503, "Service Unavailable", HttpHeaders.EMPTY, null, null);
+    assertThrows(
+        WebClientResponseException.class,
+        () ->
+            scheduler.call(
+                Priority.INTERACTIVE,
+                "entities",
+                1,
+                timeout -> {
+                  attempts.incrementAndGet();
+                  throw unavailable;
+                },
+                r -> 0));
+    assertEquals(2, attempts.get(), "one retry, then give up");
+
+    HttpHeaders slowDown = new HttpHeaders();
+    slowDown.set("retry-after-ms", "5000");
+    WebClientResponseException throttled =
+        WebClientResponseException.create(429, "Too Many Requests", slowDown, null, null);
+    long start = System.nanoTime();
+    assertThrows(
+        WebClientResponseException.class,
+        () ->
+            scheduler.call(
+                Priority.INTERACTIVE,
+                "entities",
+                1,
+                timeout -> {
+                  assertNotNull(timeout, "the request is bounded by what is left of the deadline");
+                  throw throttled;
+                },
+                r -> 0));
+    assertTrue(
+        System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1),
+        "a long Retry-After is not waited out on a request thread");
+  }
+
+  @Test
+  public void asyncCallsRetryOnTimersAndKeepTheInteractiveDeadline() {
+    LlmScheduler scheduler =
+        new LlmScheduler(6000, 1_000_000, 1, 1, 0.5, 1, 300, 5, 10, 10, NewsMetrics.noop());
+    AtomicInteger attempts = new AtomicInteger();
+    WebClientResponseException unavailable =
+        WebClientResponseException.create(
+            503, "Service Unavailable", HttpHeaders.EMPTY, null, null);
+    CompletableFuture<String> answered =
+        scheduler.callAsync(
+            Priority.INTERACTIVE,
+            "entities",
+            1,
+            timeout ->
+                attempts.incrementAndGet() == 1
+                    ? CompletableFuture.failedFuture(unavailable)
+                    : CompletableFuture.completedFuture("ok"),
+            r -> 0);
+    assertEquals("ok", answered.join());
+    assertEquals(2, attempts.get(), "the 503 was retried");
+
+    // The only interactive slot is held by a call that never answers.
+    CompletableFuture<String> stuck =
+        scheduler.callAsync(
+            Priority.INTERACTIVE, "entities", 1, timeout -> new CompletableFuture<>(), r -> 0);
+    long start = System.nanoTime();
+    CompletionException e =
+        assertThrows(
+            CompletionException.class,
+            () ->
+                scheduler
+                    .callAsync(
+                        Priority.INTERACTIVE,
+                        "entities",
+                        1,
+                        timeout -> CompletableFuture.completedFuture("never sent"),
+                        r -> 0)
+                    .join());
+    assertInstanceOf(LlmScheduler.DeadlineExceededException.class, e.getCause());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    assertFalse(stuck.isDone());
+    assertEquals(1, scheduler.stats().inFlight());
+  }
+}
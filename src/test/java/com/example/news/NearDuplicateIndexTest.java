@@ -0,0 +1,58 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.model.NewsArticle;
+import org.junit.jupiter.api.Test;
+
+public class NearDuplicateIndexTest {
+
+  private static final String TITLE = "RBI asks IndusInd chiefs to exit, says report; bank denies";
+  private static final String BODY =
+      "RBI has urged IndusInd Bank CEO Sumant Kathpalia and his deputy Arun Khurana to step down"
+          + " after accounting lapses were found in its derivatives portfolio, people said.";
+
+  private static NewsArticle article(String id, String title, String description) {
+    return NewsArticle.builder().id(id).title(title).description(description).build();
+  }
+
+  @Test
+  public void clustersSyndicatedCopiesUnderTheFirstArticle() {
+    NearDuplicateIndex index = new NearDuplicateIndex(4);
+    assertEquals("a", index.index(article("a", TITLE, BODY)));
+    assertEquals("a", index.index(article("b", TITLE, BODY)));
+    assertEquals("a", index.index(article("c", TITLE.toUpperCase(), BODY + " ")));
+    assertEquals("a", index.index(article("e", TITLE, BODY.replace("people said", "sources say"))));
+    assertEquals(
+        "d",
+        index.index(article("d", "IPL: Kohli stars as RCB beat KKR", "A chase of 175 at Eden.")));
+
+    assertEquals("a", index.canonicalId("c"));
+    assertEquals("unknown", index.canonicalId("unknown"));
+    assertEquals(5, index.size());
+  }
+
+  @Test
+  public void keepsStoredCanonicalIdAndForgetsRemovedArticles() {
+    NearDuplicateIndex index = new NearDuplicateIndex(4);
+    NewsArticle stored = article("b", TITLE, BODY).toBuilder().canonicalId("z").build();
+    assertEquals("z", index.index(stored));
+    assertEquals("z", index.index(article("c", TITLE, BODY)));
+
+    index.remove("b");
+    index.remove("c");
+    assertEquals(0, index.size());
+    assertEquals("d", index.index(article("d", TITLE, BODY)));
+  }
+
+  @Test
+  public void fingerprintsAreStableAndEmptyTextIsNotClustered() {
+    assertEquals(NearDuplicateIndex.simHash(TITLE, BODY), NearDuplicateIndex.simHash(TITLE, BODY));
+    assertEquals(0, NearDuplicateIndex.simHash(null, " "));
+
+    NearDuplicateIndex index = new NearDuplicateIndex(4);
+    assertEquals("x", index.index(article("x", null, null)));
+    assertEquals("y", index.index(article("y", null, null)));
+  }
+}
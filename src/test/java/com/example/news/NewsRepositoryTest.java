@@ -0,0 +1,523 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import com.example.news.service.ExecutionMode;
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.NewsService;
+import com.example.news.service.QueryResultCache;
+import com.example.news.service.SummarizationPipeline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+/** Runs the repository against a stub speaking the DynamoDB JSON protocol. */
+public class NewsRepositoryTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private HttpServer server;
+  private NewsRepository repository;
+  private DynamoDbAsyncClient asyncClient;
+
+  /** Articles in the stub's NewsArticle table, by id. */
+  private final Map<String, Map<?, ?>> articles = new ConcurrentHashMap<>();
+
+  /** Rows the stub returns for any query, in order. */
+  private final List<Map<String, Object>> queryRows = new CopyOnWriteArrayList<>();
+
+  /** Keys each BatchGetItem call asked for, and how many calls leave keys unprocessed. */
+  private final List<List<String>> batchGets = new CopyOnWriteArrayList<>();
+
+  private int throttledGets;
+
+  /** Requests per BatchWriteItem call, how many calls leave items unprocessed, and what was put. */
+  private final List<Integer> batchWrites = new CopyOnWriteArrayList<>();
+
+  private int throttledWrites;
+  private final List<String> written = new CopyOnWriteArrayList<>();
+  private final List<Map<?, ?>> requests = new CopyOnWriteArrayList<>();
+  private final List<String> targets = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  public void startStub() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", this::reply);
+    server.start();
+    DynamoDbClient client =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:" + server.getAddress().getPort()))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    repository =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(client).build(),
+            new SearchIndex(),
+            new GeoIndex(),
+            new ColumnarStore(),
+            new NearDuplicateIndex(4),
+            ArticleCache.disabled(),
+            NewsMetrics.noop(),
+            1);
+  }
+
+  @AfterEach
+  public void stopStub() {
+    if (asyncClient != null) asyncClient.close();
+    server.stop(0);
+  }
+
+  /** A repository whose {@code *Async} reads go to the stub on the async client. */
+  private NewsRepository asyncRepository() {
+    URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    StaticCredentialsProvider credentials =
+        StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy"));
+    asyncClient =
+        DynamoDbAsyncClient.builder()
+            .endpointOverride(endpoint)
+            .region(Region.US_EAST_1)
+            .credentialsProvider(credentials)
+            .build();
+    DynamoDbClient client =
+        DynamoDbClient.builder()
+            .endpointOverride(endpoint)
+            .region(Region.US_EAST_1)
+            .credentialsProvider(credentials)
+            .build();
+    return new NewsRepository(
+        DynamoDbEnhancedClient.builder().dynamoDbClient(client).build(),
+        Optional.of(DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(asyncClient).build()),
+        new SearchIndex(),
+        new GeoIndex(),
+        new ColumnarStore(),
+        new NearDuplicateIndex(4),
+        ArticleCache.disabled(),
+        NewsMetrics.noop(),
+        1);
+  }
+
+  private synchronized void reply(HttpExchange exchange) throws IOException {
+    String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+    target = target.substring(target.indexOf('.') + 1);
+    Map<?, ?> request = MAPPER.readValue(exchange.getRequestBody(), Map.class);
+    targets.add(target);
+    requests.add(request);
+    Map<String, Object> response = new LinkedHashMap<>();
+    switch (target) {
+      case "Query" -> response.put("Items", queryRows);
+      case "Scan" -> response.put("Items", List.copyOf(articles.values()));
+      case "BatchGetItem" -> {
+        Map<?, ?> items = (Map<?, ?>) request.get("RequestItems");
+        List<?> keys = (List<?>) ((Map<?, ?>) items.get("NewsArticle")).get("Keys");
+        List<String> ids = keys.stream().map(k -> string((Map<?, ?>) k, "id")).toList();
+        batchGets.add(ids);
+        // A throttled call reads only the first key and hands the rest back.
+        int served = throttledGets-- > 0 ? 1 : ids.size();
+        List<Map<?, ?>> found = new ArrayList<>();
+        for (String id : ids.subList(0, served)) {
+          if (articles.containsKey(id)) found.add(articles.get(id));
+        }
+        response.put("Responses", Map.of("NewsArticle", found));
+        if (served < ids.size()) {
+          response.put(
+              "UnprocessedKeys",
+              Map.of("NewsArticle", Map.of("Keys", keys.subList(served, keys.size()))));
+        }
+      }
+      case "BatchWriteItem" -> {
+        Map<?, ?> items = (Map<?, ?>) request.get("RequestItems");
+        List<Map.Entry<Object, Object>> puts = new ArrayList<>();
+        items.forEach((t, r) -> ((List<?>) r).forEach(p -> puts.add(Map.entry(t, p))));
+        batchWrites.add(puts.size());
+        // A throttled call writes the first 20 requests and hands the rest back.
+        int served = throttledWrites-- > 0 ? Math.min(20, puts.size()) : puts.size();
+        Map<Object, List<Object>> unprocessed = new LinkedHashMap<>();
+        for (int i = 0; i < puts.size(); i++) {
+          Map.Entry<Object, Object> put = puts.get(i);
+          if (i >= served) {
+            unprocessed.computeIfAbsent(put.getKey(), t -> new ArrayList<>()).add(put.getValue());
+          } else {
+            Map<?, ?> item = (Map<?, ?>) ((Map<?, ?>) put.getValue()).get("PutRequest");
+            item = (Map<?, ?>) item.get("Item");
+            written.add(put.getKey() + ":" + string(item, "sortKey", "id"));
+            if (put.getKey().equals("NewsArticle")) articles.put(string(item, "id"), item);
+          }
+        }
+        response.put("UnprocessedItems", unprocessed);
+      }
+      case "PutItem" -> {
+        Map<?, ?> item = (Map<?, ?>) request.get("Item");
+        if (request.get("TableName").equals("NewsArticle")) {
+          Map<?, ?> old = articles.put(string(item, "id"), item);
+          if (old != null && "ALL_OLD".equals(request.get("ReturnValues"))) {
+            response.put("Attributes", old);
+          }
+        }
+      }
+      case "UpdateItem" -> {
+        String id = string((Map<?, ?>) request.get("Key"), "id");
+        if (!articles.containsKey(id)) {
+          error(exchange, "ConditionalCheckFailedException");
+          return;
+        }
+        Map<String, Object> item = new HashMap<>();
+        ((Map<?, ?>) articles.get(id)).forEach((k, v) -> item.put((String) k, v));
+        Map<?, ?> values = (Map<?, ?>) request.get("ExpressionAttributeValues");
+        values.forEach((k, v) -> item.put(((String) k).replace(":AMZN_MAPPED_", ""), v));
+        articles.put(id, item);
+        response.put("Attributes", item);
+      }
+      default -> {}
+    }
+    byte[] body = MAPPER.writeValueAsBytes(response);
+    exchange.getResponseHeaders().add("Content-Type", "application/x-amz-json-1.0");
+    exchange.sendResponseHeaders(200, body.length);
+    exchange.getResponseBody().write(body);
+    exchange.close();
+  }
+
+  private static void error(HttpExchange exchange, String type) throws IOException {
+    byte[] body =
+        MAPPER.writeValueAsBytes(
+            Map.of("__type", "com.amazonaws.dynamodb.v20120810#" + type, "message", type));
+    exchange.getResponseHeaders().add("Content-Type", "application/x-amz-json-1.0");
+    exchange.sendResponseHeaders(400, body.length);
+    exchange.getResponseBody().write(body);
+    exchange.close();
+  }
+
+  private static String string(Map<?, ?> item, String attribute) {
+    return (String) ((Map<?, ?>) item.get(attribute)).get("S");
+  }
+
+  /** The first of {@code attributes} present on {@code item}. */
+  private static String string(Map<?, ?> item, String... attributes) {
+    for (String attribute : attributes) {
+      if (item.containsKey(attribute)) return string(item, attribute);
+    }
+    return null;
+  }
+
+  private static Map<String, Object> s(String value) {
+    return Map.of("S", value);
+  }
+
+  private static Map<String, Object> n(long value) {
+    return Map.of("N", Long.toString(value));
+  }
+
+  private void put(String id, long epoch, String... categories) {
+    Map<String, Object> item = new HashMap<>();
+    item.put("id", s(id));
+    item.put("title", s("Title " + id));
+    item.put("publicationEpoch", n(epoch));
+    item.put("category", Map.of("L", Arrays.stream(categories).map(c -> s(c)).toList()));
+    articles.put(id, item);
+  }
+
+  private void categoryRow(String category, String id, long epoch) {
+    queryRows.add(
+        Map.of(
+            "category", s(category),
+            "sortKey", s(String.format("%019d#%s", epoch, id)),
+            "articleId", s(id),
+            "publicationEpoch", n(epoch)));
+  }
+
+  private List<String> requestsTo(String target) {
+    List<String> out = new ArrayList<>();
+    for (int i = 0; i < targets.size(); i++) {
+      if (targets.get(i).equals(target)) out.add(MAPPER.valueToTree(requests.get(i)).toString());
+    }
+    return out;
+  }
+
+  @Test
+  public void categoryQueryRetriesThrottledReadsAndDeletesOnlyStaleRows() {
+    put("a", 300, "World");
+    put("b", 200, "sports"); // moved out of "world": its row is stale
+    put("d", 50, "world");
+    categoryRow("world", "a", 300);
+    categoryRow("world", "b", 200);
+    categoryRow("world", "c", 100); // article not written yet
+    categoryRow("world", "d", 50);
+    throttledGets = 2;
+
+    List<NewsArticle> found = repository.queryByCategory("WORLD", 3);
+
+    assertEquals(List.of("a", "d"), found.stream().map(NewsArticle::getId).toList());
+    assertEquals(
+        List.of(List.of("a", "b", "c"), List.of("b", "c"), List.of("c"), List.of("d")), batchGets);
+    List<String> deletes = requestsTo("DeleteItem");
+    assertEquals(1, deletes.size());
+    assertTrue(deletes.get(0).contains("#b"), deletes.get(0));
+    assertTrue(requestsTo("Query").get(0).contains("\"world\""));
+  }
+
+  @Test
+  public void findAllByIdReadsEveryArticleUnderThrottling() {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      put("n" + i, i, "world");
+      ids.add("n" + i);
+    }
+    ids.add("gone");
+    throttledGets = 3;
+
+    List<NewsArticle> found = repository.findAllById(ids);
+
+    assertEquals(ids.subList(0, 150), found.stream().map(NewsArticle::getId).toList());
+    assertEquals(
+        List.of(100, 99, 98, 97, 51), batchGets.stream().map(List::size).toList(), "retried keys");
+  }
+
+  @Test
+  public void asyncReadsRetryAndCleanUpLikeTheBlockingOnes() {
+    NewsRepository async = asyncRepository();
+    put("a", 300, "World");
+    put("b", 200, "sports");
+    put("d", 50, "world");
+    categoryRow("world", "a", 300);
+    categoryRow("world", "b", 200);
+    categoryRow("world", "c", 100);
+    categoryRow("world", "d", 50);
+    throttledGets = 2;
+
+    List<NewsArticle> found = async.queryByCategoryAsync("WORLD", 3).join();
+
+    assertEquals(List.of("a", "d"), found.stream().map(NewsArticle::getId).toList());
+    assertEquals(
+        List.of(List.of("a", "b", "c"), List.of("b", "c"), List.of("c"), List.of("d")), batchGets);
+    List<String> deletes = requestsTo("DeleteItem");
+    assertEquals(1, deletes.size());
+    assertTrue(deletes.get(0).contains("#b"), deletes.get(0));
+
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      put("n" + i, i, "world");
+      ids.add("n" + i);
+    }
+    ids.add("gone");
+    throttledGets = 3;
+    assertEquals(
+        ids.subList(0, 150),
+        async.findAllByIdAsync(ids).join().stream().map(NewsArticle::getId).toList());
+
+    queryRows.clear();
+    queryRows.add(Map.of("id", s("x"), "sourceName", s("IHA"), "sourceKey", s("iha")));
+    queryRows.add(Map.of("id", s("y"), "sourceName", s("IHA"), "sourceKey", s("iha")));
+    assertEquals(
+        List.of("x"),
+        async.queryBySourceAsync("IHA", 1).join().stream().map(NewsArticle::getId).toList());
+  }
+
+  @Test
+  public void asyncModeServesTheSamePagesWithoutBlockingTheCaller() {
+    NewsRepository async = asyncRepository();
+    put("a", 300, "world");
+    put("b", 200, "world");
+    categoryRow("world", "a", 300);
+    categoryRow("world", "b", 200);
+    LLMService llm =
+        new LLMService(
+            "http://127.0.0.1:1",
+            "",
+            "m",
+            120,
+            new LlmResponseCache(1 << 20, 60, "", 0),
+            LlmScheduler.unlimited(),
+            NewsMetrics.noop());
+    NewsService service =
+        new NewsService(
+            async,
+            new SummarizationPipeline(llm, async, 1, 10, 0),
+            QueryResultCache.disabled(),
+            NewsMetrics.noop(),
+            true);
+
+    // Before the indexes are loaded the page comes from the category table.
+    assertEquals(
+        List.of("b"),
+        service.fetchNewsArticlesByCategory("world", 1, 1, ExecutionMode.ASYNC).join().stream()
+            .map(a -> a.getArticle().getId())
+            .toList());
+
+    // Afterwards from the columns, materialized with BatchGetItem on the async client.
+    async.rebuildIndexes();
+    batchGets.clear();
+    assertEquals(
+        service.fetchNewsArticlesByCategory("world", 0, 5).stream()
+            .map(a -> a.getArticle().getId())
+            .toList(),
+        service.fetchNewsArticlesByCategory("world", 0, 5, ExecutionMode.ASYNC).join().stream()
+            .map(a -> a.getArticle().getId())
+            .toList());
+    assertEquals(List.of(List.of("a", "b"), List.of("a", "b")), batchGets);
+  }
+
+  @Test
+  public void saveAllWritesInChunksAndRetriesUnprocessedItems() {
+    List<NewsArticle> batch = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      batch.add(
+          NewsArticle.builder()
+              .id("n" + i)
+              .publicationEpoch((long) i)
+              .category(List.of("world"))
+              .build());
+    }
+    batch.add(batch.get(0).toBuilder().title("later copy").build());
+    throttledWrites = 1;
+
+    repository.saveAll(batch);
+
+    // 30 articles and 30 category rows: 25 + 25 + 10, with 5 of the first chunk retried.
+    assertEquals(List.of(25, 5, 25, 10), batchWrites);
+    assertEquals(60, written.size());
+    assertEquals(60, new HashSet<>(written).size());
+    assertTrue(written.contains("NewsArticle:n29"));
+    assertTrue(written.contains("NewsArticleCategory:0000000000000000029#n29"));
+    assertEquals(
+        "later copy", repository.findAllById(List.of("n0")).get(0).getTitle(), "last copy wins");
+  }
+
+  @Test
+  public void saveSummaryUpdatesOnlyTheSummary() {
+    put("a", 1, "world");
+
+    NewsArticle stored = repository.saveSummary("a", "short summary").orElseThrow();
+
+    assertEquals("Title a", stored.getTitle());
+    assertEquals("short summary", stored.getLlmSummary());
+    String update = requestsTo("UpdateItem").get(0);
+    assertTrue(update.contains("attribute_exists"), update);
+    assertTrue(update.contains("llmSummary") && update.contains("updatedAt"), update);
+    assertFalse(update.contains("title") || update.contains("category"), update);
+    assertTrue(requestsTo("PutItem").isEmpty());
+
+    assertTrue(repository.saveSummary("gone", "summary").isEmpty());
+    assertFalse(articles.containsKey("gone"));
+  }
+
+  @Test
+  public void savesStoreTheClusterOfNearDuplicates() {
+    NewsArticle first = NewsArticle.builder().id("a").title("Storm hits the coast").build();
+    repository.save(first);
+    repository.saveAll(
+        List.of(NewsArticle.builder().id("b").title("Storm hits the coast").build()));
+
+    assertTrue(requestsTo("PutItem").get(0).contains("\"canonicalId\":{\"S\":\"a\"}"));
+    assertEquals("a", string(articles.get("b"), "canonicalId"));
+    assertEquals("a", repository.canonicalId("b"));
+  }
+
+  @Test
+  public void listenersTellEditsFromNewArticlesWithoutTheCache() {
+    List<String> changes = new CopyOnWriteArrayList<>();
+    repository.addChangeListener(
+        (previous, current) ->
+            changes.add(
+                current.getId() + (previous == null ? " new" : " was " + previous.getTitle())));
+
+    repository.save(NewsArticle.builder().id("a").title("first").build());
+    repository.save(NewsArticle.builder().id("a").title("second").build());
+    repository.saveAll(
+        List.of(
+            NewsArticle.builder().id("a").title("third").build(),
+            NewsArticle.builder().id("b").title("other").build()));
+    repository.saveSummary("b", "summary");
+
+    assertEquals(List.of("a new", "a was first", "a was second", "b new", "b was other"), changes);
+    assertTrue(requestsTo("PutItem").get(1).contains("ALL_OLD"));
+    assertEquals(List.of(List.of("a")), batchGets, "only indexed ids are read back");
+  }
+
+  @Test
+  public void categoryPagesComeFromTheTableUntilTheIndexesAreLoaded() {
+    put("a", 300, "world");
+    put("b", 200, "world");
+    categoryRow("world", "a", 300);
+    categoryRow("world", "b", 200);
+    LLMService llm =
+        new LLMService(
+            "http://127.0.0.1:1",
+            "",
+            "m",
+            120,
+            new LlmResponseCache(1 << 20, 60, "", 0),
+            LlmScheduler.unlimited(),
+            NewsMetrics.noop());
+    NewsService service =
+        new NewsService(
+            repository,
+            new SummarizationPipeline(llm, repository, 1, 10, 0),
+            QueryResultCache.disabled(),
+            NewsMetrics.noop(),
+            true);
+
+    assertFalse(repository.indexesLoaded());
+    assertEquals(
+        List.of("b"),
+        service.fetchNewsArticlesByCategory("world", 1, 1).stream()
+            .map(a -> a.getArticle().getId())
+            .toList());
+    assertEquals(1, requestsTo("Query").size());
+
+    repository.rebuildIndexes();
+    assertTrue(repository.indexesLoaded());
+    assertEquals(
+        List.of("a", "b"),
+        service.fetchNewsArticlesByCategory("world", 0, 5).stream()
+            .map(a -> a.getArticle().getId())
+            .toList());
+    assertEquals(1, requestsTo("Query").size(), "served from the columns");
+  }
+
+  @Test
+  public void sourceKeysAreLowerCasedIndependentlyOfTheDefaultLocale() {
+    Locale original = Locale.getDefault();
+    Locale.setDefault(Locale.forLanguageTag("tr"));
+    try {
+      queryRows.add(Map.of("id", s("a"), "sourceName", s("IHA"), "sourceKey", s("iha")));
+      List<NewsArticle> found = repository.queryBySource("IHA", 5);
+      assertEquals(List.of("a"), found.stream().map(NewsArticle::getId).toList());
+      String query = requestsTo("Query").get(0);
+      assertTrue(query.contains("\"source-index\""), query);
+      assertTrue(query.contains("{\"S\":\"iha\"}"), query);
+
+      repository.save(NewsArticle.builder().id("x").sourceName("IHA").build());
+      String put = requestsTo("PutItem").get(0);
+      assertTrue(put.contains("\"sourceKey\":{\"S\":\"iha\"}"), put);
+    } finally {
+      Locale.setDefault(original);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.NewsService;
+import com.example.news.service.QueryPlanner;
+import com.example.news.service.QueryResultCache;
+import com.example.news.service.SummarizationPipeline;
+import java.net.URI;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class QueryPlannerTest {
+
+  private static final double DELHI_LAT = 28.61;
+  private static final double DELHI_LON = 77.21;
+
+  /** Fifty world articles from Reuters in Delhi, one of them about the election. */
+  private static List<NewsArticle> corpus() {
+    List<NewsArticle> out = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      out.add(
+          NewsArticle.builder()
+              .id("w" + i)
+              .title(i == 7 ? "Election turnout in Delhi" : "Monsoon update " + i)
+              .description("Report number " + i)
+              .relevanceScore(i / 50.0)
+              .sourceName("Reuters")
+              .category(List.of("world"))
+              .latitude(DELHI_LAT)
+              .longitude(DELHI_LON)
+              .build());
+    }
+    out.add(
+        NewsArticle.builder()
+            .id("far")
+            .title("Election night in Lima")
+            .relevanceScore(0.99)
+            .sourceName("BBC")
+            .category(List.of("world"))
+            .latitude(-12.05)
+            .longitude(-77.04)
+            .build());
+    out.add(
+        NewsArticle.builder()
+            .id("copy")
+            .title("Election turnout in Delhi")
+            .description("Report number 7")
+            .relevanceScore(0.1)
+            .sourceName("AP")
+            .category(List.of("world"))
+            .latitude(DELHI_LAT)
+            .longitude(DELHI_LON)
+            .build());
+    return out;
+  }
+
+  private static NewsRepository repository(List<NewsArticle> articles) {
+    DynamoDbClient unused =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    SearchIndex search = new SearchIndex();
+    GeoIndex geo = new GeoIndex();
+    ColumnarStore columns = new ColumnarStore();
+    NearDuplicateIndex duplicates = new NearDuplicateIndex(4);
+    Map<String, NewsArticle> byId = new HashMap<>();
+    for (NewsArticle a : articles) {
+      search.index(a);
+      geo.index(a);
+      columns.index(a);
+      duplicates.index(a);
+      byId.put(a.getId(), a);
+    }
+    return new NewsRepository(
+        DynamoDbEnhancedClient.builder().dynamoDbClient(unused).build(),
+        search,
+        geo,
+        columns,
+        duplicates,
+        ArticleCache.disabled(),
+        NewsMetrics.noop(),
+        1) {
+      @Override
+      public List<NewsArticle> findAllById(List<String> ids) {
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+      }
+    };
+  }
+
+  private static List<QueryPlanner.Filter> order(QueryPlanner.Plan plan) {
+    return plan.steps().stream().map(QueryPlanner.Step::filter).toList();
+  }
+
+  @Test
+  public void drivesFromTheMostSelectiveFilter() {
+    QueryPlanner planner = new QueryPlanner(repository(corpus()));
+    QueryPlanner.Criteria criteria =
+        new QueryPlanner.Criteria("World", "reuters", 0.1, "election", DELHI_LAT, DELHI_LON, 25.0);
+
+    QueryPlanner.Plan plan = planner.plan(criteria);
+    // election: 3 docs; nearby: 51 in the Delhi cell; reuters: 50; score >= 0.1: 46; world: 52.
+    assertEquals(
+        List.of(
+            QueryPlanner.Filter.TEXT,
+            QueryPlanner.Filter.SCORE,
+            QueryPlanner.Filter.SOURCE,
+            QueryPlanner.Filter.NEARBY,
+            QueryPlanner.Filter.CATEGORY),
+        order(plan));
+    assertEquals(3, plan.steps().get(0).estimate());
+
+    List<QueryPlanner.Match> matches = planner.execute(plan, criteria);
+    assertEquals(List.of("w7"), matches.stream().map(QueryPlanner.Match::id).toList());
+    assertEquals(0.0, matches.get(0).distanceKm(), 1e-9);
+    assertTrue(matches.get(0).textScore() > 0);
+  }
+
+  @Test
+  public void zeroEstimateShortCircuits() {
+    QueryPlanner planner = new QueryPlanner(repository(corpus()));
+    QueryPlanner.Criteria criteria =
+        new QueryPlanner.Criteria("world", "Unknown Wire", null, " ", null, null, null);
+
+    QueryPlanner.Plan plan = planner.plan(criteria);
+    assertEquals(List.of(QueryPlanner.Filter.SOURCE, QueryPlanner.Filter.CATEGORY), order(plan));
+    assertTrue(plan.empty());
+    assertTrue(planner.execute(plan, criteria).isEmpty());
+  }
+
+  @Test
+  public void serviceRanksCollapsesAndPagesCompositeResults() {
+    NewsRepository repo = repository(corpus());
+    LLMService llm =
+        new LLMService(
+            "http://127.0.0.1:1",
+            "",
+            "m",
+            120,
+            new LlmResponseCache(1 << 20, 60, "", 0),
+            LlmScheduler.unlimited(),
+            NewsMetrics.noop());
+    NewsService service =
+        new NewsService(
+            repo,
+            new SummarizationPipeline(llm, repo, 1, 10, 0),
+            QueryResultCache.disabled(),
+            NewsMetrics.noop(),
+            true);
+
+    // Without text, stored relevance ranks; "far" is out of range.
+    List<ScoredArticle> top =
+        service.fetchNewsArticlesMatching(
+            new QueryPlanner.Criteria("world", null, 0.5, null, DELHI_LAT, DELHI_LON, 25.0), 1, 2);
+    assertEquals(List.of("w48", "w47"), top.stream().map(a -> a.getArticle().getId()).toList());
+    assertEquals(0.96, top.get(0).getScore(), 1e-9);
+    assertEquals(0.0, top.get(0).getDistanceKm(), 1e-9);
+
+    // "copy" duplicates w7 and ranks lower, so only w7 is returned for the story.
+    List<ScoredArticle> election =
+        service.fetchNewsArticlesMatching(
+            new QueryPlanner.Criteria(null, null, null, "election delhi", null, null, null), 0, 5);
+    assertEquals(List.of("w7"), election.stream().map(a -> a.getArticle().getId()).toList());
+    assertNull(election.get(0).getDistanceKm());
+  }
+}
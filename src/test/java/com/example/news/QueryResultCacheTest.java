@@ -0,0 +1,166 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
+import com.example.news.service.QueryResultCache;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class QueryResultCacheTest {
+
+  private static QueryResultCache cache(int maxEntries) {
+    return new QueryResultCache(true, maxEntries, 60, 2, null, NewsMetrics.noop());
+  }
+
+  private static List<ScoredArticle> result(String id) {
+    return List.of(ScoredArticle.of(NewsArticle.builder().id(id).build()));
+  }
+
+  @Test
+  public void invalidatesOnlyEntriesTaggedByTheSavedArticle() {
+    QueryResultCache cache = cache(100);
+    AtomicInteger computed = new AtomicInteger();
+    Set<String> sports = Set.of(QueryResultCache.categoryTag("Sports"));
+    Set<String> tech = Set.of(QueryResultCache.categoryTag("tech"));
+
+    cache.get("category", "sports", sports, () -> result("s" + computed.incrementAndGet()));
+    cache.get("category", "tech", tech, () -> result("t" + computed.incrementAndGet()));
+    cache.get("category", "sports", sports, () -> result("s" + computed.incrementAndGet()));
+    assertEquals(2, computed.get());
+
+    cache.onArticleChanged(null, NewsArticle.builder().id("x").category(List.of("sports")).build());
+    cache.get("category", "sports", sports, () -> result("s" + computed.incrementAndGet()));
+    cache.get("category", "tech", tech, () -> result("t" + computed.incrementAndGet()));
+    assertEquals(3, computed.get(), "only the sports entry is recomputed");
+  }
+
+  @Test
+  public void previousVersionTagsAreInvalidatedToo() {
+    QueryResultCache cache = cache(100);
+    Set<String> dw = Set.of(QueryResultCache.sourceTag("DW"));
+    cache.get("source", "dw", dw, () -> result("a"));
+
+    NewsArticle before = NewsArticle.builder().id("a").sourceName("DW").build();
+    NewsArticle after = before.toBuilder().sourceName("Reuters").build();
+    cache.onArticleChanged(before, after);
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void concurrentMissesComputeOnce() throws Exception {
+    QueryResultCache cache = cache(100);
+    AtomicInteger computed = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    List<Future<List<ScoredArticle>>> futures = new CopyOnWriteArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      futures.add(
+          pool.submit(
+              () ->
+                  cache.get(
+                      "score",
+                      "k",
+                      Set.of("score"),
+                      () -> {
+                        computed.incrementAndGet();
+                        try {
+                          release.await();
+                        } catch (InterruptedException e) {
+                          Thread.currentThread().interrupt();
+                        }
+                        return result("a");
+                      })));
+    }
+    Thread.sleep(200);
+    release.countDown();
+    for (Future<List<ScoredArticle>> f : futures)
+      assertEquals("a", f.get().get(0).getArticle().getId());
+    pool.shutdown();
+    assertEquals(1, computed.get());
+  }
+
+  @Test
+  public void asyncMissesShareThePendingResultWithoutWaiting() {
+    QueryResultCache cache = cache(100);
+    AtomicInteger computed = new AtomicInteger();
+    CompletableFuture<List<ScoredArticle>> pending = new CompletableFuture<>();
+    CompletableFuture<List<ScoredArticle>> first =
+        cache.getAsync(
+            "search",
+            "k",
+            Set.of("term:x"),
+            () -> {
+              computed.incrementAndGet();
+              return pending;
+            });
+    CompletableFuture<List<ScoredArticle>> second =
+        cache.getAsync(
+            "search",
+            "k",
+            Set.of("term:x"),
+            () -> {
+              computed.incrementAndGet();
+              return CompletableFuture.completedFuture(result("b"));
+            });
+    assertFalse(second.isDone(), "the second caller is handed the first one's future");
+    assertEquals(0, cache.size());
+
+    pending.complete(result("a"));
+    assertEquals("a", second.join().get(0).getArticle().getId());
+    assertEquals("a", first.join().get(0).getArticle().getId());
+    assertEquals(1, computed.get());
+    assertEquals(1, cache.size(), "stored once the computation completed");
+
+    CompletableFuture<List<ScoredArticle>> failed = new CompletableFuture<>();
+    CompletableFuture<List<ScoredArticle>> failing =
+        cache.getAsync("search", "f", Set.of("term:x"), () -> failed);
+    failed.completeExceptionally(new IllegalStateException("unreadable"));
+    assertThrows(CompletionException.class, failing::join);
+    assertEquals(
+        "late",
+        cache
+            .getAsync(
+                "search",
+                "f",
+                Set.of("term:x"),
+                () -> CompletableFuture.completedFuture(result("late")))
+            .join()
+            .get(0)
+            .getArticle()
+            .getId(),
+        "a failure is not cached");
+  }
+
+  @Test
+  public void resultComputedAcrossAnInvalidationIsNotStored() {
+    QueryResultCache cache = cache(100);
+    cache.get(
+        "score",
+        "k",
+        Set.of("score"),
+        () -> {
+          cache.invalidate(Set.of("unrelated"));
+          return result("stale");
+        });
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedBeyondMaxEntries() {
+    QueryResultCache cache = cache(2);
+    cache.get("score", "a", Set.of("score"), () -> result("a"));
+    cache.get("score", "b", Set.of("score"), () -> result("b"));
+    cache.get("score", "a", Set.of("score"), () -> result("unused"));
+    cache.get("score", "c", Set.of("score"), () -> result("c"));
+    assertEquals(2, cache.size());
+    assertEquals(
+        "a", cache.get("score", "a", Set.of(), () -> result("again")).get(0).getArticle().getId());
+    assertEquals(0.12, cache.quantize(0.1234), 1e-12);
+  }
+}
@@ -0,0 +1,148 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.GeoUtils;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.model.ScoredArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.NewsService;
+import com.example.news.service.QueryResultCache;
+import com.example.news.service.SummarizationPipeline;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class ScoredArticleTest {
+
+  private static NewsArticle article() {
+    return NewsArticle.builder()
+        .id("a")
+        .title("Elon Musk buys company")
+        .description("Details")
+        .relevanceScore(0.5)
+        .latitude(21.0)
+        .longitude(80.0)
+        .build();
+  }
+
+  private static NewsService service(NewsArticle stored) {
+    return service(QueryResultCache.disabled(), stored);
+  }
+
+  private static NewsService service(QueryResultCache queryCache, NewsArticle... stored) {
+    DynamoDbClient unused =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    SearchIndex search = new SearchIndex();
+    GeoIndex geo = new GeoIndex();
+    ColumnarStore columns = new ColumnarStore();
+    ArticleCache cache = new ArticleCache(true, 300);
+    for (NewsArticle a : stored) {
+      search.index(a);
+      geo.index(a);
+      columns.index(a);
+    }
+    cache.beginLoad();
+    cache.load(List.of(stored));
+    NewsRepository repo =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unused).build(),
+            search,
+            geo,
+            columns,
+            new NearDuplicateIndex(4),
+            cache,
+            NewsMetrics.noop(),
+            1) {
+          @Override
+          public void save(NewsArticle article) {
+            fail("queries must not write articles back");
+          }
+        };
+    LLMService llm =
+        new LLMService(
+            "http://127.0.0.1:1",
+            "",
+            "m",
+            120,
+            new LlmResponseCache(1 << 20, 60, "", 0),
+            LlmScheduler.unlimited(),
+            NewsMetrics.noop());
+    return new NewsService(
+        repo, new SummarizationPipeline(llm, repo, 1, 10, 0), queryCache, NewsMetrics.noop(), true);
+  }
+
+  @Test
+  public void queriesLeaveStoredRelevanceUntouched() {
+    NewsArticle stored = article();
+    NewsService service = service(stored);
+
+    ScoredArticle hit = service.searchNewsArticles("musk", 5).get(0);
+    assertEquals(0.6 * 1.0 + 0.4 * 0.5, hit.getScore(), 1e-9);
+    assertEquals(stored, hit.getArticle());
+
+    ScoredArticle near = service.fetchNewsArticlesRelevantNearby(21.0, 80.0, 10, 5).get(0);
+    assertEquals(0.0, near.getDistanceKm(), 1e-9);
+    assertNull(near.getScore());
+
+    assertEquals(0.5, stored.getRelevanceScore());
+  }
+
+  @Test
+  public void nearbyDistancesAreFromTheCallerNotTheCellCentre() {
+    // Both callers round to the cell centred on (21.00, 80.00), 0.01 degrees wide.
+    NewsArticle across = article().toBuilder().id("across").latitude(21.0149).build();
+    NewsArticle behind = article().toBuilder().id("behind").latitude(20.993).build();
+    NewsService service =
+        service(new QueryResultCache(true, 100, 60, 2, null, NewsMetrics.noop()), across, behind);
+
+    // Near the cell's north edge, "across" is 1.1 km away but 1.66 km from the centre.
+    List<ScoredArticle> north = service.fetchNewsArticlesRelevantNearby(21.0049, 80.0, 1.5, 5);
+    assertEquals(List.of("across", "behind"), ids(north));
+    assertEquals(
+        GeoUtils.haversineKm(21.0049, 80.0, 21.0149, 80.0), north.get(0).getDistanceKm(), 1e-9);
+    assertEquals(
+        GeoUtils.haversineKm(21.0049, 80.0, 20.993, 80.0), north.get(1).getDistanceKm(), 1e-9);
+
+    // The same cell's south edge shares the cached candidates but not their order or radius.
+    List<ScoredArticle> south = service.fetchNewsArticlesRelevantNearby(20.9951, 80.0, 1.5, 5);
+    assertEquals(List.of("behind"), ids(south));
+    assertEquals(
+        GeoUtils.haversineKm(20.9951, 80.0, 20.993, 80.0), south.get(0).getDistanceKm(), 1e-9);
+  }
+
+  private static List<String> ids(List<ScoredArticle> page) {
+    return page.stream().map(s -> s.getArticle().getId()).toList();
+  }
+
+  @Test
+  public void serializesArticleFieldsAlongsideComputedOnes() throws Exception {
+    JsonNode json = new ObjectMapper().valueToTree(ScoredArticle.atDistance(article(), 3.5));
+    assertEquals("a", json.get("id").asText());
+    assertEquals(0.5, json.get("relevanceScore").asDouble());
+    assertEquals(3.5, json.get("distanceKm").asDouble());
+    assertFalse(json.has("score"));
+    assertFalse(json.has("article"));
+  }
+}
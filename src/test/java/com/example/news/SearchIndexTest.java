@@ -0,0 +1,51 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.SearchIndex;
+import com.example.news.model.NewsArticle;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SearchIndexTest {
+
+  private static NewsArticle article(String id, String title, String description) {
+    return NewsArticle.builder().id(id).title(title).description(description).build();
+  }
+
+  @Test
+  public void titleMatchOutranksDescriptionMatch() {
+    SearchIndex index = new SearchIndex();
+    index.index(article("1", "Elon Musk buys company", "Details about a big acquisition"));
+    index.index(article("2", "Some other news", "Mentions Elon Musk in a paragraph"));
+    index.index(article("3", "Weather update", "Rain expected in Paris"));
+
+    List<SearchIndex.Hit> hits = index.search("elon musk");
+    assertEquals(2, hits.size());
+    SearchIndex.Hit best = hits.stream().max((a, b) -> Double.compare(a.score(), b.score())).get();
+    assertEquals("1", best.id());
+    assertEquals(1.0, best.score(), 1e-9);
+  }
+
+  @Test
+  public void allTermsMustMatch() {
+    SearchIndex index = new SearchIndex();
+    index.index(article("1", "Paris climate talks", null));
+    index.index(article("2", "Paris fashion week", null));
+
+    assertEquals(1, index.search("Paris, climate!").size());
+    assertTrue(index.search("berlin").isEmpty());
+    assertTrue(index.search("   ").isEmpty());
+  }
+
+  @Test
+  public void reindexingReplacesOldTerms() {
+    SearchIndex index = new SearchIndex();
+    index.index(article("1", "Old headline", null));
+    index.index(article("1", "New headline", null));
+
+    assertEquals(1, index.size());
+    assertTrue(index.search("old").isEmpty());
+    assertEquals(1, index.search("new").size());
+  }
+}
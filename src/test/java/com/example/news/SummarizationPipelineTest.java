@@ -0,0 +1,199 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.SummarizationPipeline;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class SummarizationPipelineTest {
+
+  private HttpServer server;
+  private final AtomicInteger llmCalls = new AtomicInteger();
+  private final List<NewsArticle> saved = new CopyOnWriteArrayList<>();
+  private final Map<String, NewsArticle> corpus = new ConcurrentHashMap<>();
+  private LLMService llmService;
+  private NewsRepository repository;
+
+  @BeforeEach
+  public void startStub() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/v1/chat/completions",
+        exchange -> {
+          llmCalls.incrementAndGet();
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          byte[] body =
+              "{\"choices\":[{\"message\":{\"content\":\"stub summary\"}}]}"
+                  .getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    server.start();
+
+    llmService =
+        new LLMService(
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions",
+            "test-key",
+            "stub-model",
+            120,
+            new LlmResponseCache(1 << 20, 3600, "", 0),
+            LlmScheduler.unlimited(),
+            NewsMetrics.noop());
+    DynamoDbClient unused =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    repository =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unused).build(),
+            new SearchIndex(),
+            new GeoIndex(),
+            new ColumnarStore(),
+            new NearDuplicateIndex(4),
+            ArticleCache.disabled(),
+            NewsMetrics.noop(),
+            1) {
+          @Override
+          public Optional<NewsArticle> saveSummary(String id, String summary) {
+            NewsArticle stored =
+                corpus.getOrDefault(id, NewsArticle.builder().id(id).build()).toBuilder()
+                    .llmSummary(summary)
+                    .build();
+            saved.add(stored);
+            return Optional.of(stored);
+          }
+
+          @Override
+          public Optional<NewsArticle> findById(String id) {
+            Optional<NewsArticle> last =
+                saved.stream().filter(a -> a.getId().equals(id)).reduce((x, y) -> y);
+            return last.isPresent() ? last : Optional.ofNullable(corpus.get(id));
+          }
+        };
+  }
+
+  @AfterEach
+  public void stopStub() {
+    server.stop(0);
+  }
+
+  private static NewsArticle article(String id) {
+    return NewsArticle.builder().id(id).title("Title " + id).description("Body").build();
+  }
+
+  @Test
+  public void waitsForSummaryAndDedupsInFlightIds() {
+    SummarizationPipeline pipeline = new SummarizationPipeline(llmService, repository, 2, 10, 5000);
+    NewsArticle a = article("a");
+
+    assertSame(pipeline.submit(a), pipeline.submit(a));
+    List<NewsArticle> out = pipeline.enrich(List.of(a));
+
+    assertEquals("stub summary", out.get(0).getLlmSummary());
+    assertNull(a.getLlmSummary(), "input article must not be mutated");
+    assertEquals(1, llmCalls.get());
+    assertEquals(1, saved.size());
+    assertEquals("stub summary", saved.get(0).getLlmSummary());
+    pipeline.shutdown();
+  }
+
+  @Test
+  public void returnsImmediatelyWithoutDeadline() throws Exception {
+    SummarizationPipeline pipeline = new SummarizationPipeline(llmService, repository, 1, 10, 0);
+    NewsArticle a = article("a");
+
+    List<NewsArticle> out = pipeline.enrich(List.of(a));
+    assertNull(out.get(0).getLlmSummary());
+
+    pipeline.submit(a).get();
+    assertEquals(1, saved.size());
+    pipeline.shutdown();
+  }
+
+  @Test
+  public void nearDuplicatesShareOneSummary() throws Exception {
+    SummarizationPipeline pipeline = new SummarizationPipeline(llmService, repository, 1, 10, 5000);
+    NewsArticle canonical = article("a").toBuilder().canonicalId("a").build();
+    NewsArticle copy = article("b").toBuilder().canonicalId("a").build();
+
+    List<NewsArticle> out = pipeline.enrich(List.of(canonical, copy));
+    assertEquals("stub summary", out.get(0).getLlmSummary());
+    assertEquals("stub summary", out.get(1).getLlmSummary());
+    assertEquals(1, llmCalls.get());
+
+    // Later, the copy on its own picks the summary up from the canonical article.
+    NewsArticle later = article("c").toBuilder().canonicalId("a").build();
+    assertEquals("stub summary", pipeline.submit(later).get().getLlmSummary());
+    assertEquals(1, llmCalls.get());
+    pipeline.shutdown();
+  }
+
+  @Test
+  public void rowsStoredWithoutAClusterUseTheIndexedOne() throws Exception {
+    SummarizationPipeline pipeline = new SummarizationPipeline(llmService, repository, 1, 10, 0);
+    NewsArticle first = article("a").toBuilder().title("Storm hits the coast").build();
+    NewsArticle copy = article("b").toBuilder().title("Storm hits the coast").build();
+    corpus.put("a", first.toBuilder().llmSummary("summary of a").build());
+    assertEquals("a", repository.assignCanonicalId(first));
+    assertEquals("a", repository.assignCanonicalId(copy));
+
+    assertEquals("summary of a", pipeline.submit(copy).get().getLlmSummary());
+    assertEquals(0, llmCalls.get());
+    assertEquals(List.of("b"), saved.stream().map(NewsArticle::getId).toList());
+    pipeline.shutdown();
+  }
+
+  @Test
+  public void theCanonicalArticleGetsItsOwnCopyOfACopysSummary() throws Exception {
+    SummarizationPipeline pipeline = new SummarizationPipeline(llmService, repository, 1, 10, 0);
+    NewsArticle copy = article("b").toBuilder().canonicalId("a").build();
+    NewsArticle canonical = article("a").toBuilder().canonicalId("a").build();
+
+    CompletableFuture<NewsArticle> forCopy = pipeline.submit(copy);
+    NewsArticle forCanonical = pipeline.submit(canonical).get();
+
+    assertEquals("b", forCopy.get().getId());
+    assertEquals("a", forCanonical.getId());
+    assertEquals("stub summary", forCanonical.getLlmSummary());
+    assertEquals(1, llmCalls.get());
+    pipeline.shutdown();
+  }
+}
@@ -0,0 +1,203 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import com.example.news.service.LLMService;
+import com.example.news.service.LlmResponseCache;
+import com.example.news.service.LlmScheduler;
+import com.example.news.service.SummaryBackfill;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class SummaryBackfillTest {
+
+  private static final Pattern ARTICLE = Pattern.compile("Article (\\d+)\\nTitle: (\\S+)");
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+  private final List<String> prompts = new CopyOnWriteArrayList<>();
+  private final List<NewsArticle> corpus = new ArrayList<>();
+  private final List<NewsArticle> saved = new CopyOnWriteArrayList<>();
+  private LlmScheduler scheduler;
+  private SummaryBackfill backfill;
+
+  @BeforeEach
+  public void startStub() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/v1/chat/completions", this::reply);
+    server.start();
+
+    scheduler = new LlmScheduler(1000, 1_000_000, 2, 1, 0.1, 0, 0, 2, 1, 5, NewsMetrics.noop());
+    LLMService llm =
+        new LLMService(
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions",
+            "test-key",
+            "stub-model",
+            120,
+            new LlmResponseCache(1 << 20, 3600, "", 0),
+            scheduler,
+            NewsMetrics.noop());
+    DynamoDbClient unused =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    NewsRepository repository =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unused).build(),
+            new SearchIndex(),
+            new GeoIndex(),
+            new ColumnarStore(),
+            new NearDuplicateIndex(4),
+            ArticleCache.disabled(),
+            NewsMetrics.noop(),
+            1) {
+          @Override
+          public List<NewsArticle> scanAll() {
+            return corpus;
+          }
+
+          @Override
+          public Optional<NewsArticle> saveSummary(String id, String summary) {
+            NewsArticle stored = NewsArticle.builder().id(id).llmSummary(summary).build();
+            saved.add(stored);
+            return Optional.of(stored);
+          }
+        };
+    backfill = new SummaryBackfill(llm, repository, scheduler, 8, 4000);
+  }
+
+  @AfterEach
+  public void stopStub() {
+    server.stop(0);
+  }
+
+  /** Throttles the first request; then summarizes every article but "a16". */
+  private void reply(HttpExchange exchange) throws IOException {
+    int n = requests.incrementAndGet();
+    if (n == 1) {
+      exchange.getResponseHeaders().add("retry-after-ms", "5");
+      exchange.sendResponseHeaders(429, -1);
+      exchange.close();
+      return;
+    }
+    Map<?, ?> request = MAPPER.readValue(exchange.getRequestBody(), Map.class);
+    List<?> messages = (List<?>) request.get("messages");
+    String prompt = (String) ((Map<?, ?>) messages.get(1)).get("content");
+    prompts.add(prompt);
+    List<Map<String, String>> summaries = new ArrayList<>();
+    Matcher m = ARTICLE.matcher(prompt);
+    int articles = 0;
+    while (m.find()) {
+      articles++;
+      if (!m.group(2).equals("a16")) {
+        summaries.add(Map.of("id", m.group(1), "summary", "summary of " + m.group(2)));
+      }
+    }
+    batchSizes.add(articles);
+    String content = MAPPER.writeValueAsString(Map.of("summaries", summaries));
+    byte[] body =
+        MAPPER.writeValueAsBytes(
+            Map.of(
+                "choices", List.of(Map.of("message", Map.of("content", content))),
+                "usage", Map.of("total_tokens", 100)));
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    exchange.getResponseBody().write(body);
+    exchange.close();
+  }
+
+  private static NewsArticle article(String id, String canonicalId, String summary) {
+    return NewsArticle.builder()
+        .id(id)
+        .title(id)
+        .description("Body of " + id)
+        .canonicalId(canonicalId)
+        .llmSummary(summary)
+        .build();
+  }
+
+  @Test
+  public void batchesOneArticlePerStoryAndRetriesThrottledCalls() {
+    for (int i = 0; i < 17; i++) corpus.add(article("a" + i, "a" + i, null));
+    corpus.add(article("d1", "a3", null)); // near-duplicate of a3
+    corpus.add(article("c0", "c0", "old summary"));
+    corpus.add(article("c1", "c0", null)); // story already summarized
+    corpus.set(5, corpus.get(5).toBuilder().description(null).build());
+
+    SummaryBackfill.Report report = backfill.run(0);
+
+    assertFalse(report.running());
+    assertEquals(17, report.stories());
+    assertEquals(3, report.batches());
+    assertEquals(List.of(1, 8, 8), batchSizes.stream().sorted().toList());
+    assertEquals(16, report.summarized());
+    assertEquals(1, report.missing());
+    assertEquals(2, report.copied());
+    assertEquals(300, report.tokens());
+    assertEquals(16 * 1000.0 / 300, report.articlesPer1kTokens(), 1e-9);
+    assertEquals(1, report.llm().throttled());
+    assertEquals(1, report.llm().retries());
+    assertEquals(4, requests.get());
+    assertTrue(prompts.stream().anyMatch(p -> p.contains("Title: a5\n\nArticle")), "no body");
+    assertTrue(prompts.stream().noneMatch(p -> p.contains("null")));
+
+    Map<String, String> summaries = new HashMap<>();
+    for (NewsArticle a : saved) summaries.put(a.getId(), a.getLlmSummary());
+    assertEquals(18, summaries.size());
+    assertEquals("summary of a3", summaries.get("d1"));
+    assertEquals("old summary", summaries.get("c1"));
+    assertNull(summaries.get("a16"));
+  }
+
+  @Test
+  public void limitsStoriesAndGivesUpAfterRetries() {
+    for (int i = 0; i < 5; i++) corpus.add(article("a" + i, null, null));
+    assertEquals(1, backfill.run(1).stories());
+
+    server.removeContext("/v1/chat/completions");
+    server.createContext(
+        "/v1/chat/completions",
+        exchange -> {
+          requests.incrementAndGet();
+          exchange.sendResponseHeaders(503, -1);
+          exchange.close();
+        });
+    saved.clear();
+    requests.set(0);
+    SummaryBackfill.Report report = backfill.run(0);
+    assertEquals(1, report.failedBatches());
+    assertEquals(5, report.missing());
+    assertEquals(3, requests.get(), "one call and two retries");
+    assertTrue(saved.isEmpty());
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.service.TokenBucket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void waitsForDebtToRefillAtTheConfiguredRate() {
+    AtomicLong now = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(60, now::get); // one permit per second
+
+    assertEquals(0, bucket.reserve(60));
+    assertEquals(SECOND, bucket.reserve(1), 1000);
+    // Larger than the whole bucket: allowed, after a proportional wait.
+    assertEquals(121 * SECOND, bucket.reserve(120), 1000);
+
+    now.addAndGet(200 * SECOND);
+    assertEquals(60, bucket.available(), "refill stops at capacity");
+  }
+
+  @Test
+  public void refundsUnusedPermitsAndDrainsOnThrottling() {
+    AtomicLong now = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(1000, now::get);
+
+    assertEquals(0, bucket.reserve(800));
+    bucket.refund(500);
+    assertEquals(700, bucket.available());
+    bucket.refund(-100);
+    assertEquals(600, bucket.available());
+    bucket.refund(10_000);
+    assertEquals(1000, bucket.available());
+
+    bucket.drain();
+    assertEquals(0, bucket.available());
+    assertTrue(bucket.reserve(1) > 0);
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0));
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.TopK;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class TopKTest {
+
+  @Test
+  public void keepsLargestKeysInDescendingOrder() {
+    TopK<String> top = new TopK<>(3);
+    double[] keys = {0.2, 0.9, 0.1, 0.5, 0.7, Double.NaN, 0.3};
+    for (double k : keys) top.offer(k, String.valueOf(k));
+
+    assertEquals(List.of("0.9", "0.7", "0.5"), top.toSortedList());
+    assertEquals(List.of("0.7", "0.5"), top.page(1));
+    assertEquals(List.of(), top.page(5));
+  }
+
+  @Test
+  public void equalKeysKeepInsertionOrder() {
+    TopK<String> top = new TopK<>(2);
+    top.offer(1.0, "first");
+    top.offer(1.0, "second");
+    top.offer(1.0, "third");
+    assertEquals(List.of("first", "second"), top.toSortedList());
+  }
+
+  @Test
+  public void matchesFullSortOnRandomInput() {
+    Random rnd = new Random(3);
+    List<Double> all = new ArrayList<>();
+    TopK<Double> top = new TopK<>(10);
+    for (int i = 0; i < 1000; i++) {
+      double v = rnd.nextDouble();
+      all.add(v);
+      top.offer(v, v);
+    }
+    all.sort(Comparator.reverseOrder());
+    assertEquals(all.subList(0, 10), top.toSortedList());
+    assertTrue(new TopK<Double>(0).toSortedList().isEmpty());
+  }
+
+  @Test
+  public void largeBoundsCostOnlyWhatIsOffered() {
+    TopK<Integer> top = new TopK<>(Integer.MAX_VALUE);
+    for (int i = 0; i < 100; i++) top.offer(i, i);
+    assertEquals(100, top.size());
+    assertEquals(99, top.toSortedList().get(0));
+    assertEquals(List.of(0), top.page(99));
+  }
+}
@@ -0,0 +1,167 @@
+package com.example.news;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.news.index.ColumnarStore;
+import com.example.news.index.CountMinSketch;
+import com.example.news.index.GeoIndex;
+import com.example.news.index.NearDuplicateIndex;
+import com.example.news.index.SearchIndex;
+import com.example.news.index.SpaceSaving;
+import com.example.news.metrics.NewsMetrics;
+import com.example.news.model.NewsArticle;
+import com.example.news.repository.ArticleCache;
+import com.example.news.repository.NewsRepository;
+import com.example.news.service.TrendTracker;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+public class TrendTrackerTest {
+
+  private static final long NOW = 1_750_000_000_000L;
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+  private static NewsArticle article(String id, long epoch, String source, String title) {
+    return NewsArticle.builder()
+        .id(id)
+        .publicationEpoch(epoch)
+        .sourceName(source)
+        .title(title)
+        .category(List.of("World"))
+        .build();
+  }
+
+  private static TrendTracker tracker() {
+    return new TrendTracker(15, 256, 4, 20, null);
+  }
+
+  private static List<String> names(List<TrendTracker.Trend> trends) {
+    return trends.stream().map(TrendTracker.Trend::name).toList();
+  }
+
+  @Test
+  public void sketchEstimatesAndMergesWithoutUndercounting() {
+    CountMinSketch a = new CountMinSketch(64, 4);
+    CountMinSketch b = new CountMinSketch(64, 4);
+    for (int i = 0; i < 200; i++) a.add("k" + i, 1);
+    a.add("hot", 50);
+    b.add("hot", 25);
+    b.add("hot", -5);
+
+    assertTrue(a.estimate("hot") >= 50);
+    assertTrue(CountMinSketch.estimate(List.of(a, b), "hot") >= 70);
+    assertEquals(0, new CountMinSketch(64, 4).estimate("hot"));
+  }
+
+  @Test
+  public void spaceSavingKeepsFrequentKeysWithinCapacity() {
+    SpaceSaving hitters = new SpaceSaving(5);
+    for (int i = 0; i < 100; i++) {
+      hitters.add("rare" + i, 1);
+      if (i % 3 == 0) hitters.add("hot", 1);
+    }
+    assertEquals(5, hitters.size());
+    assertTrue(hitters.keys().contains("hot"));
+    assertTrue(hitters.count("hot") >= 34);
+  }
+
+  @Test
+  public void ranksWithinHourAndDayWindows() {
+    TrendTracker tracker = tracker();
+    tracker.trending(TrendTracker.HOUR, NOW, 5); // first use loads; nothing without a repository
+
+    for (int i = 0; i < 3; i++) {
+      tracker.onArticleChanged(
+          null, article("r" + i, NOW - 10 * MINUTE, "Reuters", "Election results in Paris"));
+    }
+    tracker.onArticleChanged(null, article("b", NOW - 5 * MINUTE, "BBC", "Paris weather"));
+    tracker.onArticleChanged(
+        null, article("old", NOW - 5 * 60 * MINUTE, "AP", "Election debate, and the turnout"));
+    tracker.onArticleChanged(null, article("older", NOW - 6 * 60 * MINUTE, "AP", "Election day"));
+
+    TrendTracker.Trending hour = tracker.trending(TrendTracker.HOUR, NOW, 2);
+    assertEquals(List.of("reuters", "bbc"), names(hour.sources()));
+    assertEquals(3, hour.sources().get(0).count());
+    assertEquals("paris", hour.terms().get(0).name());
+    assertEquals(4, hour.terms().get(0).count());
+    assertEquals(List.of("world"), names(hour.categories()));
+
+    TrendTracker.Trending day = tracker.trending(TrendTracker.DAY, NOW, 10);
+    assertTrue(names(day.sources()).contains("ap"));
+    assertEquals("election", day.terms().get(0).name());
+    assertEquals(5, day.terms().get(0).count());
+    assertFalse(names(day.terms()).contains("the"));
+  }
+
+  @Test
+  public void resaveMovesContributionAndOldArticlesAreDropped() {
+    TrendTracker tracker = tracker();
+    tracker.trending(TrendTracker.HOUR, NOW, 5);
+
+    NewsArticle first = article("a", NOW - MINUTE, "Reuters", "Storm");
+    tracker.onArticleChanged(null, first);
+    tracker.onArticleChanged(first, first.toBuilder().sourceName("BBC").build());
+    assertEquals(List.of("bbc"), names(tracker.trending(TrendTracker.HOUR, NOW, 5).sources()));
+
+    // More than a day behind the newest bucket: outside the ring, not counted.
+    tracker.onArticleChanged(null, article("x", NOW - TimeUnit.DAYS.toMillis(2), "AP", "Storm"));
+    assertFalse(names(tracker.trending(TrendTracker.DAY, NOW, 5).sources()).contains("ap"));
+  }
+
+  @Test
+  public void savesDuringTheInitialScanAreCountedOnce() {
+    NewsArticle a = article("a", NOW - MINUTE, "Reuters", "Storm");
+    NewsArticle b = article("b", NOW - MINUTE, "Reuters", "Flood");
+    NewsArticle c = article("c", NOW - MINUTE, "AP", "Fire");
+    AtomicReference<TrendTracker> tracker = new AtomicReference<>();
+    DynamoDbClient unused =
+        DynamoDbClient.builder()
+            .endpointOverride(URI.create("http://127.0.0.1:1"))
+            .region(Region.US_EAST_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+            .build();
+    NewsRepository repository =
+        new NewsRepository(
+            DynamoDbEnhancedClient.builder().dynamoDbClient(unused).build(),
+            new SearchIndex(),
+            new GeoIndex(),
+            new ColumnarStore(),
+            new NearDuplicateIndex(4),
+            ArticleCache.disabled(),
+            NewsMetrics.noop(),
+            1) {
+          @Override
+          public Stream<NewsArticle> streamAll(String... attributes) {
+            // "a" is edited after the scan read it, "b" before, and "c" is saved once it passed.
+            NewsArticle bEdited = b.toBuilder().sourceName("BBC").build();
+            return Stream.of(a, bEdited)
+                .peek(
+                    x -> {
+                      if (x == a) {
+                        tracker.get().onArticleChanged(null, c);
+                        tracker.get().onArticleChanged(b, bEdited);
+                      }
+                    })
+                .onClose(
+                    () ->
+                        tracker.get().onArticleChanged(a, a.toBuilder().sourceName("BBC").build()));
+          }
+        };
+    tracker.set(new TrendTracker(15, 256, 4, 20, repository));
+
+    List<TrendTracker.Trend> sources = tracker.get().trending(TrendTracker.HOUR, NOW, 5).sources();
+
+    assertEquals(List.of("bbc", "ap"), names(sources));
+    assertEquals(List.of(2L, 1L), sources.stream().map(TrendTracker.Trend::count).toList());
+  }
+}